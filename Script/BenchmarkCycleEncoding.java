@@ -0,0 +1,22 @@
+import schedule_generator.*;
+
+
+public class BenchmarkCycleEncoding {
+	public static void main(String []args){
+
+		// Encoding of the cycles given as argument: "unrolled" or "indexed"
+		if(args.length > 0 && args[0].equals("indexed")) {
+			Port.CYCLE_ENCODING = Port.INDEXED_CYCLES;
+		} else {
+			Port.CYCLE_ENCODING = Port.UNROLLED_CYCLES;
+		}
+		
+		ScheduleGenerator.PRINT_FORMULA_SIZE = true;
+
+		UseCase g = new UseCase();
+		
+		g.runTestCase();
+
+	}
+
+}
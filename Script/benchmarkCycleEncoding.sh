@@ -0,0 +1,51 @@
+#!/bin/sh
+
+# Compares the unrolled and the indexed cycle encodings (see Port.CYCLE_ENCODING)
+# on every test case of a directory. For each test case and encoding, prints the
+# number of assertions and terms given to z3 and the execution time reported by
+# the test case ("-" if it failed or timed out).
+# Both encodings give the same schedules: the unused slot rules of zeroOutNonUsedSlots
+# compare the cycle index of each packet with every cycle.
+#
+# Usage: ./benchmarkCycleEncoding.sh [test cases directory] [timeout in seconds]
+
+TEST_DIR=${1:-../TestCases}
+TIME_LIMIT=${2:-600}
+BUILD_DIR=benchmark_build
+
+THE_CLASSPATH=${BUILD_DIR}:./libs/com.microsoft.z3.jar
+
+mkdir -p ${BUILD_DIR} output/benchmark
+
+# The current sources are used instead of the jars of the libs directory
+javac -nowarn -classpath "${THE_CLASSPATH}" -d ${BUILD_DIR} ../src/schedule_generator/*.java
+wait
+
+echo "test case;encoding;assertions;terms;execution time (s)"
+
+find "${TEST_DIR}" -iname "*.java" | sort | while read TEST_CASE
+do
+	cp "${TEST_CASE}" "UseCase.java"
+
+	sed -i s/"package schedule_generator;"/"import schedule_generator.*; "/g "UseCase.java"
+	sed -i s/GeneratedCode/UseCase/g "UseCase.java"
+
+	javac -nowarn -classpath ".:${THE_CLASSPATH}" "UseCase.java" BenchmarkCycleEncoding.java
+	wait
+
+	OUTPUT_NAME=`echo "${TEST_CASE}" | sed s/"[^A-Za-z0-9.]"/"_"/g`
+
+	for ENCODING in unrolled indexed
+	do
+		timeout ${TIME_LIMIT} java -classpath ".:${THE_CLASSPATH}" BenchmarkCycleEncoding ${ENCODING} > "output/benchmark/${OUTPUT_NAME}.${ENCODING}.out"
+
+		SIZE=`grep "Formula size:" "output/benchmark/${OUTPUT_NAME}.${ENCODING}.out" | sed s/"Formula size: \([0-9]*\) assertions, \([0-9]*\) terms"/"\1;\2"/`
+		TIME=`grep "Execution time:" "output/benchmark/${OUTPUT_NAME}.${ENCODING}.out" | sed s/"Execution time: \([0-9.E-]*\) seconds.*"/"\1"/`
+
+		echo "${TEST_CASE};${ENCODING};${SIZE:-;};${TIME:--}"
+	done
+
+	rm -f "UseCase.java" *.class
+done
+
+rm -f log.txt
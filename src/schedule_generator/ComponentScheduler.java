@@ -0,0 +1,149 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: ComponentScheduler
+ * [Usage]: Schedules one component of the conflict graph of a network
+ * on its own z3 context and solver. Only the ports used by the flows
+ * of the component are converted to z3, so components can be solved
+ * at the same time on different threads. The values found are stored
+ * in the flows and cycles of the component by writeResults, and the
+ * log is written once all components are done.
+ */
+public class ComponentScheduler implements Callable<Status> {
+
+    private Network net;
+    private ArrayList<Flow> flows;
+    private ArrayList<Port> ports;
+    private float jitterUpperBoundRange;
+    private ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+
+    private Context ctx;
+    private Solver solver;
+    private Model model;
+
+
+    /**
+     * [Method]: ComponentScheduler
+     * [Usage]: Overloaded constructor of this class. Receives the flows
+     * and the ports of a component of the network.
+     *
+     * @param net                       Network that the component belongs to
+     * @param flows                     Flows of the component
+     * @param ports                     Ports used by the flows of the component
+     * @param jitterUpperBoundRange     Maximum allowed jitter of the flows
+     */
+    public ComponentScheduler(Network net,
+            ArrayList<Flow> flows,
+            ArrayList<Port> ports,
+            float jitterUpperBoundRange) {
+        this.net = net;
+        this.flows = flows;
+        this.ports = ports;
+        this.jitterUpperBoundRange = jitterUpperBoundRange;
+    }
+
+
+    /**
+     * [Method]: call
+     * [Usage]: Sets up the rules of the component following the same
+     * steps of ScheduleGenerator.configureNetwork, restricted to the
+     * flows and ports of the component, and checks the solver.
+     *
+     * @return          Status of the solver for this component
+     */
+    public Status call() {
+        Status status;
+        
+        this.ctx = scheduleGenerator.createContext();
+        this.solver = ctx.mkSolver();
+
+        for(Port port : this.ports) {
+            port.setUpCycle(solver, ctx);
+            port.toZ3(ctx);
+        }
+
+        for(Flow flw : this.flows) {
+            flw.toZ3(ctx);
+        }
+
+        for(Port port : this.ports) {
+            for(FlowFragment frag : port.getFlowFragments()) {
+                solver.add( // Maximum cycle start constraint
+                    ctx.mkLe(
+                        port.getCycle().getFirstCycleStartZ3(),
+                        port.arrivalTime(ctx, 0, frag)
+                    )
+                );
+            }
+
+            solver.add( // No negative cycle values constraint
+                ctx.mkGe(port.getCycle().getFirstCycleStartZ3(), TimeEncoding.mkTime(ctx, 0))
+            );
+        }
+
+        ArithExpr jitterUpperBoundRangeZ3 = TimeEncoding.mkTime(ctx, this.jitterUpperBoundRange);
+
+        for(Port port : this.ports) {
+            port.setupSchedulingRules(solver, ctx);
+        }
+
+        for(Flow flw : this.flows) {
+            net.secureFlowHC(flw, solver, ctx, jitterUpperBoundRangeZ3);
+        }
+
+        status = solver.check();
+
+        if(status == Status.SATISFIABLE) {
+            this.model = solver.getModel();
+        }
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: writeResults
+     * [Usage]: Stores the values of the model in the flows and cycles
+     * of the component and closes the context. Must be called after
+     * all components are solved, since the flows of the component are
+     * navigated through switches shared with other components.
+     */
+    public void writeResults() {
+        if(this.model != null) {
+            ModelReader reader = new ModelReader(model);
+
+            for(Port port : this.ports) {
+                port.getCycle().setCycleStart(reader.evalTime(port.getCycle().getFirstCycleStartZ3()));
+                port.getCycle().setCycleDuration(reader.evalTime(port.getCycle().getCycleDurationZ3()));
+            }
+
+            for(Flow flw : this.flows) {
+                scheduleGenerator.harvestFlow(flw, reader, ctx);
+            }
+        }
+
+        // The context is not created if the component failed before being solved
+        if(this.ctx != null) {
+            scheduleGenerator.closeContext(ctx);
+        }
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public ArrayList<Flow> getFlows() {
+        return flows;
+    }
+
+    public ArrayList<Port> getPorts() {
+        return ports;
+    }
+
+}
@@ -0,0 +1,182 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * [Class]: ConflictGraph
+ * [Usage]: Groups the flows of a network into independent sets. Two
+ * flows conflict if their path trees go through the same port or if
+ * they share the same start device (the first departure time of a
+ * device is a single z3 variable). Flows of different groups never
+ * share a port, so each group can be scheduled on its own context.
+ *
+ * The flows must be in the publish subscribe format (see
+ * Flow.convertUnicastFlow) before the graph is built.
+ */
+public class ConflictGraph {
+
+    private ArrayList<Flow> flows;
+    private int[] parentOf;
+
+    private ArrayList<ArrayList<Flow>> components = new ArrayList<ArrayList<Flow>>();
+    private ArrayList<ArrayList<Port>> portsOfComponents = new ArrayList<ArrayList<Port>>();
+
+
+    /**
+     * [Method]: ConflictGraph
+     * [Usage]: Builds the conflict graph of the flows of the given
+     * network and finds its connected components.
+     *
+     * @param net       Network with the flows to be grouped
+     */
+    public ConflictGraph(Network net) {
+        HashMap<Port, Integer> firstFlowOfPort = new HashMap<Port, Integer>();
+        HashMap<Device, Integer> firstFlowOfDevice = new HashMap<Device, Integer>();
+        LinkedHashMap<Integer, ArrayList<Flow>> flowsOfRoot = new LinkedHashMap<Integer, ArrayList<Flow>>();
+        LinkedHashMap<Integer, ArrayList<Port>> portsOfRoot = new LinkedHashMap<Integer, ArrayList<Port>>();
+        ArrayList<ArrayList<Port>> portsOfFlow = new ArrayList<ArrayList<Port>>();
+
+        this.flows = new ArrayList<Flow>(net.getFlows());
+        this.parentOf = new int[this.flows.size()];
+
+        for(int i = 0; i < this.flows.size(); i++) {
+            this.parentOf[i] = i;
+        }
+
+        // Connect flows that share a port or a start device
+        for(int i = 0; i < this.flows.size(); i++) {
+            Device startDevice = (Device) this.flows.get(i).getPathTree().getRoot().getNode();
+            ArrayList<Port> ports = new ArrayList<Port>();
+
+            this.findPorts(this.flows.get(i).getPathTree().getRoot(), ports);
+            portsOfFlow.add(ports);
+
+            for(Port port : ports) {
+                if(firstFlowOfPort.containsKey(port)) {
+                    this.union(firstFlowOfPort.get(port), i);
+                } else {
+                    firstFlowOfPort.put(port, i);
+                }
+            }
+
+            if(firstFlowOfDevice.containsKey(startDevice)) {
+                this.union(firstFlowOfDevice.get(startDevice), i);
+            } else {
+                firstFlowOfDevice.put(startDevice, i);
+            }
+        }
+
+        // Group flows and ports by the root of their set
+        for(int i = 0; i < this.flows.size(); i++) {
+            int root = this.find(i);
+
+            if(!flowsOfRoot.containsKey(root)) {
+                flowsOfRoot.put(root, new ArrayList<Flow>());
+                portsOfRoot.put(root, new ArrayList<Port>());
+            }
+
+            flowsOfRoot.get(root).add(this.flows.get(i));
+
+            for(Port port : portsOfFlow.get(i)) {
+                if(!portsOfRoot.get(root).contains(port)) {
+                    portsOfRoot.get(root).add(port);
+                }
+            }
+        }
+
+        for(Integer root : flowsOfRoot.keySet()) {
+            this.components.add(flowsOfRoot.get(root));
+            this.portsOfComponents.add(portsOfRoot.get(root));
+        }
+
+    }
+
+
+    /**
+     * [Method]: findPorts
+     * [Usage]: Recursively navigates through a path tree, adding
+     * the ports used by the flow to the given list. Each switch node
+     * uses the port that reaches each one of its children.
+     *
+     * @param node      Current node of the path tree (should start with root)
+     * @param ports     List in which the ports are added
+     */
+    private void findPorts(PathNode node, ArrayList<Port> ports) {
+        Port port;
+
+        for(PathNode child : node.getChildren()) {
+            if(node.getNode() instanceof TSNSwitch) {
+                if(child.getNode() instanceof TSNSwitch) {
+                    port = ((TSNSwitch) node.getNode()).getPortOf(((TSNSwitch) child.getNode()).getName());
+                } else {
+                    port = ((TSNSwitch) node.getNode()).getPortOf(((Device) child.getNode()).getName());
+                }
+
+                if(!ports.contains(port)) {
+                    ports.add(port);
+                }
+            }
+
+            this.findPorts(child, ports);
+        }
+    }
+
+
+    /**
+     * [Method]: find
+     * [Usage]: Returns the index of the flow representing the set
+     * that contains the flow of the given index.
+     *
+     * @param index     Index of the flow
+     * @return          Index of the representative of its set
+     */
+    private int find(int index) {
+        while(this.parentOf[index] != index) {
+            this.parentOf[index] = this.parentOf[this.parentOf[index]];
+            index = this.parentOf[index];
+        }
+
+        return index;
+    }
+
+
+    /**
+     * [Method]: union
+     * [Usage]: Merges the sets of two flows.
+     *
+     * @param indexA    Index of the first flow
+     * @param indexB    Index of the second flow
+     */
+    private void union(int indexA, int indexB) {
+        int rootA = this.find(indexA);
+        int rootB = this.find(indexB);
+
+        if(rootA != rootB) {
+            this.parentOf[rootB] = rootA;
+        }
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getNumOfComponents() {
+        return this.components.size();
+    }
+
+    public ArrayList<ArrayList<Flow>> getComponents() {
+        return components;
+    }
+
+    public ArrayList<Flow> getFlowsOfComponent(int index) {
+        return this.components.get(index);
+    }
+
+    public ArrayList<Port> getPortsOfComponent(int index) {
+        return this.portsOfComponents.get(index);
+    }
+
+}
@@ -0,0 +1,252 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: ConstraintTracker
+ * [Usage]: Helps finding out why a network can not be scheduled. When
+ * a tracker is registered on a context, the main families of constraints
+ * (hard constraint, jitter bound, slot in cycle, no overlap and time to
+ * transmit) are asserted under tracking literals, one literal for each
+ * kind, flow and port. If the solver finds the constraints unsatisfiable,
+ * diagnose extracts an unsat core over these literals, shrinks it and
+ * reports which flows and ports are in conflict.
+ *
+ * Constraints of a context without a tracker are asserted as usual (see
+ * add). Other constraints (variable definitions, priorities, cycle
+ * durations) are never tracked, so they are always part of the core.
+ *
+ * The literals must be assumed on every check (see enable), otherwise the
+ * tracked constraints would not bind.
+ */
+public class ConstraintTracker {
+
+    public static final String HARD_CONSTRAINT = "HardConstraint";
+    public static final String JITTER_BOUND = "JitterBound";
+    public static final String SLOT_IN_CYCLE = "SlotInCycle";
+    public static final String NO_OVERLAP = "NoOverlap";
+    public static final String TIME_TO_TRANSMIT = "TimeToTransmit";
+
+    private static IdentityHashMap<Context, ConstraintTracker> trackers = new IdentityHashMap<Context, ConstraintTracker>();
+
+    private LinkedHashMap<String, BoolExpr> literals = new LinkedHashMap<String, BoolExpr>();
+    private LinkedHashMap<BoolExpr, String[]> tags = new LinkedHashMap<BoolExpr, String[]>();
+    private ArrayList<String[]> conflicts = new ArrayList<String[]>();
+    private LinkedHashSet<String> conflictingFlows = new LinkedHashSet<String>();
+    private LinkedHashSet<String> conflictingPorts = new LinkedHashSet<String>();
+    private int maxMinimizationChecks = 50;
+
+
+    /**
+     * [Method]: register
+     * [Usage]: Starts tracking the constraints added on a context. Must
+     * be called before the scheduling rules are set up.
+     *
+     * @param ctx       Context of the solver
+     */
+    public void register(Context ctx) {
+        this.literals.clear();
+        this.tags.clear();
+        this.conflicts.clear();
+        this.conflictingFlows.clear();
+        this.conflictingPorts.clear();
+
+        synchronized(ConstraintTracker.class) {
+            trackers.put(ctx, this);
+        }
+    }
+
+
+    /**
+     * [Method]: forContext
+     * [Usage]: Retrieves the tracker registered on a context.
+     *
+     * @param ctx       Context of the solver
+     * @return          Tracker of the context, null if none was registered
+     */
+    public static synchronized ConstraintTracker forContext(Context ctx) {
+        return trackers.get(ctx);
+    }
+
+
+    /**
+     * [Method]: release
+     * [Usage]: Stops tracking the constraints of a context. Called when
+     * the context is closed (see ScheduleGenerator.closeContext).
+     *
+     * @param ctx       Context being closed
+     */
+    public static synchronized void release(Context ctx) {
+        trackers.remove(ctx);
+    }
+
+
+    /**
+     * [Method]: add
+     * [Usage]: Asserts a constraint of one of the tracked families. If
+     * no tracker is registered on the context, the constraint is simply
+     * added to the solver.
+     *
+     * @param solver        Solver receiving the constraint
+     * @param ctx           Context of the solver
+     * @param constraint    Constraint to be asserted
+     * @param kind          Family of the constraint (HARD_CONSTRAINT, NO_OVERLAP, ...)
+     * @param flowName      Name of the flow the constraint refers to
+     * @param portName      Name of the port the constraint refers to (empty if none)
+     */
+    public static void add(Solver solver, Context ctx, BoolExpr constraint, String kind, String flowName, String portName) {
+        ConstraintTracker tracker;
+
+        synchronized(ConstraintTracker.class) {
+            tracker = trackers.get(ctx);
+        }
+
+        if(tracker == null) {
+            solver.add(constraint);
+        } else {
+            solver.add(ctx.mkImplies(tracker.literal(ctx, kind, flowName, portName), constraint));
+        }
+    }
+
+
+    /**
+     * [Method]: literal
+     * [Usage]: Retrieves the tracking literal of a kind, flow and port,
+     * creating it the first time it is needed.
+     *
+     * @param ctx           Context of the solver
+     * @param kind          Family of the constraint
+     * @param flowName      Name of the flow
+     * @param portName      Name of the port
+     * @return              Tracking literal
+     */
+    private synchronized BoolExpr literal(Context ctx, String kind, String flowName, String portName) {
+        String name = "track" + kind + "_" + flowName + "_" + portName;
+        BoolExpr literal = this.literals.get(name);
+
+        if(literal == null) {
+            literal = ctx.mkBoolConst(name);
+            this.literals.put(name, literal);
+            this.tags.put(literal, new String[] {kind, flowName, portName});
+        }
+
+        return literal;
+    }
+
+
+    /**
+     * [Method]: enable
+     * [Usage]: Asserts every tracking literal, so the tracked constraints
+     * hold on checks that do not assume them (optimizer, portfolio, ...).
+     * Should be done inside a solver scope (solver.push), which is popped
+     * before calling diagnose.
+     *
+     * @param solver    Solver with the tracked constraints
+     */
+    public void enable(Solver solver) {
+        solver.add(this.getLiterals());
+    }
+
+
+    /**
+     * [Method]: diagnose
+     * [Usage]: Checks the solver assuming every tracking literal. If the
+     * result is unsatisfiable, the unsat core is shrunk by removing one
+     * literal at a time and checking again (up to a maximum number of
+     * checks). The flows and ports of the remaining literals are printed
+     * and kept in this object.
+     *
+     * @param solver    Solver with the tracked constraints
+     * @return          Status of the check with every literal assumed
+     */
+    public Status diagnose(Solver solver) {
+        Status status = solver.check(this.getLiterals());
+
+        this.conflicts.clear();
+        this.conflictingFlows.clear();
+        this.conflictingPorts.clear();
+
+        if(status != Status.UNSATISFIABLE) {
+            return status;
+        }
+
+        ArrayList<BoolExpr> core = new ArrayList<BoolExpr>();
+        for(BoolExpr literal : solver.getUnsatCore()) {
+            core.add(literal);
+        }
+
+        // Deletion based minimization: a literal is left out if the core stays unsatisfiable without it
+        int checks = 0;
+        for(int i = 0; i < core.size() && checks < this.maxMinimizationChecks; checks++) {
+            ArrayList<BoolExpr> candidate = new ArrayList<BoolExpr>(core);
+            candidate.remove(i);
+
+            if(solver.check(candidate.toArray(new BoolExpr[candidate.size()])) == Status.UNSATISFIABLE) {
+                core.clear();
+                for(BoolExpr literal : solver.getUnsatCore()) {
+                    core.add(literal);
+                }
+            } else {
+                i++;
+            }
+        }
+
+        System.out.println("Conflicting constraints (" + core.size() + "):");
+
+        for(BoolExpr literal : core) {
+            String[] tag = this.tags.get(literal);
+
+            if(tag == null) {
+                continue;
+            }
+
+            this.conflicts.add(tag);
+            this.conflictingFlows.add(tag[1]);
+            if(!tag[2].isEmpty()) {
+                this.conflictingPorts.add(tag[2]);
+            }
+
+            System.out.println("  " + tag[0] + " of " + tag[1] + (tag[2].isEmpty() ? "" : " on " + tag[2]));
+        }
+
+        System.out.println("Conflicting flows: " + this.conflictingFlows);
+        System.out.println("Conflicting ports: " + this.conflictingPorts);
+
+        return status;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public synchronized BoolExpr[] getLiterals() {
+        return this.literals.values().toArray(new BoolExpr[this.literals.size()]);
+    }
+
+    public ArrayList<String[]> getConflicts() {
+        return conflicts;
+    }
+
+    public LinkedHashSet<String> getConflictingFlows() {
+        return conflictingFlows;
+    }
+
+    public LinkedHashSet<String> getConflictingPorts() {
+        return conflictingPorts;
+    }
+
+    public int getMaxMinimizationChecks() {
+        return maxMinimizationChecks;
+    }
+
+    public void setMaxMinimizationChecks(int maxMinimizationChecks) {
+        this.maxMinimizationChecks = maxMinimizationChecks;
+    }
+
+}
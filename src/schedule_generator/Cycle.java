@@ -37,11 +37,22 @@ import com.microsoft.z3.*;
  * which can end up causing problems due to constraints of guard band
  * and such.
  * 
+ * Alternatively, with SLOT_ENCODING set to FUNCTION_SLOTS, the slot 
+ * start and duration of a cycle are z3 functions from (priority, slot 
+ * index) to a time (see TimeEncoding). Fragments with the same priority then reach 
+ * the same slot by congruence, and the equalities between same priority
+ * slots no longer need to be asserted by the ports.
+ * 
  */
 public class Cycle implements Serializable {
 	private static final long serialVersionUID = 1L;
 	private String portName = "";
 	static int instanceCounter = 0;
+	
+	public static final int NAMED_SLOTS = 0;     // One z3 variable per priority expression and slot
+	public static final int FUNCTION_SLOTS = 1;  // One z3 function per cycle for slot starts and durations
+	public static int SLOT_ENCODING = NAMED_SLOTS; // Encoding used by the cycles converted to z3 after it is set
+	
     private float upperBoundCycleTime;
     private float lowerBoundCycleTime;
     private float firstCycleStart;
@@ -50,16 +61,19 @@ public class Cycle implements Serializable {
     private float cycleDuration;
     private float cycleStart;
 
-    private transient ArrayList<ArrayList<RealExpr>> slotStartZ3 = new ArrayList<ArrayList<RealExpr>>();
-	private transient ArrayList<ArrayList<RealExpr>> slotDurationZ3 = new ArrayList<ArrayList<RealExpr>>();
+    private transient ArrayList<ArrayList<ArithExpr>> slotStartZ3 = new ArrayList<ArrayList<ArithExpr>>();
+	private transient ArrayList<ArrayList<ArithExpr>> slotDurationZ3 = new ArrayList<ArrayList<ArithExpr>>();
     
     private ArrayList<Integer> slotsUsed = new ArrayList<Integer>();
     private ArrayList<ArrayList<Float>> slotStart = new ArrayList<ArrayList<Float>>();
     private ArrayList<ArrayList<Float>> slotDuration = new ArrayList<ArrayList<Float>>();
     
-    private transient RealExpr cycleDurationZ3;
-    private transient RealExpr firstCycleStartZ3;
-    private transient RealExpr maximumSlotDurationZ3;
+    private transient ArithExpr cycleDurationZ3;
+    private transient ArithExpr firstCycleStartZ3;
+    private transient ArithExpr maximumSlotDurationZ3;
+    private transient int slotEncoding = NAMED_SLOTS;
+    private transient FuncDecl slotStartFuncZ3;
+    private transient FuncDecl slotDurationFuncZ3;
     private int numOfPrts = 8;
     
     private int numOfSlots = 1;
@@ -132,10 +146,10 @@ public class Cycle implements Serializable {
      * @param firstCycleStartZ3       Where the first cycle should start
      * @param maximumSlotDurationZ3   Every priority slot should have up this time units
      */    
-    public Cycle(RealExpr upperBoundCycleTimeZ3, 
-                 RealExpr lowerBoundCycleTimeZ3, 
-                 RealExpr firstCycleStartZ3,
-                 RealExpr maximumSlotDurationZ3) {
+    public Cycle(ArithExpr upperBoundCycleTimeZ3, 
+                 ArithExpr lowerBoundCycleTimeZ3, 
+                 ArithExpr firstCycleStartZ3,
+                 ArithExpr maximumSlotDurationZ3) {
         // this.upperBoundCycleTimeZ3 = upperBoundCycleTimeZ3;
         // this.lowerBoundCycleTimeZ3 = lowerBoundCycleTimeZ3;
         this.firstCycleStartZ3 = firstCycleStartZ3;
@@ -152,22 +166,45 @@ public class Cycle implements Serializable {
      * @param ctx      Context variable containing the z3 environment used
      */
     public void toZ3(Context ctx) {
-        instanceCounter++;
+        int instance;
+        
+        // Cycles of different ports can be converted at the same time when solving in parallel
+        synchronized(Cycle.class) {
+            instanceCounter++;
+            instance = instanceCounter;
+        }
+        
+        // Cycle starts built with the previous variables are no longer valid
+        Z3TermCache.forContext(ctx).invalidate(this);
         
-        this.cycleDurationZ3 = ctx.mkRealConst("cycle" + Integer.toString(instanceCounter) + "Duration");
-        this.firstCycleStartZ3 = ctx.mkRealConst("cycle" + Integer.toString(instanceCounter) + "Start");
+        this.cycleDurationZ3 = TimeEncoding.mkTimeConst(ctx, "cycle" + Integer.toString(instance) + "Duration");
+        this.firstCycleStartZ3 = TimeEncoding.mkTimeConst(ctx, "cycle" + Integer.toString(instance) + "Start");
         // this.firstCycleStartZ3 = ctx.mkReal(Float.toString(0));
         // this.firstCycleStartZ3 = ctx.mkReal(Float.toString(firstCycleStart));
-        this.maximumSlotDurationZ3 = ctx.mkReal(Float.toString(maximumSlotDuration));
+        this.maximumSlotDurationZ3 = TimeEncoding.mkTime(ctx, maximumSlotDuration);
         
-        this.slotStartZ3 = new ArrayList<ArrayList<RealExpr>>();
-        this.slotDurationZ3 = new ArrayList<ArrayList<RealExpr>>();
+        this.slotEncoding = SLOT_ENCODING;
+        if(this.slotEncoding == FUNCTION_SLOTS) {
+            Sort[] slotDomain = {ctx.getIntSort(), ctx.getIntSort()};
+            this.slotStartFuncZ3 = ctx.mkFuncDecl("cycle" + Integer.toString(instance) + "SlotStart", slotDomain, TimeEncoding.timeSort(ctx));
+            this.slotDurationFuncZ3 = ctx.mkFuncDecl("cycle" + Integer.toString(instance) + "SlotDuration", slotDomain, TimeEncoding.timeSort(ctx));
+        }
+        
+        this.slotStartZ3 = new ArrayList<ArrayList<ArithExpr>>();
+        this.slotDurationZ3 = new ArrayList<ArrayList<ArithExpr>>();
         
+        // Slots of this port only: the slot functions of the cycle, or variables tied to them by Port.portSlotRulesZ3
         for(int i = 0; i < this.numOfPrts; i++) {
-        	this.slotStartZ3.add(new ArrayList<RealExpr>());
-        	this.slotDurationZ3.add(new ArrayList<RealExpr>());
+        	this.slotStartZ3.add(new ArrayList<ArithExpr>());
+        	this.slotDurationZ3.add(new ArrayList<ArithExpr>());
         	for(int j = 0; j < this.numOfSlots; j++) {
-        		this.slotStartZ3.get(i).add(ctx.mkRealConst("cycleOfPort" + this.portName + "prt" + (i+1) + "slot" + (j+1)));
+        		if(this.slotEncoding == FUNCTION_SLOTS) {
+        			this.slotStartZ3.get(i).add(this.slotStartZ3(ctx, i, j));
+        			this.slotDurationZ3.get(i).add(this.slotDurationZ3(ctx, i, j));
+        		} else {
+        			this.slotStartZ3.get(i).add(TimeEncoding.mkTimeConst(ctx, "cycleOfPort" + this.portName + "prt" + (i+1) + "slot" + (j+1)));
+        			this.slotDurationZ3.get(i).add(TimeEncoding.mkTimeConst(ctx, "cycleOfPort" + this.portName + "prt" + (i+1) + "slot" + (j+1) + "Duration"));
+        		}
         	}
         }
         
@@ -184,12 +221,12 @@ public class Cycle implements Serializable {
      * @param index     Index of the desired cycle
      * @return          Z3 variable containing the cycle start time
      */
-    public RealExpr cycleStartZ3(Context ctx, IntExpr index){
-        return (RealExpr) ctx.mkITE( 
+    public ArithExpr cycleStartZ3(Context ctx, IntExpr index){
+        return (ArithExpr) ctx.mkITE( 
                 ctx.mkGe(index, ctx.mkInt(1)), 
                 ctx.mkAdd(
                         firstCycleStartZ3,
-                        ctx.mkMul(cycleDurationZ3, index)
+                        ctx.mkMul(cycleDurationZ3, TimeEncoding.mkCount(ctx, index))
                         ), 
                 firstCycleStartZ3);
 
@@ -204,16 +241,25 @@ public class Cycle implements Serializable {
      * @param index     Index of the desired cycle
      * @return          Z3 variable containing the cycle start time
      */
-    public RealExpr cycleStartZ3(Context ctx, int auxIndex){
-        IntExpr index = ctx.mkInt(auxIndex);
+    public ArithExpr cycleStartZ3(Context ctx, int auxIndex){
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr cycleStart = cache.getTerm(Z3TermCache.CYCLE_START, this, auxIndex);
         
-        return (RealExpr) ctx.mkITE( 
-                ctx.mkGe(index, ctx.mkInt(1)), 
+        if(cycleStart != null) {
+            return cycleStart;
+        }
+        
+        IntExpr index = cache.mkInt(auxIndex);
+        
+        cycleStart = (ArithExpr) ctx.mkITE( 
+                ctx.mkGe(index, cache.mkInt(1)), 
                 ctx.mkAdd(
                         firstCycleStartZ3,
-                        ctx.mkMul(cycleDurationZ3, index)
+                        ctx.mkMul(cycleDurationZ3, TimeEncoding.mkCount(ctx, auxIndex))
                         ), 
                 firstCycleStartZ3);
+        
+        return cache.putTerm(Z3TermCache.CYCLE_START, this, auxIndex, cycleStart);
 
      }
     
@@ -239,6 +285,26 @@ public class Cycle implements Serializable {
     }
     
     
+    /**
+     * [Method]: removeSlotUsed
+     * [Usage]: Removes the slot of a priority from the list of
+     * used slots, along with its slot start and duration. Used
+     * when the flows that made use of the slot leave the network.
+     * 
+     * @param prt           Priority of the slot to be removed
+     */
+    public void removeSlotUsed(int prt) {
+        int index = this.slotsUsed.indexOf(prt);
+        
+        if(index != -1) {
+            this.slotsUsed.remove(index);
+            this.slotStart.remove(index);
+            this.slotDuration.remove(index);
+        }
+        
+    }
+    
+    
     /**
      * [Method]: loadZ3
      * [Usage]: From the loaded primitive values of the class
@@ -254,14 +320,14 @@ public class Cycle implements Serializable {
     	solver.add(
 			ctx.mkEq(
 				this.cycleDurationZ3,
-				ctx.mkReal(Float.toString(this.cycleDuration))
+				TimeEncoding.mkGridTime(ctx, this.cycleDuration)
 			)
 		);
     	
     	solver.add(
 			ctx.mkEq(
 				this.firstCycleStartZ3,
-				ctx.mkReal(Float.toString(this.firstCycleStart))
+				TimeEncoding.mkGridTime(ctx, this.firstCycleStart)
 			)
 		);
     	    	
@@ -274,7 +340,7 @@ public class Cycle implements Serializable {
     			solver.add(
 					ctx.mkEq(
 						this.slotStartZ3.get(prt).get(slotIndex),
-						ctx.mkReal(Float.toString(this.slotStart.get(this.slotsUsed.indexOf(prt)).get(slotIndex)))	
+						TimeEncoding.mkGridTime(ctx, this.slotStart.get(this.slotsUsed.indexOf(prt)).get(slotIndex))	
 					)
 				);
     		}
@@ -284,7 +350,7 @@ public class Cycle implements Serializable {
     			solver.add(
 					ctx.mkEq(
 						this.slotDurationZ3.get(prt).get(slotIndex),
-						ctx.mkReal(Float.toString(this.slotDuration.get(prt).get(slotIndex)))	
+						TimeEncoding.mkGridTime(ctx, this.slotDuration.get(prt).get(slotIndex))	
 					)
 				);
     		}
@@ -350,40 +416,91 @@ public class Cycle implements Serializable {
     }
 
     
-    public RealExpr slotStartZ3(Context ctx, IntExpr prt, IntExpr index) {
-        return ctx.mkRealConst("priority" + prt.toString() + "slot" + index.toString() + "Start");
+    public ArithExpr slotStartZ3(Context ctx, IntExpr prt, IntExpr index) {
+        if(this.slotEncoding == FUNCTION_SLOTS) {
+            return (ArithExpr) this.slotStartFuncZ3.apply(prt, index);
+        }
+        
+        return TimeEncoding.mkTimeConst(ctx, "priority" + prt.toString() + "slot" + index.toString() + "Start");
     }
     
-    public RealExpr slotStartZ3(Context ctx, int auxPrt, int auxIndex) {
-        IntExpr index = ctx.mkInt(auxIndex);
-        IntExpr prt = ctx.mkInt(auxPrt);
-        return ctx.mkRealConst("priority" + prt.toString() + "slot" + index.toString() + "Start");
+    public ArithExpr slotStartZ3(Context ctx, int auxPrt, int auxIndex) {
+        return this.slotStartZ3(ctx, Z3TermCache.forContext(ctx).mkInt(auxPrt), auxIndex);
+    }
+    
+    public ArithExpr slotStartZ3(Context ctx, IntExpr prt, int auxIndex) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        
+        // Applications are not stored, since the same priority is shared by the cycles of all ports
+        if(this.slotEncoding == FUNCTION_SLOTS) {
+            return (ArithExpr) this.slotStartFuncZ3.apply(prt, cache.mkInt(auxIndex));
+        }
+        
+        ArithExpr slotStart = cache.getTerm(Z3TermCache.SLOT_START, prt, auxIndex);
+        
+        if(slotStart == null) {
+            slotStart = cache.putTerm(
+                Z3TermCache.SLOT_START, 
+                prt, 
+                auxIndex, 
+                TimeEncoding.mkTimeConst(ctx, "priority" + prt.toString() + "slot" + auxIndex + "Start")
+            );
+        }
+        
+        return slotStart;
     }
     
    
-    public RealExpr slotDurationZ3(Context ctx, IntExpr prt, IntExpr index) {
-        return ctx.mkRealConst("priority" + prt.toString() + "slot" + index.toString() + "Duration");
+    public ArithExpr slotDurationZ3(Context ctx, IntExpr prt, IntExpr index) {
+        if(this.slotEncoding == FUNCTION_SLOTS) {
+            return (ArithExpr) this.slotDurationFuncZ3.apply(prt, index);
+        }
+        
+        return TimeEncoding.mkTimeConst(ctx, "priority" + prt.toString() + "slot" + index.toString() + "Duration");
     }
     
-    public RealExpr slotDurationZ3(Context ctx, int auxPrt, int auxIndex) {
-        IntExpr index = ctx.mkInt(auxIndex);
-        IntExpr prt = ctx.mkInt(auxPrt);
-        return ctx.mkRealConst("priority" + prt.toString() + "slot" + index.toString() + "Duration");
+    public ArithExpr slotDurationZ3(Context ctx, int auxPrt, int auxIndex) {
+        return this.slotDurationZ3(ctx, Z3TermCache.forContext(ctx).mkInt(auxPrt), auxIndex);
+    }
+    
+    public ArithExpr slotDurationZ3(Context ctx, IntExpr prt, int auxIndex) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        
+        if(this.slotEncoding == FUNCTION_SLOTS) {
+            return (ArithExpr) this.slotDurationFuncZ3.apply(prt, cache.mkInt(auxIndex));
+        }
+        
+        ArithExpr slotDuration = cache.getTerm(Z3TermCache.SLOT_DURATION, prt, auxIndex);
+        
+        if(slotDuration == null) {
+            slotDuration = cache.putTerm(
+                Z3TermCache.SLOT_DURATION, 
+                prt, 
+                auxIndex, 
+                TimeEncoding.mkTimeConst(ctx, "priority" + prt.toString() + "slot" + auxIndex + "Duration")
+            );
+        }
+        
+        return slotDuration;
+    }
+
+    public boolean usesSlotFunctions() {
+        return this.slotEncoding == FUNCTION_SLOTS;
     }
 
-    public RealExpr getCycleDurationZ3() {
+    public ArithExpr getCycleDurationZ3() {
         return cycleDurationZ3;
     }
 
-    public void setCycleDurationZ3(RealExpr cycleDuration) {
+    public void setCycleDurationZ3(ArithExpr cycleDuration) {
         this.cycleDurationZ3 = cycleDuration;
     }
 
-    public RealExpr getFirstCycleStartZ3() {
+    public ArithExpr getFirstCycleStartZ3() {
         return firstCycleStartZ3;
     }
 
-    public void setFirstCycleStartZ3(RealExpr firstCycleStart) {
+    public void setFirstCycleStartZ3(ArithExpr firstCycleStart) {
         this.firstCycleStartZ3 = firstCycleStart;
     }
     
@@ -403,11 +520,11 @@ public class Cycle implements Serializable {
 		this.numOfSlots = numOfSlots;
 	}
     
-    public RealExpr getMaximumSlotDurationZ3() {
+    public ArithExpr getMaximumSlotDurationZ3() {
         return maximumSlotDurationZ3;
     }
     
-    public void setMaximumSlotDurationZ3(RealExpr maximumSlotDuration) {
+    public void setMaximumSlotDurationZ3(ArithExpr maximumSlotDuration) {
         this.maximumSlotDurationZ3 = maximumSlotDuration;
     }
     
@@ -436,13 +553,11 @@ public class Cycle implements Serializable {
 		this.portName = portName;
 	}
 
-	public RealExpr getSlotStartZ3(int prt, int slotNum) {
+	public ArithExpr getSlotStartZ3(int prt, int slotNum) {
 		return this.slotStartZ3.get(prt).get(slotNum);
 	}
 	
-	/*
-	public RealExpr getSlotDurationZ3(int prt, int slotNum) {
+	public ArithExpr getSlotDurationZ3(int prt, int slotNum) {
 		return this.slotDurationZ3.get(prt).get(slotNum);
 	}
-	*/
 }
@@ -23,11 +23,11 @@ public class Device implements Serializable {
     private float packetSize;
 
     private static int indexCounter = -1;        
-    private transient RealExpr packetPeriodicityZ3;
-	private transient RealExpr firstT1TimeZ3;
-	private transient RealExpr hardConstraintTimeZ3;
-	private transient RealExpr softConstraintTimeZ3;
-    private transient RealExpr packetSizeZ3;
+    private transient ArithExpr packetPeriodicityZ3;
+	private transient ArithExpr firstT1TimeZ3;
+	private transient ArithExpr hardConstraintTimeZ3;
+	private transient ArithExpr softConstraintTimeZ3;
+    private transient ArithExpr packetSizeZ3;
     private transient IntExpr flowPriority;
 
     /**
@@ -125,11 +125,11 @@ public class Device implements Serializable {
      * @param packetSizeZ3              Size of the packets sent by this device
      * @param flowPriority              Defines the priority queue in which this device packets belongs to (Not used yet)
      */
-	public Device(RealExpr packetPeriodicityZ3, 
-				  RealExpr firstT1TimeZ3,
-				  RealExpr hardConstraintTimeZ3,
-				  RealExpr softConstraintTimeZ3,
-				  RealExpr packetSizeZ3,
+	public Device(ArithExpr packetPeriodicityZ3, 
+				  ArithExpr firstT1TimeZ3,
+				  ArithExpr hardConstraintTimeZ3,
+				  ArithExpr softConstraintTimeZ3,
+				  ArithExpr packetSizeZ3,
 				  IntExpr flowPriority) {
 		this.packetPeriodicityZ3 = packetPeriodicityZ3;
 		this.firstT1TimeZ3 = firstT1TimeZ3;
@@ -149,11 +149,11 @@ public class Device implements Serializable {
 	 * @param ctx      Context variable containing the z3 environment used
 	 */
 	public void toZ3(Context ctx) {
-	    this.packetPeriodicityZ3 = ctx.mkReal(Float.toString(this.packetPeriodicity));
+	    this.packetPeriodicityZ3 = TimeEncoding.mkTime(ctx, this.packetPeriodicity);
 	    //this.firstT1TimeZ3 = ctx.mkReal(Float.toString(this.firstT1Time)); // In case of fixed firstT1Time
-	    this.firstT1TimeZ3 = ctx.mkRealConst(this.name + "FirstT1Time");
-	    this.hardConstraintTimeZ3 = ctx.mkReal(Float.toString(this.hardConstraintTime));
-	    this.softConstraintTimeZ3 = ctx.mkReal(Float.toString(this.softConstraintTime));
+	    this.firstT1TimeZ3 = TimeEncoding.mkTimeConst(ctx, this.name + "FirstT1Time");
+	    this.hardConstraintTimeZ3 = TimeEncoding.mkTime(ctx, this.hardConstraintTime);
+	    this.softConstraintTimeZ3 = TimeEncoding.mkTime(ctx, this.softConstraintTime);
 	    this.packetSizeZ3 = ctx.mkReal(Float.toString(this.packetSize));
 	}
 	
@@ -213,43 +213,43 @@ public class Device implements Serializable {
      *  Z3 GETTERS AND SETTERS
      */
     
-	public RealExpr getPacketPeriodicityZ3() {
+	public ArithExpr getPacketPeriodicityZ3() {
 		return packetPeriodicityZ3;
 	}
 	
-	public void setPacketPeriodicityZ3(RealExpr packetPeriodicity) {
+	public void setPacketPeriodicityZ3(ArithExpr packetPeriodicity) {
 		this.packetPeriodicityZ3 = packetPeriodicity;
 	}
 	
-	public RealExpr getFirstT1TimeZ3() {
+	public ArithExpr getFirstT1TimeZ3() {
 		return firstT1TimeZ3;
 	}
 	
-	public void setFirstT1TimeZ3(RealExpr firstT1Time) {
+	public void setFirstT1TimeZ3(ArithExpr firstT1Time) {
 		this.firstT1TimeZ3 = firstT1Time;
 	}
 	
-	public RealExpr getHardConstraintTimeZ3() {
+	public ArithExpr getHardConstraintTimeZ3() {
 		return hardConstraintTimeZ3;
 	}
 	
-	public void setHardConstraintTimeZ3(RealExpr hardConstraintTime) {
+	public void setHardConstraintTimeZ3(ArithExpr hardConstraintTime) {
 		this.hardConstraintTimeZ3 = hardConstraintTime;
 	}
 	
-	public RealExpr getSoftConstraintTimeZ3() {
+	public ArithExpr getSoftConstraintTimeZ3() {
 		return softConstraintTimeZ3;
 	}
 	
-	public void setSoftConstraintTimeZ3(RealExpr softConstraintTime) {
+	public void setSoftConstraintTimeZ3(ArithExpr softConstraintTime) {
 		this.softConstraintTimeZ3 = softConstraintTime;
 	}
 	
-    public RealExpr getPacketSizeZ3() {
+    public ArithExpr getPacketSizeZ3() {
         return packetSizeZ3;
     }
 
-    public void setPacketSizeZ3(RealExpr packetSize) {
+    public void setPacketSizeZ3(ArithExpr packetSize) {
         this.packetSizeZ3 = packetSize;
     }
 	
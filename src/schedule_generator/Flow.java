@@ -66,9 +66,13 @@ public class Flow implements Serializable {
      * @param type      Value specifying the type of the flow (0 - Unicast; 1 - Publish subscribe)
      */
     public Flow(int type) {
-        instanceCounter++;
-        this.instance = instanceCounter;
-        this.name = "flow" + Integer.toString(instanceCounter);
+        
+        // Shared with the flow fragments, which can be created on different threads when solving in parallel
+        synchronized(Flow.class) {
+            instanceCounter++;
+            this.instance = instanceCounter;
+        }
+        this.name = "flow" + Integer.toString(this.instance);
         
         if(type == UNICAST) {
             //Its not a unicast flow
@@ -80,7 +84,9 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            synchronized(Flow.class) {
+                instanceCounter--;
+            }
             //[TODO]: Throw error
         }
         
@@ -221,7 +227,7 @@ public class Flow implements Serializable {
                 }
                 
                 if(((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).checkIfAutomatedApplicationPeriod()) {
-                	numberOfPackets = (int) (((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).getDefinedHyperCycleSize()/this.startDevice.getPacketPeriodicity());
+                	numberOfPackets = Math.round(((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).getDefinedHyperCycleSize()/this.startDevice.getPacketPeriodicity());
                 	flowFrag.setNumOfPacketsSent(numberOfPackets);
                 	
                 }                
@@ -239,9 +245,9 @@ public class Flow implements Serializable {
 
                         /**/
                         flowFrag.addDepartureTimeZ3(
-                            (RealExpr) ctx.mkAdd(
+                            (ArithExpr) ctx.mkAdd(
                                 this.startDevice.getFirstT1TimeZ3(),
-                                ctx.mkReal(Float.toString(this.startDevice.getPacketPeriodicity() * i))
+                                TimeEncoding.mkTimes(ctx, this.startDevice.getPacketPeriodicity(), i)
                             )
                         );
                         /**/
@@ -329,9 +335,9 @@ public class Flow implements Serializable {
             //flowFrag.setNodeName(this.startDevice.getName());
             for (int i = 0; i < Network.PACKETUPPERBOUNDRANGE; i++) {
                 flowFrag.addDepartureTimeZ3( // Packet departure constraint
-                    (RealExpr) ctx.mkAdd(
+                    (ArithExpr) ctx.mkAdd(
                         this.startDevice.getFirstT1TimeZ3(),
-                        ctx.mkReal(Float.toString(this.startDevice.getPacketPeriodicity() * i))
+                        TimeEncoding.mkTimes(ctx, this.startDevice.getPacketPeriodicity(), i)
                     )
                 );
             }
@@ -426,6 +432,25 @@ public class Flow implements Serializable {
         return flowFragments;
     }
     
+    /**
+     * [Method]: getLeafOf
+     * [Usage]: Retrieves the leaf of the path tree holding an end
+     * device. Used as owner of the z3 terms of the subscriber.
+     * 
+     * @param endDevice     End device (leaf) of the flow
+     * @return              Leaf of the end device, null if the device is not a subscriber
+     */
+    private PathNode getLeafOf(Device endDevice) {
+        for(PathNode node : this.pathTree.getLeaves()) {
+            if((node.getNode() instanceof Device) &&
+               ((Device) node.getNode()).getName().equals(endDevice.getName())) {
+                return node;
+            }
+        }
+        
+        return null;
+    }
+    
     /**
      * [Method]: getNodesFromRootToNode
      * [Usage]: Given an end device of a publish subscriber flow, or in other
@@ -920,17 +945,23 @@ public class Flow implements Serializable {
     
     /**
      * [Method]: getLatency
-     * [Usage]: Gets the Z3 variable containing the latency 
+     * [Usage]: Gets the Z3 term containing the latency 
      * of the flow for a certain packet specified by the index.
+     * The term is built once per context (see Z3TermCache).
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param ctx       Z3 variable and function environment
      * @param index     Index of the desired packet
-     * @return          Z3 variable containing the latency of the packet
+     * @return          Z3 term containing the latency of the packet
      */
-    public RealExpr getLatencyZ3(Solver solver, Context ctx, int index) {
+    public ArithExpr getLatencyZ3(Solver solver, Context ctx, int index) {
         //index += 1;
-        RealExpr latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index);
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr latency = cache.getTerm(Z3TermCache.LATENCY, this, index);
+        
+        if(latency != null) {
+            return latency;
+        }
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) this.path.get(path.size() - 1));
         FlowFragment lastFragmentInList = this.flowFragments.get(flowFragments.size() - 1);
@@ -938,84 +969,81 @@ public class Flow implements Serializable {
         TSNSwitch firstSwitchInPath = ((TSNSwitch) this.path.get(0));
         FlowFragment firstFragmentInList = this.flowFragments.get(0);
         
-        solver.add(
-            ctx.mkEq(latency, 
-                ctx.mkSub(
-                    lastSwitchInPath
-                    .getPortOf(lastFragmentInList.getNextHop())
-                    .scheduledTime(ctx, index, lastFragmentInList),
-                    firstSwitchInPath.getPortOf(firstFragmentInList.getNextHop())
-                    .departureTime(ctx, index, firstFragmentInList)
-                )
-            )
+        latency = (ArithExpr) ctx.mkSub(
+            lastSwitchInPath
+            .getPortOf(lastFragmentInList.getNextHop())
+            .scheduledTime(ctx, index, lastFragmentInList),
+            firstSwitchInPath.getPortOf(firstFragmentInList.getNextHop())
+            .departureTime(ctx, index, firstFragmentInList)
         );
         
-        
-        return latency;
+        return cache.putTerm(Z3TermCache.LATENCY, this, index, latency);
     }
     
     /**
      * [Method]: getLatencyZ3
-     * [Usage]: Gets the Z3 variable containing the latency 
+     * [Usage]: Gets the Z3 term containing the latency 
      * of the flow for a certain packet specified by the index
-     * for a certain device.
+     * for a certain device. The term is built once per context
+     * and subscriber (see Z3TermCache).
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param dev       End device of the packet
      * @param ctx       Z3 variable and function environment
      * @param index     Index of the desired packet
-     * @return          Z3 variable containing the latency of the packet
+     * @return          Z3 term containing the latency of the packet
      */
-    public RealExpr getLatencyZ3(Solver solver, Device dev, Context ctx, int index) {
+    public ArithExpr getLatencyZ3(Solver solver, Device dev, Context ctx, int index) {
         //index += 1;
-        RealExpr latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index + "For" + dev.getName());
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        PathNode leaf = this.getLeafOf(dev);
+        ArithExpr latency = cache.getTerm(Z3TermCache.LATENCY, leaf, index);
+        
+        if(latency != null) {
+            return latency;
+        }
         
         ArrayList<PathNode> nodes = this.getNodesFromRootToNode(dev);
-        ArrayList<FlowFragment> flowFrags = this.getFlowFromRootToNode(dev);
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) nodes.get(nodes.size() - 2).getNode()); // - 1 for indexing, - 1 for last node being the end device
-        FlowFragment lastFragmentInList = flowFrags.get(flowFrags.size() - 1);
+        FlowFragment lastFragmentInList = nodes.get(nodes.size() - 2).getFlowFragments()
+                        .get(nodes.get(nodes.size() - 2).getChildren().indexOf(nodes.get(nodes.size() - 1)));
         
         TSNSwitch firstSwitchInPath = ((TSNSwitch) nodes.get(1).getNode()); // 1 since the first node is the publisher
-        FlowFragment firstFragmentInList = flowFrags.get(0);
+        FlowFragment firstFragmentInList = nodes.get(1).getFlowFragments().get(0);
 
-        solver.add(ctx.mkEq(latency, 
-            ctx.mkSub(
-                lastSwitchInPath
-                .getPortOf(lastFragmentInList.getNextHop())
-                .scheduledTime(ctx, index, lastFragmentInList),
-                firstSwitchInPath.getPortOf(firstFragmentInList.getNextHop())
-                .departureTime(ctx, index, firstFragmentInList)
-            )
-        ));
+        latency = (ArithExpr) ctx.mkSub(
+            lastSwitchInPath
+            .getPortOf(lastFragmentInList.getNextHop())
+            .scheduledTime(ctx, index, lastFragmentInList),
+            firstSwitchInPath.getPortOf(firstFragmentInList.getNextHop())
+            .departureTime(ctx, index, firstFragmentInList)
+        );
         
-        return latency;
+        return cache.putTerm(Z3TermCache.LATENCY, leaf, index, latency);
     }
     
     /**
      * [Method]: getSumOfLatencyZ3
-     * [Usage]: Recursively creates values to sum the z3 latencies
-     * of the flow from 0 up to a certain packet.
+     * [Usage]: Creates values to sum the z3 latencies of the flow 
+     * from 0 up to a certain packet. Each partial sum is built once
+     * per context on top of the previous one, so the sums of all
+     * packets are built in linear time.
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param ctx       Z3 variable and function environment
      * @param index     Index of the current packet in the sum
      * @return          Z3 variable containing sum of latency up to index packet
      */
-    public RealExpr getSumOfLatencyZ3(Solver solver, Context ctx, int index) {
-        
-        if(index == 0) {
-            return getLatencyZ3(solver, ctx, 0);
-        }
-        
-        return (RealExpr) ctx.mkAdd(getLatencyZ3(solver, ctx, index), getSumOfLatencyZ3(solver, ctx, index - 1));
-
+    public ArithExpr getSumOfLatencyZ3(Solver solver, Context ctx, int index) {
+        return this.getSumOfLatencyZ3(this, null, solver, ctx, index);
     }
     
     /**
      * [Method]: getSumOfLatencyZ3
-     * [Usage]: Recursively creates values to sum the z3 latencies
-     * of the flow from 0 up to a certain packet for a certain device.
+     * [Usage]: Creates values to sum the z3 latencies of the flow 
+     * from 0 up to a certain packet for a certain device. Each
+     * partial sum is built once per context and subscriber.
      * 
      * @param dev       Destination of the packet
      * @param solver    Solver in which the rules of the problem will be added
@@ -1023,12 +1051,43 @@ public class Flow implements Serializable {
      * @param index     Index of the current packet in the sum
      * @return          Z3 variable containing sum of latency up to index packet
      */
-    public RealExpr getSumOfLatencyZ3(Device dev, Solver solver, Context ctx, int index) {
-        if(index == 0) {
-            return getLatencyZ3(solver, dev, ctx, 0);
+    public ArithExpr getSumOfLatencyZ3(Device dev, Solver solver, Context ctx, int index) {
+        return this.getSumOfLatencyZ3(this.getLeafOf(dev), dev, solver, ctx, index);
+    }
+    
+    /**
+     * [Method]: getSumOfLatencyZ3
+     * [Usage]: Builds the partial sums of latency missing in the cache
+     * of the context, from the last one built up to the given packet.
+     * 
+     * @param owner     Owner of the terms in the cache (the flow, or the leaf of the device)
+     * @param dev       Destination of the packet (null for the whole flow)
+     * @param solver    Solver in which the rules of the problem will be added
+     * @param ctx       Z3 variable and function environment
+     * @param index     Index of the current packet in the sum
+     * @return          Z3 variable containing sum of latency up to index packet
+     */
+    private ArithExpr getSumOfLatencyZ3(Object owner, Device dev, Solver solver, Context ctx, int index) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr sum = cache.getTerm(Z3TermCache.LATENCY_SUM, owner, index);
+        int first = index;
+        
+        if(sum != null) {
+            return sum;
+        }
+        
+        while(first > 0 && cache.getTerm(Z3TermCache.LATENCY_SUM, owner, first - 1) == null) {
+            first--;
         }
         
-        return (RealExpr) ctx.mkAdd(getLatencyZ3(solver, dev, ctx, index), getSumOfLatencyZ3(dev, solver, ctx, index - 1));
+        for(int i = first; i <= index; i++) {
+            ArithExpr latency = dev == null ? this.getLatencyZ3(solver, ctx, i) : this.getLatencyZ3(solver, dev, ctx, i);
+            
+            sum = i == 0 ? latency : (ArithExpr) ctx.mkAdd(cache.getTerm(Z3TermCache.LATENCY_SUM, owner, i - 1), latency);
+            cache.putTerm(Z3TermCache.LATENCY_SUM, owner, i, sum);
+        }
+        
+        return sum;
     }
     
     /**
@@ -1041,13 +1100,13 @@ public class Flow implements Serializable {
      * @param index     Number of packet sent (as index)
      * @return          Z3 variable containing the sum of all latencies of the flow
      */
-    public RealExpr getSumOfAllDevLatencyZ3(Solver solver, Context ctx, int index) {
-        RealExpr sumValue = ctx.mkReal(0);
+    public ArithExpr getSumOfAllDevLatencyZ3(Solver solver, Context ctx, int index) {
+        ArithExpr sumValue = TimeEncoding.mkTime(ctx, 0);
         Device currentDev = null;
         
         for(PathNode node : this.pathTree.getLeaves()) {
             currentDev = (Device) node.getNode();
-            sumValue = (RealExpr) ctx.mkAdd(this.getSumOfLatencyZ3(currentDev, solver, ctx, index), sumValue);   
+            sumValue = (ArithExpr) ctx.mkAdd(this.getSumOfLatencyZ3(currentDev, solver, ctx, index), sumValue);   
         }
         
         return sumValue;
@@ -1056,48 +1115,67 @@ public class Flow implements Serializable {
     /**
      * [Method]: getSumOfAllDevLatencyZ3
      * [Usage]: Returns the sum of all latency for all destinations
-     * of the flow for the [index] number of packets sent.
+     * of the flow for the [index] number of packets sent. With the
+     * integer time encoding, the average is rounded down to a tick.
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param ctx       Z3 variable and function environment       
      * @return          Z3 variable containing the average latency of the flow
      */
-    public RealExpr getAvgLatency(Solver solver, Context ctx) {
+    public ArithExpr getAvgLatency(Solver solver, Context ctx) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr avgLatency = cache.getTerm(Z3TermCache.AVERAGE_LATENCY, this, this.numOfPacketsSentInFragment);
+        
+        if(avgLatency != null) {
+            return avgLatency;
+        }
+        
         if(this.type == UNICAST) {
-            return (RealExpr) ctx.mkDiv(
+            avgLatency = (ArithExpr) ctx.mkDiv(
                 getSumOfLatencyZ3(solver, ctx, this.numOfPacketsSentInFragment - 1), 
-                ctx.mkReal(this.numOfPacketsSentInFragment)
+                TimeEncoding.mkCount(ctx, this.numOfPacketsSentInFragment)
             );
         } else if (this.type == PUBLISH_SUBSCRIBE) {
-                return (RealExpr) ctx.mkDiv(
-                    getSumOfAllDevLatencyZ3(solver, ctx, this.numOfPacketsSentInFragment - 1), 
-                    ctx.mkReal((this.numOfPacketsSentInFragment) * this.pathTree.getLeaves().size())
-                );
+            avgLatency = (ArithExpr) ctx.mkDiv(
+                getSumOfAllDevLatencyZ3(solver, ctx, this.numOfPacketsSentInFragment - 1), 
+                TimeEncoding.mkCount(ctx, (this.numOfPacketsSentInFragment) * this.pathTree.getLeaves().size())
+            );
         } else {
             // TODO: THROW ERROR
+            return null;
         }
         
-        return null;
+        return cache.putTerm(Z3TermCache.AVERAGE_LATENCY, this, this.numOfPacketsSentInFragment, avgLatency);
     }
     
     
     /**
      * [Method]: getAvgLatency
      * [Usage]: Retrieves the average latency for one of the subscribers
-     * of the flow.
+     * of the flow. A single term is built per context, subscriber and
+     * number of packets, shared by the jitter of every packet. With the
+     * integer time encoding, the average is rounded down to a tick.
      * 
      * @param dev 		Subscriber to which the average latency will be calculated
      * @param solver	Solver object 
      * @param ctx		Context object for the solver
      * @return			z3 variable with the average latency for the device
      */
-    public RealExpr getAvgLatency(Device dev, Solver solver, Context ctx) {
+    public ArithExpr getAvgLatency(Device dev, Solver solver, Context ctx) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        PathNode leaf = this.getLeafOf(dev);
+        ArithExpr avgLatency = cache.getTerm(Z3TermCache.AVERAGE_LATENCY, leaf, this.numOfPacketsSentInFragment);
         
-        return (RealExpr) ctx.mkDiv(
+        if(avgLatency != null) {
+            return avgLatency;
+        }
+        
+        avgLatency = (ArithExpr) ctx.mkDiv(
             this.getSumOfLatencyZ3(dev, solver, ctx, this.numOfPacketsSentInFragment - 1), 
-            ctx.mkReal(this.numOfPacketsSentInFragment)
+            TimeEncoding.mkCount(ctx, this.numOfPacketsSentInFragment)
         );
         
+        return cache.putTerm(Z3TermCache.AVERAGE_LATENCY, leaf, this.numOfPacketsSentInFragment, avgLatency);
      }
     
     /**
@@ -1111,20 +1189,17 @@ public class Flow implements Serializable {
      * @param index     Number of packet sent (as index)
      * @return          Z3 variable for the jitter of packet [index]
      */
-    public RealExpr getJitterZ3(Solver solver, Context ctx, int index) {
-        RealExpr avgLatency = this.getAvgLatency(solver, ctx);
-        RealExpr latency = this.getLatencyZ3(solver, ctx, index);
+    public ArithExpr getJitterZ3(Solver solver, Context ctx, int index) {
+        ArithExpr avgLatency = this.getAvgLatency(solver, ctx);
+        ArithExpr latency = this.getLatencyZ3(solver, ctx, index);
         
-        return (RealExpr) ctx.mkITE(
+        return (ArithExpr) ctx.mkITE(
                 ctx.mkGe(
                     latency, 
                     avgLatency
                 ), 
                 ctx.mkSub(latency , avgLatency),
-                ctx.mkMul(
-                    ctx.mkSub(latency , avgLatency), 
-                    ctx.mkReal(-1)
-                )
+                ctx.mkSub(avgLatency , latency)
             );
         
     }
@@ -1134,34 +1209,42 @@ public class Flow implements Serializable {
      * [Usage]: Returns the z3 variable containing the jitter of that
      * packet.
      * 
+     * With the integer time encoding, the average latency is not a
+     * whole number of ticks. The jitter is then the distance between
+     * n times the latency and the sum of the n latencies, divided by n
+     * and rounded up to a tick, so comparing it to a bound on the grid
+     * gives the same answer as the exact jitter.
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param ctx       Z3 variable and function environment       
      * @param index     Number of packet sent (as index)
      * @return          Z3 variable for the jitter of packet [index]
      */
-    public RealExpr getJitterZ3(Device dev, Solver solver, Context ctx, int index) {
+    public ArithExpr getJitterZ3(Device dev, Solver solver, Context ctx, int index) {
         //index += 1;
-        RealExpr jitter = ctx.mkRealConst(this.name + "JitterOfPacket" + index + "For" + dev.getName());
-        
-        ArrayList<PathNode> nodes = this.getNodesFromRootToNode(dev);
-        
-        TSNSwitch lastSwitchInPath = ((TSNSwitch) nodes.get(nodes.size() - 2).getNode()); // - 1 for indexing, - 1 for last node being the end device
-        FlowFragment lastFragmentInList = nodes.get(nodes.size() - 2).getFlowFragments()
-                        .get(nodes.get(nodes.size() - 2).getChildren().indexOf(nodes.get(nodes.size() - 1)));
+        ArithExpr jitter = TimeEncoding.mkTimeConst(ctx, this.name + "JitterOfPacket" + index + "For" + dev.getName());
+        ArithExpr latency = this.getLatencyZ3(solver, dev, ctx, index);
+        
+        if(TimeEncoding.ENCODING == TimeEncoding.INTEGER) {
+            ArithExpr numOfPackets = TimeEncoding.mkCount(ctx, this.numOfPacketsSentInFragment);
+            ArithExpr deviation = ctx.mkSub(
+                ctx.mkMul(numOfPackets, latency), 
+                this.getSumOfLatencyZ3(dev, solver, ctx, this.numOfPacketsSentInFragment - 1)
+            );
+            ArithExpr distance = (ArithExpr) ctx.mkITE(
+                ctx.mkGe(deviation, TimeEncoding.mkTime(ctx, 0)), 
+                deviation, 
+                ctx.mkUnaryMinus(deviation)
+            );
+            
+            solver.add(ctx.mkGe(ctx.mkMul(numOfPackets, jitter), distance));
+            solver.add(ctx.mkLt(ctx.mkMul(numOfPackets, jitter), ctx.mkAdd(distance, numOfPackets)));
+            
+            return jitter;
+        }
         
-        TSNSwitch firstSwitchInPath = ((TSNSwitch) nodes.get(1).getNode()); // 1 since the first node is the publisher
-        FlowFragment firstFragmentInList = nodes.get(1).getFlowFragments().get(0); 
-        
-        // RealExpr avgLatency = (RealExpr) ctx.mkDiv(getSumOfLatencyZ3(solver, dev, ctx, index), ctx.mkInt(Network.PACKETUPPERBOUNDRANGE - 1));
-        RealExpr avgLatency = this.getAvgLatency(dev, solver, ctx);
-        RealExpr latency = (RealExpr) ctx.mkSub(
-                                            lastSwitchInPath
-                                            .getPortOf(lastFragmentInList.getNextHop())
-                                            .scheduledTime(ctx, index, lastFragmentInList),
-                                            firstSwitchInPath.getPortOf(firstFragmentInList.getNextHop())
-                                            .departureTime(ctx, index, firstFragmentInList)
-                                      );
+        // ArithExpr avgLatency = (ArithExpr) ctx.mkDiv(getSumOfLatencyZ3(solver, dev, ctx, index), ctx.mkInt(Network.PACKETUPPERBOUNDRANGE - 1));
+        ArithExpr avgLatency = this.getAvgLatency(dev, solver, ctx);
         
         solver.add(ctx.mkEq(jitter, 
                 ctx.mkITE(
@@ -1185,12 +1268,12 @@ public class Flow implements Serializable {
      * @param index     Number of packet sent (as index)
      * @return          Z3 variable containing the sum of all jitter
      */
-    public RealExpr getSumOfJitterZ3(Solver solver, Context ctx, int index) {
+    public ArithExpr getSumOfJitterZ3(Solver solver, Context ctx, int index) {
         if(index == 0) {
             return getJitterZ3(solver, ctx, 0);
         }
         
-        return (RealExpr) ctx.mkAdd(getJitterZ3(solver, ctx, index), getSumOfJitterZ3(solver, ctx, index - 1));
+        return (ArithExpr) ctx.mkAdd(getJitterZ3(solver, ctx, index), getSumOfJitterZ3(solver, ctx, index - 1));
     }
     
     /**
@@ -1205,12 +1288,12 @@ public class Flow implements Serializable {
      * @param index     Number of packet sent (as index)
      * @return          Z3 variable containing the sum of all jitter
      */
-    public RealExpr getSumOfJitterZ3(Device dev, Solver solver, Context ctx, int index) {
+    public ArithExpr getSumOfJitterZ3(Device dev, Solver solver, Context ctx, int index) {
         if(index == 0) {
-            return (RealExpr) getJitterZ3(dev, solver, ctx, 0);
+            return (ArithExpr) getJitterZ3(dev, solver, ctx, 0);
         }
         
-        return (RealExpr) ctx.mkAdd(getJitterZ3(dev, solver, ctx, index), getSumOfJitterZ3(dev, solver, ctx, index - 1));
+        return (ArithExpr) ctx.mkAdd(getJitterZ3(dev, solver, ctx, index), getSumOfJitterZ3(dev, solver, ctx, index - 1));
     }
     
     /**
@@ -1223,13 +1306,13 @@ public class Flow implements Serializable {
      * @param index     Number of packet sent (as index)
      * @return          Z3 variable containing the sum of all jitter of the flow
      */
-    public RealExpr getSumOfAllDevJitterZ3(Solver solver, Context ctx, int index) {
-        RealExpr sumValue = ctx.mkReal(0);
+    public ArithExpr getSumOfAllDevJitterZ3(Solver solver, Context ctx, int index) {
+        ArithExpr sumValue = TimeEncoding.mkTime(ctx, 0);
         Device currentDev = null;
         
         for(PathNode node : this.pathTree.getLeaves()) {
             currentDev = (Device) node.getNode();
-            sumValue = (RealExpr) ctx.mkAdd(this.getSumOfJitterZ3(currentDev, solver, ctx, index), sumValue);   
+            sumValue = (ArithExpr) ctx.mkAdd(this.getSumOfJitterZ3(currentDev, solver, ctx, index), sumValue);   
         }
         
         return sumValue;
@@ -1372,7 +1455,7 @@ public class Flow implements Serializable {
 		return this.startDevice.getPacketSize();
 	}
 
-	public RealExpr getPacketSizeZ3() {
+	public ArithExpr getPacketSizeZ3() {
 		return this.startDevice.getPacketSizeZ3();
 	}
 }
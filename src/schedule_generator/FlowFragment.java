@@ -18,9 +18,9 @@ import com.microsoft.z3.*;
 public class FlowFragment extends Flow {
 	private static final long serialVersionUID = 1L;
 	private Flow parent;
-    private transient RealExpr packetSize;
-    private transient RealExpr packetPeriodicityZ3;
-    private transient ArrayList<RealExpr> departureTimeZ3 = new ArrayList<RealExpr>();
+    private transient ArithExpr packetSize;
+    private transient ArithExpr packetPeriodicityZ3;
+    private transient ArrayList<ArithExpr> departureTimeZ3 = new ArrayList<ArithExpr>();
     private transient IntExpr fragmentPriorityZ3;
 
     private int fragmentPriority;
@@ -48,7 +48,9 @@ public class FlowFragment extends Flow {
          * making instanceCounter++, even though it counts only the number
          * of flows.
          */
-        Flow.instanceCounter--; 
+        synchronized(Flow.class) {
+            Flow.instanceCounter--; 
+        }
         
         /*
          * Since the pathing methods for unicast and publish subscribe flows
@@ -75,36 +77,36 @@ public class FlowFragment extends Flow {
         return this.name;
     }
     
-    public RealExpr getDepartureTimeZ3(int index) {
+    public ArithExpr getDepartureTimeZ3(int index) {
         return departureTimeZ3.get(index);
     }
     
-    public void setDepartureTimeZ3(RealExpr dTimeZ3, int index) {
+    public void setDepartureTimeZ3(ArithExpr dTimeZ3, int index) {
         this.departureTimeZ3.set(index, dTimeZ3);
     }
     
-    public void addDepartureTimeZ3(RealExpr dTimeZ3) {
+    public void addDepartureTimeZ3(ArithExpr dTimeZ3) {
         this.departureTimeZ3.add(dTimeZ3);
     }
     
     public void createNewDepartureTimeZ3List() {
-    	this.departureTimeZ3 = new ArrayList<RealExpr>();
+    	this.departureTimeZ3 = new ArrayList<ArithExpr>();
     }
     
-    public RealExpr getPacketPeriodicityZ3() {
+    public ArithExpr getPacketPeriodicityZ3() {
         return packetPeriodicityZ3;
     }
     
-    public void setPacketPeriodicityZ3(RealExpr packetPeriodicity) {
+    public void setPacketPeriodicityZ3(ArithExpr packetPeriodicity) {
         this.packetPeriodicityZ3 = packetPeriodicity;
     }
     
     
-    public RealExpr getPacketSizeZ3() {
+    public ArithExpr getPacketSizeZ3() {
         return this.packetSize;
     }
 
-    public void setPacketSizeZ3(RealExpr packetSize) {
+    public void setPacketSizeZ3(ArithExpr packetSize) {
         this.packetSize = packetSize;
     }
     
@@ -0,0 +1,192 @@
+package schedule_generator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * [Class]: GclBinaryExporter
+ * [Usage]: Writes the gate control lists of a scheduled network to a
+ * single little-endian binary file ("schedule.gcl" by default), which
+ * can be loaded without parsing with a GclBinaryReader. The entries are
+ * the same ones the XMLExporter writes to the files of the switches.
+ *
+ * The file is made of a header, a switch table, a port table, the GCL
+ * entries and the names of the switches:
+ *
+ *  - Header (24 bytes): magic "TGCL", version (short), size of the
+ *    header (short), number of switches, ports and entries, and the
+ *    length of the names, as ints.
+ *  - Switch (16 bytes): first port, number of ports, offset and length
+ *    of the UTF-8 name, as ints.
+ *  - Port (16 bytes): port number (int), cycle duration (float), first
+ *    entry and number of entries (ints).
+ *  - Entry (12 bytes): duration (long, the time period of the XML),
+ *    gate mask (unsigned byte), flags (byte, GUARD_BAND_FLAG) and 2
+ *    reserved bytes.
+ *
+ * Ports and entries are stored in the order of the switches, so the index
+ * of an entry is the id the XMLExporter gives to it.
+ */
+public class GclBinaryExporter {
+
+    public static final int MAGIC = 0x4C434754; // "TGCL" in little-endian
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final int SWITCH_RECORD_SIZE = 16;
+    public static final int PORT_RECORD_SIZE = 16;
+    public static final int ENTRY_RECORD_SIZE = 12;
+    public static final byte GUARD_BAND_FLAG = 1;
+
+    private static final int MAX_UINT8 = 0xFF;
+
+    private String path = "schedule.gcl";
+
+
+    /**
+     * [Method]: GclBinaryExporter
+     * [Usage]: Default constructor of this class. Writes the
+     * gate control lists to "schedule.gcl".
+     */
+    public GclBinaryExporter() {
+
+    }
+
+
+    /**
+     * [Method]: GclBinaryExporter
+     * [Usage]: Overloaded constructor of this class.
+     *
+     * @param path      Path of the binary file
+     */
+    public GclBinaryExporter(String path) {
+        this.path = path;
+    }
+
+
+    /**
+     * [Method]: write
+     * [Usage]: Computes the gate control lists of every TSN switch of a
+     * scheduled network and writes them to the binary file at once.
+     *
+     * @param net       Network with the schedule stored
+     */
+    public void write(Network net) {
+        ArrayList<List<XMLExporter.PortGcl>> switchGcls = new ArrayList<List<XMLExporter.PortGcl>>();
+        ArrayList<byte[]> names = new ArrayList<byte[]>();
+        int numOfPorts = 0;
+        int numOfEntries = 0;
+        int namesLength = 0;
+
+        for(Switch swt : net.getSwitches()) {
+            if(!(swt instanceof TSNSwitch)) {
+                continue;
+            }
+
+            List<XMLExporter.PortGcl> portGcls = XMLExporter.createGCLs((TSNSwitch) swt);
+            byte[] name = swt.getName().getBytes(StandardCharsets.UTF_8);
+
+            switchGcls.add(portGcls);
+            names.add(name);
+            numOfPorts += portGcls.size();
+            namesLength += name.length;
+
+            for(XMLExporter.PortGcl portGcl : portGcls) {
+                numOfEntries += portGcl.getEntries().size();
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(
+            HEADER_SIZE +
+            switchGcls.size() * SWITCH_RECORD_SIZE +
+            numOfPorts * PORT_RECORD_SIZE +
+            numOfEntries * ENTRY_RECORD_SIZE +
+            namesLength
+        ).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) HEADER_SIZE);
+        buffer.putInt(switchGcls.size());
+        buffer.putInt(numOfPorts);
+        buffer.putInt(numOfEntries);
+        buffer.putInt(namesLength);
+
+        // Switch table
+        int firstPort = 0;
+        int nameOffset = 0;
+        for(int i = 0; i < switchGcls.size(); i++) {
+            buffer.putInt(firstPort);
+            buffer.putInt(switchGcls.get(i).size());
+            buffer.putInt(nameOffset);
+            buffer.putInt(names.get(i).length);
+            firstPort += switchGcls.get(i).size();
+            nameOffset += names.get(i).length;
+        }
+
+        // Port table
+        int firstEntry = 0;
+        for(List<XMLExporter.PortGcl> portGcls : switchGcls) {
+            for(XMLExporter.PortGcl portGcl : portGcls) {
+                buffer.putInt(portGcl.getPortNum());
+                buffer.putFloat(portGcl.getCycleDuration());
+                buffer.putInt(firstEntry);
+                buffer.putInt(portGcl.getEntries().size());
+                firstEntry += portGcl.getEntries().size();
+            }
+        }
+
+        // GCL entries
+        for(List<XMLExporter.PortGcl> portGcls : switchGcls) {
+            for(XMLExporter.PortGcl portGcl : portGcls) {
+                for(XMLExporter.GclEntry entry : portGcl.getEntries()) {
+                    if(entry.getGateState() < 0 || entry.getGateState() > MAX_UINT8) {
+                        throw new NumberFormatException("Gate mask too large.");
+                    }
+
+                    buffer.putLong(entry.getTimePeriod());
+                    buffer.put((byte) entry.getGateState());
+                    buffer.put(entry.isGuardBand() ? GUARD_BAND_FLAG : 0);
+                    buffer.putShort((short) 0);
+                }
+            }
+        }
+
+        // Names of the switches
+        for(byte[] name : names) {
+            buffer.put(name);
+        }
+
+        buffer.flip();
+
+        try (FileChannel channel = new FileOutputStream(this.path).getChannel()) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            System.out.println("Binary GCL written to " + this.path + " (" + switchGcls.size() + " switches, " +
+                numOfPorts + " ports, " + numOfEntries + " entries).");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+}
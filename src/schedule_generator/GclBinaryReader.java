@@ -0,0 +1,179 @@
+package schedule_generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * [Class]: GclBinaryReader
+ * [Usage]: Reads the gate control lists written by a GclBinaryExporter.
+ * The file is memory-mapped and the records are read in place by their
+ * indexes, so iterating over the entries allocates nothing:
+ *
+ *  for(int s = 0; s < reader.getNumOfSwitches(); s++) {
+ *      for(int p = reader.getFirstPort(s); p < reader.getFirstPort(s) + reader.getNumOfPorts(s); p++) {
+ *          for(int e = reader.getFirstEntry(p); e < reader.getFirstEntry(p) + reader.getNumOfEntries(p); e++) {
+ *              reader.getDuration(e); reader.getGateMask(e); reader.isGuardBand(e);
+ *          }
+ *      }
+ *  }
+ *
+ * Only the names of the switches are decoded into new strings.
+ */
+public class GclBinaryReader implements Closeable {
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    private int numOfSwitches;
+    private int numOfPorts;
+    private int numOfEntries;
+    private int switchTable;
+    private int portTable;
+    private int entryTable;
+    private int nameTable;
+
+
+    /**
+     * [Method]: GclBinaryReader
+     * [Usage]: Maps a binary GCL file and checks its header.
+     *
+     * @param path      Path of the binary file
+     * @throws IOException  If the file cannot be read, is not a binary
+     *                      GCL file or was written by a newer version
+     */
+    public GclBinaryReader(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+
+        this.channel = file.getChannel();
+
+        try {
+            long size = this.channel.size();
+
+            if(size < GclBinaryExporter.HEADER_SIZE) {
+                throw new IOException("Not a binary GCL file: " + path);
+            }
+
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(this.buffer.getInt(0) != GclBinaryExporter.MAGIC) {
+                throw new IOException("Not a binary GCL file: " + path);
+            }
+            if(this.buffer.getShort(4) > GclBinaryExporter.VERSION) {
+                throw new IOException("Unsupported binary GCL version " + this.buffer.getShort(4) + ": " + path);
+            }
+
+            this.numOfSwitches = this.buffer.getInt(8);
+            this.numOfPorts = this.buffer.getInt(12);
+            this.numOfEntries = this.buffer.getInt(16);
+
+            // Later versions may extend the header, so its size is read from the file
+            this.switchTable = this.buffer.getShort(6);
+            this.portTable = this.switchTable + this.numOfSwitches * GclBinaryExporter.SWITCH_RECORD_SIZE;
+            this.entryTable = this.portTable + this.numOfPorts * GclBinaryExporter.PORT_RECORD_SIZE;
+            this.nameTable = this.entryTable + this.numOfEntries * GclBinaryExporter.ENTRY_RECORD_SIZE;
+
+            if(this.nameTable + (long) this.buffer.getInt(20) > size) {
+                throw new IOException("Truncated binary GCL file: " + path);
+            }
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * [Method]: getSwitchName
+     * [Usage]: Decodes the name of a switch.
+     *
+     * @param swt       Index of the switch
+     * @return          Name of the switch
+     */
+    public String getSwitchName(int swt) {
+        int record = this.switchTable + swt * GclBinaryExporter.SWITCH_RECORD_SIZE;
+        byte[] name = new byte[this.buffer.getInt(record + 12)];
+        int offset = this.nameTable + this.buffer.getInt(record + 8);
+
+        for(int i = 0; i < name.length; i++) {
+            name[i] = this.buffer.get(offset + i);
+        }
+
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+
+    /*
+     * RECORDS (read in place, by the index of the switch, port or entry)
+     */
+
+    public int getFirstPort(int swt) {
+        return this.buffer.getInt(this.switchTable + swt * GclBinaryExporter.SWITCH_RECORD_SIZE);
+    }
+
+    public int getNumOfPorts(int swt) {
+        return this.buffer.getInt(this.switchTable + swt * GclBinaryExporter.SWITCH_RECORD_SIZE + 4);
+    }
+
+    public int getPortNum(int port) {
+        return this.buffer.getInt(this.portTable + port * GclBinaryExporter.PORT_RECORD_SIZE);
+    }
+
+    public float getCycleDuration(int port) {
+        return this.buffer.getFloat(this.portTable + port * GclBinaryExporter.PORT_RECORD_SIZE + 4);
+    }
+
+    public int getFirstEntry(int port) {
+        return this.buffer.getInt(this.portTable + port * GclBinaryExporter.PORT_RECORD_SIZE + 8);
+    }
+
+    public int getNumOfEntries(int port) {
+        return this.buffer.getInt(this.portTable + port * GclBinaryExporter.PORT_RECORD_SIZE + 12);
+    }
+
+    public long getDuration(int entry) {
+        return this.buffer.getLong(this.entryTable + entry * GclBinaryExporter.ENTRY_RECORD_SIZE);
+    }
+
+    public int getGateMask(int entry) {
+        return this.buffer.get(this.entryTable + entry * GclBinaryExporter.ENTRY_RECORD_SIZE + 8) & 0xFF;
+    }
+
+    public boolean isGuardBand(int entry) {
+        return (this.buffer.get(this.entryTable + entry * GclBinaryExporter.ENTRY_RECORD_SIZE + 9) &
+            GclBinaryExporter.GUARD_BAND_FLAG) != 0;
+    }
+
+
+    /**
+     * [Method]: close
+     * [Usage]: Closes the file. The mapping itself can only be
+     * released by the garbage collector, once the reader is dropped.
+     */
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getNumOfSwitches() {
+        return numOfSwitches;
+    }
+
+    public int getNumOfPorts() {
+        return numOfPorts;
+    }
+
+    public int getNumOfEntries() {
+        return numOfEntries;
+    }
+
+}
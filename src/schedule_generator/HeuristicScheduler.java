@@ -0,0 +1,598 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: HeuristicScheduler
+ * [Usage]: Greedy earliest-fit scheduler written in plain Java. The
+ * flows are taken in order of hard constraint (tightest first) and
+ * their path trees are walked hop by hop. On each port, a fragment
+ * gets a priority of its own and the earliest time slot of the cycle
+ * that is still free and covers the arrival of all of its packets.
+ * When the port runs out of priorities, the fragment shares the slot
+ * of a priority already in use, as long as its packets do not overlap
+ * with the packets already transmitted in that slot.
+ *
+ * The packet times follow the same rules given to z3: a packet that
+ * arrives before its slot is transmitted at the start of the slot,
+ * and a packet that arrives during its slot is transmitted right
+ * away. Hard constraints and jitter are checked after each flow.
+ *
+ * The result can be stored in the flows and cycles like harvestSchedule
+ * does, so the log and the XMLExporter work as usual, or given to the
+ * solver as a hint (see ScheduleGenerator.setHeuristicScheduler).
+ *
+ * A z3 context is still used by generateSchedule to build the flow
+ * fragments, since they are created along with their z3 variables,
+ * but no solver is ever checked.
+ */
+public class HeuristicScheduler {
+
+    private IdentityHashMap<FlowFragment, Port> fragmentPorts = new IdentityHashMap<FlowFragment, Port>();
+    private IdentityHashMap<FlowFragment, Integer> priorities = new IdentityHashMap<FlowFragment, Integer>();
+    private IdentityHashMap<FlowFragment, float[]> departureTimes = new IdentityHashMap<FlowFragment, float[]>();
+    private IdentityHashMap<FlowFragment, float[]> scheduledTimes = new IdentityHashMap<FlowFragment, float[]>();
+
+    // Slot of each priority on each port (start and end inside the cycle, -1 if not used)
+    private IdentityHashMap<Port, float[]> slotStarts = new IdentityHashMap<Port, float[]>();
+    private IdentityHashMap<Port, float[]> slotEnds = new IdentityHashMap<Port, float[]>();
+
+    // Transmissions ([start, end]) of the packets of each priority on each port
+    private IdentityHashMap<Port, ArrayList<ArrayList<float[]>>> transmissions = new IdentityHashMap<Port, ArrayList<ArrayList<float[]>>>();
+
+    private float jitterUpperBoundRange;
+    private String failure = null;
+    private ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+
+
+    /**
+     * [Method]: generateSchedule
+     * [Usage]: Schedules the network using only the heuristic. If a
+     * schedule is found, its values are stored in the flows and cycles,
+     * and the log and XML files are written as done by the schedule
+     * generator (the log through the writer of setScheduleLogWriter).
+     *
+     * @param net       Network to be scheduled
+     * @return          True if a schedule was found
+     */
+    public boolean generateSchedule(Network net) {
+        this.scheduleGenerator.checkNetwork(net);
+
+        Context ctx = this.scheduleGenerator.createContext();
+        Solver solver = ctx.mkSolver(); // Receives the cycle durations, but is never checked
+
+        for(Switch swt : net.getSwitches()) {
+            ((TSNSwitch) swt).setUpCycleSize(solver, ctx);
+        }
+
+        for(Flow flw : net.getFlows()) {
+            flw.toZ3(ctx);
+        }
+
+        boolean scheduled = this.computeSchedule(net);
+
+        if(scheduled) {
+            System.out.println("Heuristic schedule generated.");
+            this.storeSchedule(net);
+            if(this.scheduleGenerator.getScheduleLogWriter() != null) {
+                this.scheduleGenerator.getScheduleLogWriter().write(net);
+            }
+        } else {
+            System.out.println("The heuristic scheduler could not schedule the network: " + this.failure);
+        }
+
+        this.scheduleGenerator.closeContext(ctx);
+
+        if(scheduled) {
+            this.scheduleGenerator.exportSchedule(net);
+        }
+
+        return scheduled;
+    }
+
+
+    /**
+     * [Method]: computeSchedule
+     * [Usage]: Computes the schedule of a network whose flow fragments
+     * were already created (flw.toZ3 called after the cycle sizes were
+     * set up). Values are kept in this object until storeSchedule or
+     * pinSchedule is called.
+     *
+     * @param net       Network to be scheduled
+     * @return          True if every flow could be scheduled
+     */
+    public boolean computeSchedule(Network net) {
+        ArrayList<Flow> flows = new ArrayList<Flow>(net.getFlows());
+
+        this.fragmentPorts.clear();
+        this.priorities.clear();
+        this.departureTimes.clear();
+        this.scheduledTimes.clear();
+        this.slotStarts.clear();
+        this.slotEnds.clear();
+        this.transmissions.clear();
+        this.failure = null;
+
+        // Same default used by ScheduleGenerator.configureNetwork
+        this.jitterUpperBoundRange = net.getJitterUpperBoundRange() != -1 ? net.getJitterUpperBoundRange() : 25;
+
+        Collections.sort(flows, new Comparator<Flow>() {
+            public int compare(Flow a, Flow b) {
+                return Float.compare(
+                    a.getStartDevice().getHardConstraintTime(),
+                    b.getStartDevice().getHardConstraintTime()
+                );
+            }
+        });
+
+        for(Flow flw : flows) {
+            flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
+
+            if(!this.scheduleNode(flw, flw.getPathTree().getRoot()) || !this.checkFlow(flw)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: scheduleNode
+     * [Usage]: Recursively schedules the fragments of the children of
+     * a node of the path tree of a flow.
+     *
+     * @param flw       Flow being scheduled
+     * @param node      Current node of the path tree (should start with root)
+     * @return          True if every fragment under the node was scheduled
+     */
+    private boolean scheduleNode(Flow flw, PathNode node) {
+
+        for(PathNode child : node.getChildren()) {
+            if(child.getNode() instanceof Device) {
+                continue;
+            }
+
+            for(FlowFragment frag : child.getFlowFragments()) {
+                Port port = ((TSNSwitch) child.getNode()).getPortOf(frag.getNextHop());
+                float[] departures = new float[frag.getNumOfPacketsSent()];
+
+                if(node.getParent() == null) { // First fragment, departures are given by the start device
+                    for(int i = 0; i < departures.length; i++) {
+                        departures[i] = flw.getStartDevice().getPacketPeriodicity() * i;
+                    }
+                } else {
+                    FlowFragment parentFrag = node.getFlowFragments().get(node.getChildren().indexOf(child));
+
+                    for(int i = 0; i < departures.length; i++) {
+                        departures[i] = this.getScheduledTime(parentFrag, i);
+                    }
+                }
+
+                if(!this.placeFragment(port, frag, departures)) {
+                    return false;
+                }
+            }
+
+            if(!this.scheduleNode(flw, child)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: placeFragment
+     * [Usage]: Picks the priority and slot of a fragment on a port and
+     * computes the scheduled times of its packets.
+     *
+     * @param port          Port the fragment goes through
+     * @param frag          Fragment to be placed
+     * @param departures    Departure times of the packets of the fragment
+     * @return              True if the fragment could be placed
+     */
+    private boolean placeFragment(Port port, FlowFragment frag, float[] departures) {
+        Cycle cycle = port.getCycle();
+        float cycleSize = this.getCycleSize(port);
+        float transmissionTime = frag.getStartDevice().getPacketSize() / port.getPortSpeed();
+        int numOfPackets = departures.length;
+        int[] cycleNums = new int[numOfPackets];
+        float[] offsets = new float[numOfPackets];
+        float minOffset = Float.MAX_VALUE;
+        float maxOffset = 0;
+
+        if(!this.slotStarts.containsKey(port)) {
+            float[] starts = new float[cycle.getNumOfPrts()];
+            float[] ends = new float[cycle.getNumOfPrts()];
+            ArrayList<ArrayList<float[]>> portTransmissions = new ArrayList<ArrayList<float[]>>();
+
+            for(int prt = 0; prt < cycle.getNumOfPrts(); prt++) {
+                starts[prt] = -1;
+                ends[prt] = -1;
+                portTransmissions.add(new ArrayList<float[]>());
+            }
+
+            this.slotStarts.put(port, starts);
+            this.slotEnds.put(port, ends);
+            this.transmissions.put(port, portTransmissions);
+        }
+
+        float[] starts = this.slotStarts.get(port);
+        float[] ends = this.slotEnds.get(port);
+
+        // Cycle of arrival and offset of the arrival inside that cycle (cycles start at 0)
+        for(int i = 0; i < numOfPackets; i++) {
+            float arrival = departures[i] + port.getTimeToTravel();
+
+            cycleNums[i] = (int) Math.floor(arrival / cycleSize);
+            offsets[i] = arrival - cycleNums[i] * cycleSize;
+            minOffset = Math.min(minOffset, offsets[i]);
+            maxOffset = Math.max(maxOffset, offsets[i]);
+        }
+
+        if(maxOffset + transmissionTime > cycleSize) {
+            this.failure = frag.getName() + " arrives too late in the cycle of port " + port.getName();
+            return false;
+        }
+
+        int chosenPrt = -1;
+        float chosenStart = -1;
+        float chosenEnd = -1;
+
+        // First try a priority of its own, on the earliest free slot
+        int freePrt = -1;
+        for(int prt = 0; prt < starts.length && freePrt == -1; prt++) {
+            if(starts[prt] == -1) {
+                freePrt = prt;
+            }
+        }
+
+        if(freePrt != -1) {
+            ArrayList<Float> candidates = new ArrayList<Float>();
+            candidates.add(minOffset);
+
+            for(int prt = 0; prt < ends.length; prt++) {
+                if(ends[prt] >= minOffset) {
+                    candidates.add(ends[prt]);
+                }
+            }
+            Collections.sort(candidates);
+
+            for(float start : candidates) {
+                float end = Math.max(maxOffset, start) + transmissionTime;
+
+                if(this.fitsInCycle(port, start, end, -1)) {
+                    chosenPrt = freePrt;
+                    chosenStart = start;
+                    chosenEnd = end;
+                    break;
+                }
+            }
+        }
+
+        // Otherwise share the slot of a priority in use, extending its end if needed
+        for(int prt = 0; prt < starts.length && chosenPrt == -1; prt++) {
+            if(starts[prt] == -1) {
+                continue;
+            }
+
+            float end = Math.max(ends[prt], Math.max(maxOffset, starts[prt]) + transmissionTime);
+
+            if(this.fitsInCycle(port, starts[prt], end, prt) &&
+               !this.overlapsTransmissions(port, prt, cycleNums, offsets, starts[prt], transmissionTime)) {
+                chosenPrt = prt;
+                chosenStart = starts[prt];
+                chosenEnd = end;
+            }
+        }
+
+        if(chosenPrt == -1) {
+            this.failure = "no slot left for " + frag.getName() + " on port " + port.getName();
+            return false;
+        }
+
+        starts[chosenPrt] = chosenStart;
+        ends[chosenPrt] = chosenEnd;
+
+        float[] scheduled = new float[numOfPackets];
+        for(int i = 0; i < numOfPackets; i++) {
+            scheduled[i] = cycleNums[i] * cycleSize + Math.max(offsets[i], chosenStart) + transmissionTime;
+            this.transmissions.get(port).get(chosenPrt).add(new float[] {scheduled[i] - transmissionTime, scheduled[i]});
+        }
+
+        this.fragmentPorts.put(frag, port);
+        this.priorities.put(frag, chosenPrt);
+        this.departureTimes.put(frag, departures);
+        this.scheduledTimes.put(frag, scheduled);
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: fitsInCycle
+     * [Usage]: Checks if a slot fits in the cycle of a port without
+     * overlapping the slots of other priorities.
+     *
+     * @param port          Port of the slot
+     * @param start         Start of the slot inside the cycle
+     * @param end           End of the slot inside the cycle
+     * @param ownPrt        Priority of the slot (ignored in the overlap check), -1 if none
+     * @return              True if the slot fits
+     */
+    private boolean fitsInCycle(Port port, float start, float end, int ownPrt) {
+        float[] starts = this.slotStarts.get(port);
+        float[] ends = this.slotEnds.get(port);
+        float cycleSize = this.getCycleSize(port);
+
+        // With more than one slot per priority, the extra empty slots are placed after the end
+        if(end > cycleSize || (port.getCycle().getNumOfSlots() > 1 && end >= cycleSize)) {
+            return false;
+        }
+
+        if(end - start > port.getCycle().getMaximumSlotDuration()) {
+            return false;
+        }
+
+        for(int prt = 0; prt < starts.length; prt++) {
+            if(prt != ownPrt && starts[prt] != -1 && start < ends[prt] && starts[prt] < end) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: overlapsTransmissions
+     * [Usage]: Checks if the packets of a fragment would be transmitted
+     * at the same time as packets already placed on a priority.
+     *
+     * @param port              Port of the priority
+     * @param prt               Priority shared
+     * @param cycleNums         Cycle of arrival of each packet
+     * @param offsets           Offset of the arrival of each packet inside its cycle
+     * @param slotStart         Start of the slot of the priority
+     * @param transmissionTime  Transmission time of the packets
+     * @return                  True if any transmission overlaps
+     */
+    private boolean overlapsTransmissions(Port port, int prt, int[] cycleNums, float[] offsets, float slotStart, float transmissionTime) {
+        float cycleSize = this.getCycleSize(port);
+
+        for(int i = 0; i < offsets.length; i++) {
+            float end = cycleNums[i] * cycleSize + Math.max(offsets[i], slotStart) + transmissionTime;
+            float start = end - transmissionTime;
+
+            for(float[] transmission : this.transmissions.get(port).get(prt)) {
+                if(start < transmission[1] && transmission[0] < end) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * [Method]: checkFlow
+     * [Usage]: Checks the hard constraint and the maximum jitter of a
+     * flow whose fragments were all placed.
+     *
+     * @param flw       Flow to be checked
+     * @return          True if the flow respects its constraints
+     */
+    private boolean checkFlow(Flow flw) {
+
+        for(PathNode leaf : flw.getPathTree().getLeaves()) {
+            ArrayList<FlowFragment> frags = flw.getFlowFromRootToNode((Device) leaf.getNode());
+            FlowFragment firstFrag = frags.get(0);
+            FlowFragment lastFrag = frags.get(frags.size() - 1);
+            float[] latencies = new float[flw.getNumOfPacketsSent()];
+            float avgLatency = 0;
+
+            for(int i = 0; i < latencies.length; i++) {
+                latencies[i] = this.getScheduledTime(lastFrag, i) - this.getDepartureTime(firstFrag, i);
+                avgLatency += latencies[i];
+
+                if(latencies[i] > flw.getStartDevice().getHardConstraintTime()) {
+                    this.failure = "hard constraint of " + flw.getName() + " exceeded";
+                    return false;
+                }
+            }
+            avgLatency = avgLatency / latencies.length;
+
+            for(int i = 0; i < latencies.length; i++) {
+                if(Math.abs(latencies[i] - avgLatency) > this.jitterUpperBoundRange) {
+                    this.failure = "maximum jitter of " + flw.getName() + " exceeded";
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: storeSchedule
+     * [Usage]: Stores the computed schedule in the flow fragments and
+     * cycles of the network, filling the same values filled by
+     * ScheduleGenerator.harvestSchedule.
+     *
+     * @param net       Network that was scheduled
+     */
+    public void storeSchedule(Network net) {
+
+        for(Switch swt : net.getSwitches()) {
+            for(Port port : ((TSNSwitch) swt).getPorts()) {
+                Cycle cycle = port.getCycle();
+
+                cycle.setCycleStart(0);
+
+                if(!this.slotStarts.containsKey(port)) {
+                    cycle.setCycleDuration(0);
+                    continue;
+                }
+
+                float cycleSize = this.getCycleSize(port);
+                float[] starts = this.slotStarts.get(port);
+                float[] ends = this.slotEnds.get(port);
+
+                cycle.setCycleDuration(cycleSize);
+
+                for(int prt = 0; prt < starts.length; prt++) {
+                    if(starts[prt] == -1) {
+                        continue;
+                    }
+
+                    ArrayList<Float> listOfStart = new ArrayList<Float>();
+                    ArrayList<Float> listOfDuration = new ArrayList<Float>();
+                    float gap = (cycleSize - ends[prt]) / cycle.getNumOfSlots();
+
+                    listOfStart.add(starts[prt]);
+                    listOfDuration.add(ends[prt] - starts[prt]);
+                    for(int index = 1; index < cycle.getNumOfSlots(); index++) {
+                        listOfStart.add(ends[prt] + index * gap);
+                        listOfDuration.add(0f);
+                    }
+
+                    cycle.addSlotUsed(prt, listOfStart, listOfDuration);
+                }
+            }
+        }
+
+        for(FlowFragment frag : this.scheduledTimes.keySet()) {
+            int numOfPackets = frag.getParent().getNumOfPacketsSent();
+
+            frag.setFragmentPriority(this.priorities.get(frag));
+            frag.getParent().addToTotalNumOfPackets(frag.getNumOfPacketsSent());
+
+            for(int i = 0; i < numOfPackets; i++) {
+                frag.addDepartureTime(this.getDepartureTime(frag, i));
+                frag.addArrivalTime(this.getDepartureTime(frag, i) + this.fragmentPorts.get(frag).getTimeToTravel());
+                frag.addScheduledTime(this.getScheduledTime(frag, i));
+            }
+        }
+
+        // Every flow starts sending at the start of the hyper cycle
+        for(Flow flw : net.getFlows()) {
+            flw.getStartDevice().setFirstT1Time(0);
+        }
+    }
+
+
+    /**
+     * [Method]: pinSchedule
+     * [Usage]: Gives the computed schedule to a solver as a hint. The
+     * priorities of the fragments and the first sending time of the
+     * devices are asserted under a new literal, which must be given to
+     * solver.check as an assumption. If the solver rejects the hint,
+     * checking without the literal drops it. Packet times are left to
+     * the solver, since the float values of the heuristic do not match
+     * the exact rational values of z3.
+     *
+     * @param net       Network whose schedule was computed
+     * @param solver    Solver with the constraints of the network
+     * @param ctx       Context of the solver
+     * @return          Literal guarding the hint
+     */
+    public BoolExpr pinSchedule(Network net, Solver solver, Context ctx) {
+        BoolExpr hint = ctx.mkBoolConst("heuristicScheduleHint");
+
+        for(Flow flw : net.getFlows()) {
+            solver.add(ctx.mkImplies(hint, ctx.mkEq(flw.getStartDevice().getFirstT1TimeZ3(), TimeEncoding.mkTime(ctx, 0))));
+        }
+
+        for(FlowFragment frag : this.priorities.keySet()) {
+            solver.add(ctx.mkImplies(hint, ctx.mkEq(frag.getFragmentPriorityZ3(), ctx.mkInt(this.priorities.get(frag)))));
+        }
+
+        return hint;
+    }
+
+
+    /**
+     * [Method]: getDepartureTime
+     * [Usage]: Departure time of a packet of a placed fragment. Packets
+     * past the ones computed repeat them on the following cycles, as
+     * done by Port.departureTime.
+     *
+     * @param frag      Placed fragment
+     * @param index     Index of the packet
+     * @return          Departure time of the packet
+     */
+    private float getDepartureTime(FlowFragment frag, int index) {
+        float[] departures = this.departureTimes.get(frag);
+
+        return departures[index % departures.length] +
+               (index / departures.length) * this.getCycleSize(this.fragmentPorts.get(frag));
+    }
+
+
+    /**
+     * [Method]: getScheduledTime
+     * [Usage]: Scheduled time of a packet of a placed fragment. Packets
+     * past the ones computed repeat them on the following cycles, as
+     * done by Port.scheduledTime.
+     *
+     * @param frag      Placed fragment
+     * @param index     Index of the packet
+     * @return          Scheduled time of the packet
+     */
+    private float getScheduledTime(FlowFragment frag, int index) {
+        float[] scheduled = this.scheduledTimes.get(frag);
+
+        return scheduled[index % scheduled.length] +
+               (index / scheduled.length) * this.getCycleSize(this.fragmentPorts.get(frag));
+    }
+
+
+    /**
+     * [Method]: getCycleSize
+     * [Usage]: Cycle duration of a port, as set up by Port.setUpCycle
+     * (micro cycle if used, hyper cycle otherwise).
+     *
+     * @param port      Port of the cycle
+     * @return          Duration of the cycle
+     */
+    private float getCycleSize(Port port) {
+        return port.getMicroCycleSize() != -1 ? port.getMicroCycleSize() : port.getDefinedHyperCycleSize();
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public int getPriority(FlowFragment frag) {
+        return this.priorities.get(frag);
+    }
+
+    public ScheduleLogWriter getScheduleLogWriter() {
+        return this.scheduleGenerator.getScheduleLogWriter();
+    }
+
+    /**
+     * [Method]: setScheduleLogWriter
+     * [Usage]: Sets the writer of the log written by generateSchedule.
+     *
+     * @param scheduleLogWriter     Writer of the log (null to disable)
+     */
+    public void setScheduleLogWriter(ScheduleLogWriter scheduleLogWriter) {
+        this.scheduleGenerator.setScheduleLogWriter(scheduleLogWriter);
+    }
+
+}
@@ -0,0 +1,688 @@
+package schedule_generator;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: IncrementalScheduler
+ * [Usage]: Keeps a single z3 context and solver alive for a network,
+ * allowing flows to be admitted and removed one at a time instead of
+ * generating the whole schedule again through generateSchedule.
+ *
+ * The base level of the solver only holds the static properties of
+ * the switches and, for every admitted flow, the values found for its
+ * variables (first departure of the start device, priorities and
+ * scheduled times of its fragments). These values are asserted as
+ * implications of a boolean literal created for each flow, so an
+ * admitted flow stays fixed as long as its literal is given as an
+ * assumption to the solver.
+ *
+ * The scheduling rules of each port in use are also kept at the base
+ * level, as implications of a literal of the port. When a flow is given
+ * to admitFlow, a new scope is pushed. Inside it, only the rules of the
+ * ports used by the new flow are set up again, along with its hard
+ * constraint, while the other ports keep the rules given to them before
+ * through their literals. Since every other flow is fixed, the solver
+ * only searches for the values of the new flow fragments and of the
+ * cycles of the ports. The scope is popped after the check, so the
+ * rules of a rejected flow never reach the base level. If the flow is
+ * admitted, the new rules of its ports replace the previous ones under
+ * new literals. The same is done for the ports of a removed flow.
+ *
+ * Literals that are replaced or dropped are no longer assumed, but their
+ * rules stay on the solver. Once there are more of them than literals in
+ * use, the solver is reset and given only the static properties of the
+ * switches, the values of the admitted flows and the rules of the ports
+ * in use (see compact).
+ *
+ * A flow that changes the cycle size (micro cycle or hyper cycle) of a
+ * port already in use cannot be admitted incrementally, since the number
+ * of packets of the fixed fragments depends on it. In this case the
+ * status UNKNOWN is returned and the schedule must be generated again
+ * with generateSchedule.
+ */
+public class IncrementalScheduler {
+
+    private Network net;
+    private Context ctx;
+    private Solver solver;
+    private ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+    private PrintWriter out;
+
+    private BoolExpr[] switchRules;
+    private LinkedHashMap<Flow, BoolExpr> admittedFlows = new LinkedHashMap<Flow, BoolExpr>();
+    private HashMap<Flow, BoolExpr[]> flowValues = new HashMap<Flow, BoolExpr[]>();
+    private HashMap<Port, BoolExpr> portRules = new HashMap<Port, BoolExpr>();
+    private HashMap<Port, BoolExpr[]> portRuleSets = new HashMap<Port, BoolExpr[]>();
+    private int literalCounter = 0;
+    private int numOfDroppedLiterals = 0;
+    private long lastCheckTime = 0;
+
+
+    /**
+     * [Method]: IncrementalScheduler
+     * [Usage]: Creates the context and solver that will be used during
+     * the whole life of this object and converts the switches of the
+     * network to z3. The flows already in the network are not admitted
+     * until scheduleNetwork is called.
+     *
+     * @param net       Network in which the flows will be admitted
+     */
+    public IncrementalScheduler(Network net) {
+        this.net = net;
+
+        // Log of the admitted flows is discarded unless set through setLog
+        this.out = new PrintWriter(new OutputStream() {
+            @Override
+            public void write(int b) {}
+        });
+
+        // The periods of flows already given to the ports are checked before the context is created
+        TimeEncoding.checkNetwork(net);
+
+        for(Port port : this.getPorts()) {
+            port.checkCycleSize();
+        }
+
+        this.ctx = scheduleGenerator.createContext();
+        this.solver = ctx.mkSolver();
+
+        for(Switch swt : net.getSwitches()) {
+            ((TSNSwitch) swt).setUpCycleSize(solver, ctx);
+        }
+
+        for(Switch swt : net.getSwitches()) {
+            ((TSNSwitch) swt).toZ3(ctx, solver);
+        }
+
+        if(net.getJitterUpperBoundRange() != -1) {
+            net.setJitterUpperBoundRangeZ3(ctx, net.getJitterUpperBoundRange());
+        } else {
+            net.setJitterUpperBoundRangeZ3(ctx, 25);
+        }
+
+        this.switchRules = solver.getAssertions();
+    }
+
+
+    /**
+     * [Method]: scheduleNetwork
+     * [Usage]: Admits, as a single batch, the flows of the network
+     * that were not admitted yet. If the batch can not be scheduled,
+     * its flows are removed from the network.
+     *
+     * @return          Status of the admission of the batch
+     */
+    public Status scheduleNetwork() {
+        ArrayList<Flow> pendingFlows = new ArrayList<Flow>();
+
+        for(Flow flw : net.getFlows()) {
+            if(!admittedFlows.containsKey(flw)) {
+                pendingFlows.add(flw);
+            }
+        }
+
+        net.getFlows().removeAll(pendingFlows);
+
+        return this.admitFlows(pendingFlows);
+    }
+
+
+    /**
+     * [Method]: admitFlow
+     * [Usage]: Tries to schedule a single flow on top of the flows
+     * already admitted. If it succeeds, the flow is added to the network
+     * and its values are stored in its fragments.
+     *
+     * @param flw       Flow to be admitted
+     * @return          SATISFIABLE if the flow was admitted, UNSATISFIABLE or UNKNOWN if not
+     */
+    public Status admitFlow(Flow flw) {
+        ArrayList<Flow> flws = new ArrayList<Flow>();
+        flws.add(flw);
+
+        return this.admitFlows(flws);
+    }
+
+
+    /**
+     * [Method]: admitFlows
+     * [Usage]: Tries to schedule a batch of flows on top of the flows
+     * already admitted. Either all the flows of the batch are admitted
+     * or none of them is. A batch that makes the hyper cycle of a port
+     * too large is rejected as unsatisfiable.
+     *
+     * @param flws      Flows to be admitted
+     * @return          SATISFIABLE if the flows were admitted, UNSATISFIABLE or UNKNOWN if not
+     */
+    public Status admitFlows(ArrayList<Flow> flws) {
+        HashMap<Port, ArrayList<Float>> previousPeriods = new HashMap<Port, ArrayList<Float>>();
+        Status status;
+
+        if(flws.isEmpty()) {
+            return Status.SATISFIABLE;
+        }
+
+        // Periods of the ports are changed by the new flows, so they are saved for a rollback
+        for(Port port : this.getPorts()) {
+            previousPeriods.put(port, new ArrayList<Float>(port.getListOfPeriods()));
+        }
+
+        for(Flow flw : flws) {
+            flw.convertUnicastFlow();
+            flw.setUpPeriods(flw.getPathTree().getRoot());
+        }
+
+        // Hyper cycles too large and periods off the time grid are rejected before any rule is given to z3
+        try {
+            for(Flow flw : flws) {
+                TimeEncoding.checkFlow(flw);
+            }
+
+            for(Port port : this.getPorts()) {
+                port.checkCycleSize();
+            }
+        } catch (IllegalStateException e) {
+            System.out.println("Flow admission rejected: " + e.getMessage());
+            this.restorePeriods(previousPeriods);
+            return Status.UNSATISFIABLE;
+        }
+
+        for(Port port : this.getPorts()) {
+            if(port.getFlowFragments().size() > 0 && cycleSizeChanged(port)) {
+                System.out.println("Flow admission changes the cycle of port " + port.getName() + ". The schedule must be generated again.");
+                this.restorePeriods(previousPeriods);
+                return Status.UNKNOWN;
+            }
+        }
+
+        solver.push();
+
+        for(Port port : this.getPorts()) {
+            port.setUpCycleDuration(solver, ctx);
+        }
+
+        for(Flow flw : flws) {
+            flw.toZ3(ctx);
+        }
+
+        // Only the ports used by the new flows have their rules set up again
+        LinkedHashMap<Port, BoolExpr[]> newRules = new LinkedHashMap<Port, BoolExpr[]>();
+        for(Flow flw : flws) {
+            for(Port port : this.getPortsOf(flw)) {
+                if(!newRules.containsKey(port)) {
+                    newRules.put(port, this.getSchedulingRules(port));
+                    solver.add(newRules.get(port));
+                }
+            }
+        }
+
+        for(Flow flw : flws) {
+            net.secureFlowHC(flw, solver, ctx);
+        }
+
+        ArrayList<BoolExpr> assumptions = new ArrayList<BoolExpr>(admittedFlows.values());
+        for(Port port : portRules.keySet()) {
+            if(!newRules.containsKey(port)) {
+                assumptions.add(portRules.get(port));
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        status = solver.check(assumptions.toArray(new BoolExpr[assumptions.size()]));
+        this.lastCheckTime = System.currentTimeMillis() - startTime;
+
+        if(status != Status.SATISFIABLE) {
+            solver.pop();
+
+            for(Flow flw : flws) {
+                this.removeFlowFragments(flw);
+            }
+            this.restorePeriods(previousPeriods);
+
+            return status;
+        }
+
+        Model model = solver.getModel();
+        HashMap<Flow, ArrayList<Expr>> pinnedValues = new HashMap<Flow, ArrayList<Expr>>();
+
+        for(Flow flw : flws) {
+            scheduleGenerator.writeFlow(flw, model, ctx, out);
+            pinnedValues.put(flw, this.getFixedValues(flw, model));
+        }
+        this.writeCycles(model);
+
+        solver.pop();
+
+        // Fix the values of the new flows, guarded by their literals
+        for(Flow flw : flws) {
+            ArrayList<Expr> terms = this.getFixedTerms(flw);
+            ArrayList<Expr> values = pinnedValues.get(flw);
+            BoolExpr literal = ctx.mkBoolConst(flw.getName() + "Admitted" + literalCounter++);
+            BoolExpr[] fixedValues = new BoolExpr[terms.size()];
+
+            for(int i = 0; i < terms.size(); i++) {
+                fixedValues[i] = ctx.mkImplies(literal, ctx.mkEq(terms.get(i), values.get(i)));
+            }
+            solver.add(fixedValues);
+
+            admittedFlows.put(flw, literal);
+            flowValues.put(flw, fixedValues);
+            net.addFlow(flw);
+        }
+
+        for(Port port : newRules.keySet()) {
+            this.keepSchedulingRules(port, newRules.get(port));
+        }
+
+        this.compact();
+
+        out.flush();
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: removeFlow
+     * [Usage]: Removes an admitted flow from the network. Its literal
+     * is no longer given to the solver, so its fixed values stop
+     * affecting the admission of other flows. Ports left without
+     * fragments have their cycle cleared.
+     *
+     * @param flw       Admitted flow to be removed
+     */
+    public void removeFlow(Flow flw) {
+        if(!admittedFlows.containsKey(flw)) {
+            return;
+        }
+
+        ArrayList<Port> flowPorts = this.getPortsOf(flw);
+
+        admittedFlows.remove(flw);
+        flowValues.remove(flw);
+        numOfDroppedLiterals++;
+        net.getFlows().remove(flw);
+        this.removeFlowFragments(flw);
+
+        // Rules of the ports of the flow are replaced by rules without its fragments
+        for(Port port : flowPorts) {
+            if(portRules.remove(port) != null) {
+                portRuleSets.remove(port);
+                numOfDroppedLiterals++;
+            }
+
+            if(port.getFlowFragments().size() > 0) {
+                this.keepSchedulingRules(port, this.getSchedulingRules(port));
+            }
+        }
+
+        this.compact();
+
+        for(Port port : this.getPorts()) {
+            if(port.getFlowFragments().size() == 0) {
+                port.getListOfPeriods().clear();
+                port.getCycle().setCycleStart(0);
+                port.getCycle().setCycleDuration(0);
+                for(Integer prt : new ArrayList<Integer>(port.getCycle().getSlotsUsed())) {
+                    port.getCycle().removeSlotUsed(prt);
+                }
+                continue;
+            }
+
+            LinkedHashSet<Integer> prtsInUse = new LinkedHashSet<Integer>();
+            for(FlowFragment frag : port.getFlowFragments()) {
+                prtsInUse.add(frag.getFragmentPriority());
+            }
+
+            for(Integer prt : new ArrayList<Integer>(port.getCycle().getSlotsUsed())) {
+                if(!prtsInUse.contains(prt)) {
+                    port.getCycle().removeSlotUsed(prt);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * [Method]: close
+     * [Usage]: Closes the context used by the scheduler. No other
+     * flows can be admitted after this call.
+     */
+    public void close() {
+        out.flush();
+        scheduleGenerator.closeContext(ctx);
+    }
+
+
+    /**
+     * [Method]: cycleSizeChanged
+     * [Usage]: Checks if the current list of periods of the port
+     * results in a different micro cycle or hyper cycle than the one
+     * already set up on it.
+     *
+     * @param port      Port to be checked
+     * @return          True if the cycle size of the port changed
+     */
+    private boolean cycleSizeChanged(Port port) {
+        if(port.getListOfPeriods().isEmpty()) {
+            return false;
+        }
+
+        float microCycleSize = Port.findGCD(new ArrayList<Float>(port.getListOfPeriods())).floatValue();
+        float hyperCycleSize = Port.findLCM(new ArrayList<Float>(port.getListOfPeriods())).floatValue();
+
+        return microCycleSize != port.getMicroCycleSize() || hyperCycleSize != port.getDefinedHyperCycleSize();
+    }
+
+
+    /**
+     * [Method]: restorePeriods
+     * [Usage]: Gives back the list of periods of each port saved
+     * before the admission of a batch of flows.
+     *
+     * @param previousPeriods   Map from the ports to their previous periods
+     */
+    private void restorePeriods(HashMap<Port, ArrayList<Float>> previousPeriods) {
+        for(Port port : previousPeriods.keySet()) {
+            port.setListOfPeriods(previousPeriods.get(port));
+        }
+    }
+
+
+    /**
+     * [Method]: removeFlowFragments
+     * [Usage]: Removes the fragments of a flow from the nodes of its
+     * path tree and from the ports of the switches.
+     *
+     * @param flw       Flow that will have its fragments removed
+     */
+    private void removeFlowFragments(Flow flw) {
+        for(PathNode node : this.getSwitchNodes(flw.getPathTree().getRoot())) {
+            TSNSwitch swt = (TSNSwitch) node.getNode();
+
+            for(FlowFragment frag : node.getFlowFragments()) {
+                swt.getPortOf(frag.getNextHop()).removeFromFragmentList(frag);
+            }
+
+            node.setFlowFragment(new ArrayList<FlowFragment>());
+        }
+    }
+
+
+    /**
+     * [Method]: getSchedulingRules
+     * [Usage]: Sets up the scheduling rules of a port in use, along with
+     * the maximum cycle start constraint of each one of its fragments,
+     * on a separate solver and returns them, so they can be given to the
+     * solver of the scheduler with or without a literal.
+     *
+     * @param port      Port with the fragments of the admitted flows
+     * @return          Rules of the port
+     */
+    private BoolExpr[] getSchedulingRules(Port port) {
+        Solver rules = ctx.mkSolver();
+
+        for(FlowFragment frag : port.getFlowFragments()) {
+            rules.add( // Maximum cycle start constraint
+                ctx.mkLe(
+                    port.getCycle().getFirstCycleStartZ3(),
+                    port.arrivalTime(ctx, 0, frag)
+                )
+            );
+        }
+
+        port.setupSchedulingRules(rules, ctx);
+
+        return rules.getAssertions();
+    }
+
+
+    /**
+     * [Method]: keepSchedulingRules
+     * [Usage]: Asserts the rules of a port on the base level, as
+     * implications of a new literal that replaces the previous literal
+     * of the port. The previous rules are no longer assumed.
+     *
+     * @param port      Port that the rules belong to
+     * @param rules     Rules returned by getSchedulingRules
+     */
+    private void keepSchedulingRules(Port port, BoolExpr[] rules) {
+        BoolExpr literal = ctx.mkBoolConst(port.getName() + "Rules" + literalCounter++);
+        BoolExpr[] guardedRules = new BoolExpr[rules.length];
+
+        for(int i = 0; i < rules.length; i++) {
+            guardedRules[i] = ctx.mkImplies(literal, rules[i]);
+        }
+        solver.add(guardedRules);
+
+        if(portRules.put(port, literal) != null) {
+            numOfDroppedLiterals++;
+        }
+        portRuleSets.put(port, guardedRules);
+    }
+
+
+    /**
+     * [Method]: compact
+     * [Usage]: Once the literals replaced or dropped outnumber the ones
+     * in use, resets the solver and asserts again only the static
+     * properties of the switches, the values of the admitted flows and
+     * the rules of the ports in use, under their current literals. Keeps
+     * the size of the solver bounded on a long-lived scheduler.
+     */
+    private void compact() {
+        if(numOfDroppedLiterals <= admittedFlows.size() + portRules.size()) {
+            return;
+        }
+
+        solver.reset();
+        solver.add(this.switchRules);
+
+        for(BoolExpr[] fixedValues : flowValues.values()) {
+            solver.add(fixedValues);
+        }
+
+        for(BoolExpr[] guardedRules : portRuleSets.values()) {
+            solver.add(guardedRules);
+        }
+
+        numOfDroppedLiterals = 0;
+    }
+
+
+    /**
+     * [Method]: getPortsOf
+     * [Usage]: Returns the ports that carry the fragments of a flow.
+     *
+     * @param flw       Flow with its fragments created
+     * @return          List of ports used by the flow, without repetitions
+     */
+    private ArrayList<Port> getPortsOf(Flow flw) {
+        LinkedHashSet<Port> ports = new LinkedHashSet<Port>();
+
+        for(PathNode node : this.getSwitchNodes(flw.getPathTree().getRoot())) {
+            for(FlowFragment frag : node.getFlowFragments()) {
+                ports.add(((TSNSwitch) node.getNode()).getPortOf(frag.getNextHop()));
+            }
+        }
+
+        return new ArrayList<Port>(ports);
+    }
+
+
+    /**
+     * [Method]: writeCycles
+     * [Usage]: Stores the cycle start, duration and slots found by the
+     * solver in the cycles of the ports. The slots of every fragment are
+     * taken from the model again, since the cycles of the ports are not
+     * fixed between admissions.
+     *
+     * @param model     Model generated by the solver
+     */
+    private void writeCycles(Model model) {
+        ModelReader reader = new ModelReader(model, true);
+
+        for(Port port : this.getPorts()) {
+            Cycle cycle = port.getCycle();
+
+            for(Integer prt : new ArrayList<Integer>(cycle.getSlotsUsed())) {
+                cycle.removeSlotUsed(prt);
+            }
+
+            if(port.getFlowFragments().size() == 0) { // Idle ports have their cycle set to 0
+                cycle.setCycleStart(0);
+                cycle.setCycleDuration(0);
+                continue;
+            }
+
+            cycle.setCycleStart(reader.evalTime(cycle.getFirstCycleStartZ3()));
+            cycle.setCycleDuration(reader.evalTime(cycle.getCycleDurationZ3()));
+
+            for(FlowFragment frag : port.getFlowFragments()) {
+                int prt = reader.evalInt(frag.getFragmentPriorityZ3());
+
+                // Fragments of the same priority share the slots of the port
+                if(cycle.getSlotsUsed().contains(prt)) {
+                    continue;
+                }
+
+                ArrayList<Float> listOfStart = new ArrayList<Float>();
+                ArrayList<Float> listOfDuration = new ArrayList<Float>();
+
+                for(int index = 0; index < cycle.getNumOfSlots(); index++) {
+                    listOfStart.add(reader.evalTime(cycle.slotStartZ3(ctx, prt, index)));
+                    listOfDuration.add(reader.evalTime(cycle.slotDurationZ3(ctx, prt, index)));
+                }
+
+                cycle.addSlotUsed(prt, listOfStart, listOfDuration);
+            }
+        }
+    }
+
+
+    /**
+     * [Method]: getFixedTerms
+     * [Usage]: Returns the z3 variables of a flow that are fixed once
+     * it is admitted: the first departure of its start device and the
+     * priority and scheduled times of each one of its fragments.
+     *
+     * @param flw       Flow to retrieve the variables from
+     * @return          List of z3 variables of the flow
+     */
+    private ArrayList<Expr> getFixedTerms(Flow flw) {
+        ArrayList<Expr> terms = new ArrayList<Expr>();
+
+        terms.add(flw.getStartDevice().getFirstT1TimeZ3());
+
+        for(PathNode node : this.getSwitchNodes(flw.getPathTree().getRoot())) {
+            TSNSwitch swt = (TSNSwitch) node.getNode();
+
+            for(FlowFragment frag : node.getFlowFragments()) {
+                terms.add(frag.getFragmentPriorityZ3());
+
+                for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+                    terms.add(swt.scheduledTime(ctx, i, frag));
+                }
+            }
+        }
+
+        return terms;
+    }
+
+
+    /**
+     * [Method]: getFixedValues
+     * [Usage]: Evaluates the variables returned by getFixedTerms on
+     * the model generated by the solver.
+     *
+     * @param flw       Flow to retrieve the values from
+     * @param model     Model generated by the solver
+     * @return          List of z3 values in the same order as getFixedTerms
+     */
+    private ArrayList<Expr> getFixedValues(Flow flw, Model model) {
+        ArrayList<Expr> values = new ArrayList<Expr>();
+
+        for(Expr term : this.getFixedTerms(flw)) {
+            values.add(model.eval(term, true));
+        }
+
+        return values;
+    }
+
+
+    /**
+     * [Method]: getSwitchNodes
+     * [Usage]: Returns the nodes of a path tree that hold switches,
+     * starting from the given node.
+     *
+     * @param node      Node of the path tree (should start with root)
+     * @return          List of nodes that hold switches
+     */
+    private ArrayList<PathNode> getSwitchNodes(PathNode node) {
+        ArrayList<PathNode> nodes = new ArrayList<PathNode>();
+
+        if(node.getNode() instanceof TSNSwitch) {
+            nodes.add(node);
+        }
+
+        for(PathNode child : node.getChildren()) {
+            nodes.addAll(this.getSwitchNodes(child));
+        }
+
+        return nodes;
+    }
+
+
+    /**
+     * [Method]: getPorts
+     * [Usage]: Returns the ports of all switches of the network.
+     *
+     * @return          List of ports of the network
+     */
+    private ArrayList<Port> getPorts() {
+        ArrayList<Port> ports = new ArrayList<Port>();
+
+        for(Switch swt : net.getSwitches()) {
+            ports.addAll(((TSNSwitch) swt).getPorts());
+        }
+
+        return ports;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public Network getNetwork() {
+        return net;
+    }
+
+    public Context getContext() {
+        return ctx;
+    }
+
+    public Solver getSolver() {
+        return solver;
+    }
+
+    public ArrayList<Flow> getAdmittedFlows() {
+        return new ArrayList<Flow>(admittedFlows.keySet());
+    }
+
+    public long getLastCheckTime() {
+        return lastCheckTime;
+    }
+
+    public void setLog(PrintWriter out) {
+        this.out = out;
+    }
+
+}
@@ -0,0 +1,179 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: JitterRefiner
+ * [Usage]: Adds the jitter constraints of the network on demand. Each
+ * jitter constraint creates a variable with the absolute difference
+ * between the latency of a packet and the average latency of its
+ * subscriber, which is a large part of the arithmetic given to z3, while
+ * the jitter bound is seldom the constraint that limits the schedule.
+ *
+ * When a refiner is set on the schedule generator, the network is solved
+ * without jitter constraints (see Network.setLazyJitter). The jitter of
+ * every packet reaching each subscriber is then computed from the model,
+ * and the jitter constraints are added only for the subscribers that
+ * exceed the maximum allowed jitter. The solver is checked again until no
+ * subscriber exceeds it, or until the constraints turn out unsatisfiable.
+ *
+ * With a ConstraintTracker, the constraints of each round are added inside
+ * the scope of the tracking literals. If they turn out unsatisfiable, they
+ * are moved under that scope, so they are still part of the diagnosis
+ * made after it is dropped (see ScheduleGenerator.generateSchedule).
+ */
+public class JitterRefiner {
+
+    private static final float TOLERANCE = 0.001f; // Rounding allowed when comparing the jitter of the model
+
+    private HashSet<String> constrainedSubscribers = new HashSet<String>();
+    private ArrayList<Flow> constrainedFlows = new ArrayList<Flow>();
+    private ArrayList<Device> constrainedDevices = new ArrayList<Device>();
+    private int rounds = 0;
+
+
+    /**
+     * [Method]: JitterRefiner
+     * [Usage]: Default constructor of this class.
+     */
+    public JitterRefiner() {
+
+    }
+
+
+    /**
+     * [Method]: check
+     * [Usage]: Given the status of a check made without the jitter
+     * constraints, adds the constraints of the subscribers whose jitter
+     * is out of bounds on the model and checks the solver again, until
+     * the model respects the jitter of every subscriber.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver checked without the jitter constraints
+     * @param ctx       Context of the solver
+     * @param status    Status of the last check of the solver
+     * @return          Status of the last check of the solver
+     */
+    public Status check(Network net, Solver solver, Context ctx, Status status) {
+        ConstraintTracker tracker = ConstraintTracker.forContext(ctx);
+
+        this.constrainedSubscribers.clear();
+        this.constrainedFlows.clear();
+        this.constrainedDevices.clear();
+        this.rounds = 0;
+
+        while(status == Status.SATISFIABLE) {
+            ModelReader reader = new ModelReader(solver.getModel(), true);
+            float jitterUpperBound = reader.evalTime(net.getJitterUpperBoundRangeZ3());
+            int numOfViolations = 0;
+
+            for(Flow flw : net.getFlows()) {
+                if(flw.getType() != Flow.PUBLISH_SUBSCRIBE) {
+                    continue;
+                }
+
+                for(PathNode leaf : flw.getPathTree().getLeaves()) {
+                    Device dev = (Device) leaf.getNode();
+                    String subscriber = flw.getName() + "_" + dev.getName();
+
+                    if(this.constrainedSubscribers.contains(subscriber) ||
+                        this.getMaxJitter(flw, dev, reader, ctx) <= jitterUpperBound + TOLERANCE) {
+                        continue;
+                    }
+
+                    net.secureJitter(flw, dev, solver, ctx, net.getJitterUpperBoundRangeZ3());
+                    this.constrainedSubscribers.add(subscriber);
+                    this.constrainedFlows.add(flw);
+                    this.constrainedDevices.add(dev);
+                    numOfViolations++;
+                }
+            }
+
+            if(numOfViolations == 0) {
+                break;
+            }
+
+            // New tracking literals must be assumed as the others
+            if(tracker != null) {
+                tracker.enable(solver);
+            }
+
+            this.rounds++;
+            System.out.println("Jitter round " + this.rounds + ": constraints added for " + numOfViolations +
+                " subscribers (" + this.constrainedSubscribers.size() + " in total).");
+
+            status = solver.check();
+        }
+
+        // The constraints are moved under the tracker scope, which is dropped before the diagnosis
+        if(status == Status.UNSATISFIABLE && tracker != null && !this.constrainedFlows.isEmpty()) {
+            solver.pop();
+            for(int i = 0; i < this.constrainedFlows.size(); i++) {
+                net.secureJitter(this.constrainedFlows.get(i), this.constrainedDevices.get(i), solver, ctx,
+                    net.getJitterUpperBoundRangeZ3());
+            }
+            solver.push();
+            tracker.enable(solver);
+        }
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: getMaxJitter
+     * [Usage]: Computes from the model the largest difference between
+     * the latency of a packet of a flow and the average latency of the
+     * flow to one of its subscribers, as done by Flow.getJitterZ3.
+     *
+     * @param flw       Flow of the packets
+     * @param dev       Subscriber of the flow
+     * @param reader    Reader of the model of the last check
+     * @param ctx       Context of the solver
+     * @return          Largest jitter of the packets reaching the subscriber
+     */
+    private float getMaxJitter(Flow flw, Device dev, ModelReader reader, Context ctx) {
+        ArrayList<PathNode> nodes = flw.getNodesFromRootToNode(dev);
+        PathNode lastNode = nodes.get(nodes.size() - 2); // Node of the last switch before the subscriber
+        PathNode firstNode = nodes.get(1);               // Node of the first switch after the publisher
+
+        TSNSwitch lastSwitchInPath = (TSNSwitch) lastNode.getNode();
+        FlowFragment lastFragmentInList = lastNode.getFlowFragments().get(lastNode.getChildren().indexOf(nodes.get(nodes.size() - 1)));
+        TSNSwitch firstSwitchInPath = (TSNSwitch) firstNode.getNode();
+        FlowFragment firstFragmentInList = firstNode.getFlowFragments().get(0);
+
+        float[] latencies = new float[flw.getNumOfPacketsSent()];
+        float averageLatency = 0;
+        float maxJitter = 0;
+
+        for(int i = 0; i < latencies.length; i++) {
+            latencies[i] =
+                reader.evalTime(lastSwitchInPath.getPortOf(lastFragmentInList.getNextHop()).scheduledTime(ctx, i, lastFragmentInList)) -
+                reader.evalTime(firstSwitchInPath.getPortOf(firstFragmentInList.getNextHop()).departureTime(ctx, i, firstFragmentInList));
+            averageLatency += latencies[i] / latencies.length;
+        }
+
+        for(int i = 0; i < latencies.length; i++) {
+            maxJitter = Math.max(maxJitter, Math.abs(latencies[i] - averageLatency));
+        }
+
+        return maxJitter;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public HashSet<String> getConstrainedSubscribers() {
+        return constrainedSubscribers;
+    }
+
+}
@@ -0,0 +1,256 @@
+package schedule_generator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: ModelReader
+ * [Usage]: Reads the values of a z3 model as numbers. Instead of
+ * printing each value and parsing the string back (see
+ * ScheduleGenerator.stringToFloat), the numerator and denominator of the
+ * rational numerals are read directly, as longs when they fit and as big
+ * integers otherwise.
+ *
+ * Each distinct term is evaluated only once per reader, since the rules
+ * of the network share the same packet times and slots among several
+ * fragments and ports. Each term read is given an index on a primitive
+ * array of values. Terms are kept as keys rather than their ids: z3
+ * reuses the ids of terms that were released, and terms built on the fly
+ * (such as sums of packet times) would otherwise find the value of
+ * another term. Holding them keeps them alive as long as the reader.
+ *
+ * Values that are not numerals (terms left free with the model
+ * completion off) are read as -1, as done by stringToFloat.
+ */
+public class ModelReader {
+
+    private Model model;
+    private boolean completion = false;
+    private HashMap<Expr, Integer> indexes = new HashMap<Expr, Integer>();
+    private float[] values = new float[1024];
+    private int numOfEvaluations = 0;
+
+
+    /**
+     * [Method]: ModelReader
+     * [Usage]: Overloaded constructor of this class. Terms not fixed
+     * by the model are not completed.
+     *
+     * @param model     Model to be read
+     */
+    public ModelReader(Model model) {
+        this.model = model;
+    }
+
+
+    /**
+     * [Method]: ModelReader
+     * [Usage]: Overloaded constructor of this class.
+     *
+     * @param model         Model to be read
+     * @param completion    If terms not fixed by the model are given a value
+     */
+    public ModelReader(Model model, boolean completion) {
+        this.model = model;
+        this.completion = completion;
+    }
+
+
+    /**
+     * [Method]: evalFloat
+     * [Usage]: Evaluates a term on the model, once per term.
+     *
+     * @param term      Integer or real term
+     * @return          Value of the term, or -1 if the model gives no number
+     */
+    public float evalFloat(Expr term) {
+        Integer index = this.indexes.get(term);
+
+        if(index != null) {
+            return this.values[index];
+        }
+
+        if(this.numOfEvaluations == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.values.length * 2);
+        }
+
+        float value = toFloat(this.model.eval(term, this.completion));
+
+        this.indexes.put(term, this.numOfEvaluations);
+        this.values[this.numOfEvaluations++] = value;
+
+        return value;
+    }
+
+
+    /**
+     * [Method]: evalInt
+     * [Usage]: Evaluates an integer term (such as a priority) on the
+     * model, once per term.
+     *
+     * @param term      Integer term
+     * @return          Value of the term, or -1 if the model gives no number
+     */
+    public int evalInt(Expr term) {
+        return (int) this.evalFloat(term);
+    }
+
+
+    /**
+     * [Method]: evalFloats
+     * [Usage]: Evaluates a list of terms on the model.
+     *
+     * @param terms     Integer or real terms
+     * @return          Values of the terms, in the same order
+     */
+    public float[] evalFloats(Expr[] terms) {
+        float[] result = new float[terms.length];
+
+        for(int i = 0; i < terms.length; i++) {
+            result[i] = this.evalFloat(terms[i]);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * [Method]: evalTime
+     * [Usage]: Evaluates a time term of the schedule (see TimeEncoding)
+     * on the model, in time units.
+     *
+     * @param term      Time variable or term built over time variables
+     * @return          Value of the term in time units, or -1 if the model gives no number
+     */
+    public float evalTime(Expr term) {
+        float value = this.evalFloat(term);
+
+        if(value == -1 && !this.model.eval(term, this.completion).isNumeral()) {
+            return value;
+        }
+
+        return TimeEncoding.toTime(value);
+    }
+
+
+    /**
+     * [Method]: evalTimes
+     * [Usage]: Evaluates a list of time terms on the model (see evalTime).
+     *
+     * @param terms     Time variables or terms built over time variables
+     * @return          Values of the terms in time units, in the same order
+     */
+    public float[] evalTimes(Expr[] terms) {
+        float[] result = new float[terms.length];
+
+        for(int i = 0; i < terms.length; i++) {
+            result[i] = this.evalTime(terms[i]);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * [Method]: toFloat
+     * [Usage]: Converts a numeral of z3 to a float. Numerators and
+     * denominators that fit in a long are divided as doubles, others
+     * as big decimals.
+     *
+     * @param numeral   Value given by the model
+     * @return          Value of the numeral, or -1 if it is not a number
+     */
+    public static float toFloat(Expr numeral) {
+        if(numeral instanceof IntNum) {
+            return toFloat(((IntNum) numeral), null);
+        } else if(numeral instanceof RatNum) {
+            return toFloat(((RatNum) numeral).getNumerator(), ((RatNum) numeral).getDenominator());
+        }
+
+        return -1;
+    }
+
+
+    private static float toFloat(IntNum numerator, IntNum denominator) {
+        try {
+            if(denominator == null) {
+                return (float) numerator.getInt64();
+            }
+
+            return (float) ((double) numerator.getInt64() / (double) denominator.getInt64());
+        } catch (Z3Exception e) { // Does not fit in a long
+            BigDecimal value = new BigDecimal(numerator.getBigInteger());
+
+            if(denominator != null) {
+                value = value.divide(new BigDecimal(denominator.getBigInteger()), MathContext.DECIMAL128);
+            }
+
+            return value.floatValue();
+        }
+    }
+
+
+    /**
+     * [Method]: pinModel
+     * [Usage]: Fixes the values of a model found by another solver (an
+     * optimizer or a configuration of the portfolio) on the solver of the
+     * network, so its values can be retrieved as usual: the constants,
+     * the entries of the functions and, for cycles with slot functions
+     * (see Cycle.FUNCTION_SLOTS), the slots of every priority, which may
+     * only be given by the default value of the function. The model may
+     * belong to another context, in which case the terms are translated.
+     *
+     * @param model     Model to be fixed
+     * @param modelCtx  Context of the model
+     * @param net       Network being scheduled
+     * @param solver    Solver with the constraints of the network
+     * @param ctx       Context of the solver
+     */
+    public static void pinModel(Model model, Context modelCtx, Network net, Solver solver, Context ctx) {
+        for(FuncDecl decl : model.getConstDecls()) {
+            solver.add((BoolExpr) modelCtx.mkEq(decl.apply(), model.getConstInterp(decl)).translate(ctx));
+        }
+
+        for(FuncDecl decl : model.getFuncDecls()) {
+            for(FuncInterp.Entry entry : model.getFuncInterp(decl).getEntries()) {
+                solver.add((BoolExpr) modelCtx.mkEq(decl.apply(entry.getArgs()), entry.getValue()).translate(ctx));
+            }
+        }
+
+        for(Switch swt : net.getSwitches()) {
+            for(Port port : ((TSNSwitch) swt).getPorts()) {
+                Cycle cycle = port.getCycle();
+
+                if(port.getFlowFragments().isEmpty() || !cycle.usesSlotFunctions()) {
+                    continue;
+                }
+
+                for(int prt = 0; prt < cycle.getNumOfPrts(); prt++) {
+                    for(int index = 0; index < cycle.getNumOfSlots(); index++) {
+                        for(Expr slot : new Expr[] {cycle.getSlotStartZ3(prt, index), cycle.getSlotDurationZ3(prt, index)}) {
+                            solver.add(ctx.mkEq(slot, model.eval(slot.translate(modelCtx), true).translate(ctx)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public Model getModel() {
+        return model;
+    }
+
+    public int getNumOfEvaluations() {
+        return numOfEvaluations;
+    }
+
+}
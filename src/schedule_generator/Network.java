@@ -21,21 +21,22 @@ public class Network implements Serializable {
 	String file_id;
 	
 	//TODO: Remove debugging variables:
-    public transient RealExpr avgOfAllLatency;
-    public transient ArrayList<RealExpr> avgLatencyPerDev = new ArrayList<RealExpr>();
+    public transient ArithExpr avgOfAllLatency;
+    public transient ArrayList<ArithExpr> avgLatencyPerDev = new ArrayList<ArithExpr>();
     
     
     private ArrayList<Switch> switches;
     private ArrayList<Flow> flows;
     private float timeToTravel;
-    public transient ArrayList<RealExpr> allSumOfJitter = new ArrayList<RealExpr>();
+    public transient ArrayList<ArithExpr> allSumOfJitter = new ArrayList<ArithExpr>();
     public ArrayList<Integer> numberOfNodes = new ArrayList<Integer>();
     
     public static int PACKETUPPERBOUNDRANGE = 5; // Limits the applications of rules to the packets
     public static int CYCLEUPPERBOUNDRANGE = 25; // Limits the applications of rules to the cycles
     
     private float jitterUpperBoundRange = -1;
-    transient RealExpr jitterUpperBoundRangeZ3;
+    transient ArithExpr jitterUpperBoundRangeZ3;
+    private transient boolean lazyJitter = false; // Jitter constraints left to the JitterRefiner
 
     /**
      * [Method]: Network
@@ -93,9 +94,9 @@ public class Network implements Serializable {
             this.setJitterUpperBoundRangeZ3(ctx, this.jitterUpperBoundRange);
         }
         
-        Stack<RealExpr> jitterList = new Stack<RealExpr>();
+        Stack<ArithExpr> jitterList = new Stack<ArithExpr>();
         int totalNumOfLeaves = 0;
-        RealExpr sumOfAllJitter;
+        ArithExpr sumOfAllJitter;
         // On every switch, set up the constraints of the schedule        
         //switch1.setupSchedulingRules(solver, ctx);
         
@@ -114,117 +115,18 @@ public class Network implements Serializable {
          */
         
         for(Flow flw : this.getFlows()) {
-        	flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
+        	this.secureFlowHC(flw, solver, ctx);
         	
-            solver.add( // No negative cycle values constraint
-                ctx.mkGe(
-                    flw.getStartDevice().getFirstT1TimeZ3(),
-                    ctx.mkReal(0)
-                )
-            );
-            solver.add( // Maximum transmission offset constraint
-                ctx.mkLe(
-                    flw.getStartDevice().getFirstT1TimeZ3(),
-                    flw.getStartDevice().getPacketPeriodicityZ3() 
-                )
-            );
-            
-            
-            
-            if(flw.getType() == Flow.UNICAST) {
-                
-                ArrayList<FlowFragment> currentFrags = flw.getFlowFragments();
-                ArrayList<Switch> path = flw.getPath();
-                
-                
-                //Make sure that HC is respected
-                for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
-                    solver.add(
-                            ctx.mkLe(
-                                ctx.mkSub(
-                                    ((TSNSwitch) path.get(path.size() - 1)).scheduledTime(ctx, i, currentFrags.get(currentFrags.size() - 1)),
-                                    ((TSNSwitch) path.get(0)).departureTime(ctx, i, currentFrags.get(0))
-                                ),
-                                flw.getStartDevice().getHardConstraintTimeZ3()  
-                            )                   
-                      );
-                }
-               
-            } else if (flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
-                PathNode root = flw.getPathTree().getRoot();
-                ArrayList<PathNode> leaves = flw.getPathTree().getLeaves();
-                ArrayList<PathNode> parents = new ArrayList<PathNode>();
-                
-                // Make list of parents of all leaves
-                for(PathNode leaf : leaves) {
-                    
-                    if(!parents.contains(leaf.getParent())){
-                        parents.add(leaf.getParent());
-                    }
-                    
-                    
-                    // Set the maximum allowed jitter
-                    for(int index = 0; index < flw.getNumOfPacketsSent(); index++) {
-                    	solver.add( // Maximum allowed jitter constraint
-                            ctx.mkLe(
-                                flw.getJitterZ3((Device) leaf.getNode(), solver, ctx, index),
-                                this.jitterUpperBoundRangeZ3 
-                            )
-                        );
-                    }
-                    
-                }
-                
-                // Iterate over the flows of each leaf parent, assert HC
-                for(PathNode parent : parents) {
-                    for(FlowFragment ffrag : parent.getFlowFragments()) {
-                    	for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
-                            solver.add( // Maximum Allowed Latency constraint
-                                ctx.mkLe(
-                                    ctx.mkSub(
-                                        ((TSNSwitch) parent.getNode()).scheduledTime(ctx, i, ffrag),
-                                        ((TSNSwitch) root.getChildren().get(0).getNode()).departureTime(ctx, i, 
-                                            root.getChildren().get(0).getFlowFragments().get(0)
-                                        )
-                                    ),
-                                    flw.getStartDevice().getHardConstraintTimeZ3()
-                                )                   
-                            );
-                        }
-                    } 
-                    
-                }
-                
-                /*
-                
-                // TODO: CHECK FAIRNESS CONSTRAINT (?)
-                
-                sumOfAllJitter = flw.getSumOfAllDevJitterZ3(solver, ctx, Network.PACKETUPPERBOUNDRANGE - 1);
-                
-                jitterList.push(sumOfAllJitter);
-                totalNumOfLeaves += flw.getPathTree().getLeaves().size();
-                
-                // SET THE MAXIMUM JITTER FOR THE FLOW    
-                solver.add(
-                    ctx.mkLe(
-                        ctx.mkDiv(
-                            sumOfAllJitter,
-                            ctx.mkReal(flw.getPathTree().getLeaves().size() * (PACKETUPPERBOUNDRANGE))
-                        ),  
-                        jitterUpperBoundRangeZ3
-                    )
-                );
-                */
-                
+            if (flw.getType() == Flow.PUBLISH_SUBSCRIBE && !this.lazyJitter) {
                 // TODO: Remove code for debugging
                 avgOfAllLatency = flw.getAvgLatency(solver, ctx);
                 for(PathNode node : flw.getPathTree().getLeaves()) {
                     Device endDev = (Device) node.getNode();
                     
                     this.avgLatencyPerDev.add(
-                        (RealExpr) ctx.mkDiv(
+                        (ArithExpr) ctx.mkDiv(
                             flw.getSumOfJitterZ3(endDev, solver, ctx, flw.getNumOfPacketsSent() - 1),
-                            ctx.mkInt(flw.getNumOfPacketsSent())
+                            TimeEncoding.mkCount(ctx, flw.getNumOfPacketsSent())
                         )
                     );
                     
@@ -240,6 +142,165 @@ public class Network implements Serializable {
     }
     
     
+    /**
+     * [Method]: secureFlowHC
+     * [Usage]: Sets up the hard constraint and the jitter constraints
+     * of a single flow. Used by secureHC for every flow of the network
+     * and by the incremental admission of flows, where only the flows
+     * being admitted have their constraints added to the solver.
+     * 
+     * @param flw       Flow that will have its constraints established
+     * @param solver    z3 solver object used to discover the variables' values
+     * @param ctx       z3 context which specify the environment of constants, functions and variables
+     */
+    public void secureFlowHC(Flow flw, Solver solver, Context ctx) {
+        this.secureFlowHC(flw, solver, ctx, this.jitterUpperBoundRangeZ3);
+    }
+    
+    
+    /**
+     * [Method]: secureFlowHC
+     * [Usage]: Overloaded method of secureFlowHC. The maximum allowed
+     * jitter is given as a parameter, so flows can be constrained on
+     * a context other than the one of the network.
+     * 
+     * @param flw                       Flow that will have its constraints established
+     * @param solver                    z3 solver object used to discover the variables' values
+     * @param ctx                       z3 context which specify the environment of constants, functions and variables
+     * @param jitterUpperBoundRangeZ3   Maximum allowed jitter as a z3 value of the given context
+     */
+    public void secureFlowHC(Flow flw, Solver solver, Context ctx, ArithExpr jitterUpperBoundRangeZ3) {
+    	flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
+    	
+        solver.add( // No negative cycle values constraint
+            ctx.mkGe(
+                flw.getStartDevice().getFirstT1TimeZ3(),
+                TimeEncoding.mkTime(ctx, 0)
+            )
+        );
+        solver.add( // Maximum transmission offset constraint
+            ctx.mkLe(
+                flw.getStartDevice().getFirstT1TimeZ3(),
+                flw.getStartDevice().getPacketPeriodicityZ3() 
+            )
+        );
+        
+        
+        
+        if(flw.getType() == Flow.UNICAST) {
+            
+            ArrayList<FlowFragment> currentFrags = flw.getFlowFragments();
+            ArrayList<Switch> path = flw.getPath();
+            
+            
+            //Make sure that HC is respected
+            for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+                ConstraintTracker.add(solver, ctx,
+                        ctx.mkLe(
+                            ctx.mkSub(
+                                ((TSNSwitch) path.get(path.size() - 1)).scheduledTime(ctx, i, currentFrags.get(currentFrags.size() - 1)),
+                                ((TSNSwitch) path.get(0)).departureTime(ctx, i, currentFrags.get(0))
+                            ),
+                            flw.getStartDevice().getHardConstraintTimeZ3()  
+                        ),
+                        ConstraintTracker.HARD_CONSTRAINT, flw.getName(),
+                        ((TSNSwitch) path.get(path.size() - 1)).getPortOf(currentFrags.get(currentFrags.size() - 1).getNextHop()).getName()
+                  );
+            }
+           
+        } else if (flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
+            PathNode root = flw.getPathTree().getRoot();
+            ArrayList<PathNode> leaves = flw.getPathTree().getLeaves();
+            ArrayList<PathNode> parents = new ArrayList<PathNode>();
+            
+            // Make list of parents of all leaves
+            for(PathNode leaf : leaves) {
+                
+                if(!parents.contains(leaf.getParent())){
+                    parents.add(leaf.getParent());
+                }
+                
+                
+                // Set the maximum allowed jitter
+                if(!this.lazyJitter) {
+                	this.secureJitter(flw, (Device) leaf.getNode(), solver, ctx, jitterUpperBoundRangeZ3);
+                }
+                
+            }
+            
+            // Iterate over the flows of each leaf parent, assert HC
+            for(PathNode parent : parents) {
+                for(FlowFragment ffrag : parent.getFlowFragments()) {
+                	for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+                        ConstraintTracker.add(solver, ctx, // Maximum Allowed Latency constraint
+                            ctx.mkLe(
+                                ctx.mkSub(
+                                    ((TSNSwitch) parent.getNode()).scheduledTime(ctx, i, ffrag),
+                                    ((TSNSwitch) root.getChildren().get(0).getNode()).departureTime(ctx, i, 
+                                        root.getChildren().get(0).getFlowFragments().get(0)
+                                    )
+                                ),
+                                flw.getStartDevice().getHardConstraintTimeZ3()
+                            ),
+                            ConstraintTracker.HARD_CONSTRAINT, flw.getName(),
+                            ((TSNSwitch) parent.getNode()).getPortOf(ffrag.getNextHop()).getName()
+                        );
+                    }
+                } 
+                
+            }
+            
+            /*
+            
+            // TODO: CHECK FAIRNESS CONSTRAINT (?)
+            
+            sumOfAllJitter = flw.getSumOfAllDevJitterZ3(solver, ctx, Network.PACKETUPPERBOUNDRANGE - 1);
+            
+            jitterList.push(sumOfAllJitter);
+            totalNumOfLeaves += flw.getPathTree().getLeaves().size();
+            
+            // SET THE MAXIMUM JITTER FOR THE FLOW    
+            solver.add(
+                ctx.mkLe(
+                    ctx.mkDiv(
+                        sumOfAllJitter,
+                        ctx.mkReal(flw.getPathTree().getLeaves().size() * (PACKETUPPERBOUNDRANGE))
+                    ),  
+                    jitterUpperBoundRangeZ3
+                )
+            );
+            */
+        }
+        
+    }
+    
+    
+    /**
+     * [Method]: secureJitter
+     * [Usage]: Sets up the maximum allowed jitter of every packet of a
+     * flow reaching one of its subscribers. Used by secureFlowHC, and by
+     * the JitterRefiner for the subscribers whose jitter was found out
+     * of bounds when the jitter constraints are left out.
+     * 
+     * @param flw                       Flow that will have its jitter constrained
+     * @param dev                       Subscriber of the flow
+     * @param solver                    z3 solver object used to discover the variables' values
+     * @param ctx                       z3 context which specify the environment of constants, functions and variables
+     * @param jitterUpperBoundRangeZ3   Maximum allowed jitter as a z3 value of the given context
+     */
+    public void secureJitter(Flow flw, Device dev, Solver solver, Context ctx, ArithExpr jitterUpperBoundRangeZ3) {
+        for(int index = 0; index < flw.getNumOfPacketsSent(); index++) {
+        	ConstraintTracker.add(solver, ctx, // Maximum allowed jitter constraint
+                ctx.mkLe(
+                    flw.getJitterZ3(dev, solver, ctx, index),
+                    jitterUpperBoundRangeZ3 
+                ),
+                ConstraintTracker.JITTER_BOUND, flw.getName(), ""
+            );
+        }
+    }
+    
+    
     /**
      * [Method]: loadNetwork
      * [Usage]: From the primitive values retrieved in the object
@@ -266,7 +327,7 @@ public class Network implements Serializable {
         		for(Port port : ((TSNSwitch) swt).getPorts()) {
         			for(FlowFragment frag : port.getFlowFragments()) {
         				frag.createNewDepartureTimeZ3List();
-        				frag.addDepartureTimeZ3(ctx.mkReal(Float.toString(frag.getDepartureTime(0))));
+        				frag.addDepartureTimeZ3(TimeEncoding.mkGridTime(ctx, frag.getDepartureTime(0)));
         			}
         		}
         		((TSNSwitch) swt).toZ3(ctx, solver);
@@ -289,16 +350,28 @@ public class Network implements Serializable {
      * GETTERS AND SETTERS
      */
     
-    public RealExpr getJitterUpperBoundRangeZ3() {
+    public float getJitterUpperBoundRange() {
+        return jitterUpperBoundRange;
+    }
+
+    public ArithExpr getJitterUpperBoundRangeZ3() {
         return jitterUpperBoundRangeZ3;
     }
 
-    public void setJitterUpperBoundRangeZ3(RealExpr jitterUpperBoundRange) {
+    public void setJitterUpperBoundRangeZ3(ArithExpr jitterUpperBoundRange) {
         this.jitterUpperBoundRangeZ3 = jitterUpperBoundRange;
     }
     
     public void setJitterUpperBoundRangeZ3(Context ctx, float auxJitterUpperBoundRange) {
-        this.jitterUpperBoundRangeZ3 = ctx.mkReal(String.valueOf(auxJitterUpperBoundRange));
+        this.jitterUpperBoundRangeZ3 = TimeEncoding.mkTime(ctx, auxJitterUpperBoundRange);
+    }
+    
+    public boolean isLazyJitter() {
+        return lazyJitter;
+    }
+    
+    public void setLazyJitter(boolean lazyJitter) {
+        this.lazyJitter = lazyJitter;
     }
     
     public ArrayList<Switch> getSwitches() {
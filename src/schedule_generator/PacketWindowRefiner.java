@@ -0,0 +1,698 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: PacketWindowRefiner
+ * [Usage]: Solves the network with only the first packets of each flow
+ * (its packet window) given to z3, instead of every packet of the hyper
+ * cycle. After each solve, the cycles, slots and priorities found are used
+ * by a simulation written in plain Java to compute the packets left out,
+ * and to check them against the slots, the other packets of the same
+ * priority, the hard constraints and the jitter bound. Flows whose packets
+ * fail these checks have their window widened up to the first failing
+ * packet, and the network is solved again.
+ *
+ * Windows always start at the first packet, since the links between hops
+ * and the average latency of the jitter rules are written over packets
+ * 0 to n - 1. The rules of each round are asserted on a solver scope of
+ * their own, so the variables of the network and the rules that do not
+ * depend on the windows are kept between rounds.
+ *
+ * Once the simulation finds no conflict, the times it computed are given
+ * to z3 for the packets outside of the windows, so the schedule is read
+ * from the model as usual. If the maximum number of rounds is reached,
+ * or the windows turn out unsatisfiable, the network is solved with every
+ * packet, as done without the refiner.
+ */
+public class PacketWindowRefiner {
+
+    private static final float TOLERANCE = 0.001f; // Rounding allowed when comparing times of the simulation
+
+    private int initialWindow = 2;
+    private int maxRounds = 10;
+    private int rounds = 0;
+
+    private IdentityHashMap<Flow, Integer> windows = new IdentityHashMap<Flow, Integer>();
+    private IdentityHashMap<FlowFragment, Integer> numOfPackets = new IdentityHashMap<FlowFragment, Integer>();
+    private IdentityHashMap<Flow, Integer> firstConflicts = new IdentityHashMap<Flow, Integer>();
+
+    // Values of the last model and results of the simulation
+    private IdentityHashMap<FlowFragment, Port> ports = new IdentityHashMap<FlowFragment, Port>();
+    private IdentityHashMap<FlowFragment, FlowFragment> previousFragments = new IdentityHashMap<FlowFragment, FlowFragment>();
+    private IdentityHashMap<FlowFragment, ArrayList<FlowFragment>> nextFragments = new IdentityHashMap<FlowFragment, ArrayList<FlowFragment>>();
+    private IdentityHashMap<FlowFragment, Integer> priorities = new IdentityHashMap<FlowFragment, Integer>();
+    private IdentityHashMap<FlowFragment, Float> transmissionTimes = new IdentityHashMap<FlowFragment, Float>();
+    private IdentityHashMap<FlowFragment, float[][]> slotWindows = new IdentityHashMap<FlowFragment, float[][]>();
+    private IdentityHashMap<FlowFragment, float[]> scheduledTimes = new IdentityHashMap<FlowFragment, float[]>();
+    private IdentityHashMap<Flow, Float> firstDepartures = new IdentityHashMap<Flow, Float>();
+
+    // Transmissions ({start, end, arrival}) of each priority of each port
+    private IdentityHashMap<Port, HashMap<Integer, ArrayList<float[]>>> transmissions = new IdentityHashMap<Port, HashMap<Integer, ArrayList<float[]>>>();
+
+
+    /**
+     * [Method]: PacketWindowRefiner
+     * [Usage]: Default constructor of this class. Windows start with
+     * 2 packets and up to 10 rounds are made.
+     */
+    public PacketWindowRefiner() {
+
+    }
+
+
+    /**
+     * [Method]: PacketWindowRefiner
+     * [Usage]: Overloaded constructor of this class.
+     *
+     * @param initialWindow     Number of packets of each flow given to z3 on the first round
+     * @param maxRounds         Rounds made before every packet is given to z3
+     */
+    public PacketWindowRefiner(int initialWindow, int maxRounds) {
+        this.initialWindow = initialWindow;
+        this.maxRounds = maxRounds;
+    }
+
+
+    /**
+     * [Method]: check
+     * [Usage]: Sets up the packet rules of the network (see
+     * Network.secureHC) round by round, widening the windows of the flows
+     * in conflict, until the simulation accepts the schedule. Must be
+     * called on a solver holding the network configured without these
+     * rules (see ScheduleGenerator.configureNetwork).
+     *
+     * The solver is left with the rules of the last round, so the model
+     * and the unsat core can be retrieved as usual. If a constraint
+     * tracker is registered on the context, its literals are asserted on
+     * a scope of their own, above the rules, as done by the schedule
+     * generator.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver with the network configured
+     * @param ctx       Context of the solver
+     * @return          Status of the last check
+     */
+    public Status check(Network net, Solver solver, Context ctx) {
+        ConstraintTracker tracker = ConstraintTracker.forContext(ctx);
+        Status status = null;
+
+        this.windows.clear();
+        this.numOfPackets.clear();
+        this.rounds = 0;
+
+        for(Flow flw : net.getFlows()) {
+            int flowPackets = 0;
+
+            for(FlowFragment frag : this.getFragments(flw)) {
+                this.numOfPackets.put(frag, frag.getNumOfPacketsSent());
+                flowPackets = Math.max(flowPackets, frag.getNumOfPacketsSent());
+            }
+
+            this.windows.put(flw, Math.min(this.initialWindow, flowPackets));
+        }
+
+        while(true) {
+            boolean fullWindows = this.rounds >= this.maxRounds - 1 || this.hasFullWindows(net);
+
+            if(this.rounds >= this.maxRounds - 1) {
+                this.widenAll(net);
+            }
+
+            this.rounds++;
+            this.applyWindows(net);
+
+            solver.push();
+            net.secureHC(solver, ctx);
+            if(tracker != null) {
+                tracker.enable(solver);
+            }
+
+            status = solver.check();
+
+            System.out.println("Packet window round " + this.rounds + ": " + this.countWindowPackets(net) +
+                " of " + this.countPackets() + " packets given to z3 (" + status + ").");
+
+            if(fullWindows) {
+                break;
+            }
+
+            if(status == Status.SATISFIABLE) {
+                this.simulate(net, new ModelReader(solver.getModel()), ctx);
+
+                if(this.firstConflicts.isEmpty()) {
+                    status = this.completeSchedule(net, solver, ctx);
+
+                    if(status == Status.SATISFIABLE) {
+                        return status;
+                    }
+
+                    System.out.println("Simulated packets rejected by the solver.");
+                    this.widenAll(net);
+                } else {
+                    System.out.println("  " + this.firstConflicts.size() + " flows with conflicting packets.");
+                    this.widen();
+                }
+            } else {
+                // Jitter rules over part of the packets are not a relaxation of the full rules
+                this.widenAll(net);
+            }
+
+            solver.pop();
+        }
+
+        this.restorePackets(net);
+
+        // The rules are moved under the tracker scope, which is dropped before the diagnosis
+        if(status == Status.UNSATISFIABLE && tracker != null) {
+            solver.pop();
+            net.secureHC(solver, ctx);
+            solver.push();
+            tracker.enable(solver);
+        }
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: applyWindows
+     * [Usage]: Sets the number of packets of the fragments and flows to
+     * the windows of the flows.
+     *
+     * @param net       Network being scheduled
+     */
+    private void applyWindows(Network net) {
+        for(Flow flw : net.getFlows()) {
+            int flowPackets = 0;
+
+            for(FlowFragment frag : this.getFragments(flw)) {
+                frag.setNumOfPacketsSent(Math.min(this.windows.get(flw), this.numOfPackets.get(frag)));
+                flowPackets = Math.max(flowPackets, frag.getNumOfPacketsSent());
+            }
+
+            flw.setNumOfPacketsSent(flowPackets);
+        }
+    }
+
+
+    /**
+     * [Method]: restorePackets
+     * [Usage]: Gives back every packet of the hyper cycle to the
+     * fragments and flows.
+     *
+     * @param net       Network being scheduled
+     */
+    private void restorePackets(Network net) {
+        for(Flow flw : net.getFlows()) {
+            int flowPackets = 0;
+
+            for(FlowFragment frag : this.getFragments(flw)) {
+                frag.setNumOfPacketsSent(this.numOfPackets.get(frag));
+                flowPackets = Math.max(flowPackets, frag.getNumOfPacketsSent());
+            }
+
+            flw.setNumOfPacketsSent(flowPackets);
+        }
+    }
+
+
+    /**
+     * [Method]: widen
+     * [Usage]: Widens the windows of the flows in conflict, so they
+     * cover their first conflicting packet. Windows always grow by at
+     * least one packet.
+     */
+    private void widen() {
+        for(Flow flw : this.firstConflicts.keySet()) {
+            int window = Math.max(this.windows.get(flw) + 1, this.firstConflicts.get(flw) + 1);
+
+            this.windows.put(flw, window);
+        }
+    }
+
+
+    private void widenAll(Network net) {
+        for(Flow flw : net.getFlows()) {
+            this.windows.put(flw, Integer.MAX_VALUE);
+        }
+    }
+
+
+    private boolean hasFullWindows(Network net) {
+        for(Flow flw : net.getFlows()) {
+            for(FlowFragment frag : this.getFragments(flw)) {
+                if(this.windows.get(flw) < this.numOfPackets.get(frag)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: simulate
+     * [Usage]: Computes the times of every packet of the hyper cycle from
+     * the cycles, slots and priorities of a model. Packets inside the
+     * windows keep the times of the model. The others are taken in order
+     * of arrival, each one transmitted on the earliest slot of its
+     * priority after the packets of the same priority that arrived
+     * before it. Packets that find no slot, that are transmitted before
+     * a packet of the same priority that arrived earlier, or that break
+     * the hard constraint or the jitter bound of their flow are stored as
+     * conflicts (first conflicting packet of each flow).
+     *
+     * @param net       Network being scheduled
+     * @param reader    Reader of the model of the last round
+     * @param ctx       Context of the solver
+     */
+    private void simulate(Network net, ModelReader reader, Context ctx) {
+        PriorityQueue<PendingPacket> pending = new PriorityQueue<PendingPacket>(11, new Comparator<PendingPacket>() {
+            public int compare(PendingPacket a, PendingPacket b) {
+                return Float.compare(a.arrival, b.arrival);
+            }
+        });
+
+        this.firstConflicts.clear();
+        this.ports.clear();
+        this.previousFragments.clear();
+        this.nextFragments.clear();
+        this.priorities.clear();
+        this.transmissionTimes.clear();
+        this.slotWindows.clear();
+        this.scheduledTimes.clear();
+        this.firstDepartures.clear();
+        this.transmissions.clear();
+
+        for(Flow flw : net.getFlows()) {
+            this.firstDepartures.put(flw, reader.evalTime(flw.getStartDevice().getFirstT1TimeZ3()));
+
+            for(PathNode child : flw.getPathTree().getRoot().getChildren()) {
+                this.readNode(child, null, reader, ctx);
+            }
+        }
+
+        // Packets of the windows are placed first, as given by the model
+        for(FlowFragment frag : this.ports.keySet()) {
+            Port port = this.ports.get(frag);
+
+            for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+                float scheduledTime = reader.evalTime(port.scheduledTime(ctx, i, frag));
+
+                this.scheduledTimes.get(frag)[i] = scheduledTime;
+                this.getTransmissions(frag).add(new float[] {
+                    scheduledTime - this.transmissionTimes.get(frag),
+                    scheduledTime,
+                    reader.evalTime(port.arrivalTime(ctx, i, frag))
+                });
+            }
+        }
+
+        for(FlowFragment frag : this.ports.keySet()) {
+            Port port = this.ports.get(frag);
+            Flow flw = frag.getParent();
+
+            if(this.previousFragments.get(frag) == null) {
+                for(int i = frag.getNumOfPacketsSent(); i < this.numOfPackets.get(frag); i++) {
+                    float departure = this.firstDepartures.get(flw) + TimeEncoding.toGrid(flw.getStartDevice().getPacketPeriodicity() * i);
+
+                    pending.add(new PendingPacket(frag, i, departure + TimeEncoding.toGrid(port.getTimeToTravel())));
+                }
+            }
+
+            for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+                this.addNextPackets(frag, i, pending);
+            }
+        }
+
+        while(!pending.isEmpty()) {
+            PendingPacket packet = pending.poll();
+
+            if(this.placePacket(packet)) {
+                this.addNextPackets(packet.frag, packet.index, pending);
+            }
+        }
+
+        this.checkFlows(net, reader);
+    }
+
+
+    /**
+     * [Method]: readNode
+     * [Usage]: Reads from the model the priority, transmission time and
+     * slots of the fragments of a node of a path tree and of the nodes
+     * under it, and links each fragment to the fragments of the next hop.
+     *
+     * @param node          Current node (should start with the first switch)
+     * @param previous      Fragment that brings the packets to the node (null on the first switch)
+     * @param reader        Reader of the model of the last round
+     * @param ctx           Context of the solver
+     */
+    private void readNode(PathNode node, FlowFragment previous, ModelReader reader, Context ctx) {
+        if(!(node.getNode() instanceof TSNSwitch)) {
+            return;
+        }
+
+        for(FlowFragment frag : node.getFlowFragments()) {
+            Port port = ((TSNSwitch) node.getNode()).getPortOf(frag.getNextHop());
+            Cycle cycle = port.getCycle();
+            float firstCycleStart = reader.evalTime(cycle.getFirstCycleStartZ3());
+            float cycleDuration = reader.evalTime(cycle.getCycleDurationZ3());
+            ArrayList<float[]> windowList = new ArrayList<float[]>();
+
+            for(int j = 0; j < port.getCycleUpperBoundRange(); j++) {
+                for(int index = 0; index < cycle.getNumOfSlots(); index++) {
+                    float slotStart = reader.evalTime(cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), index));
+                    float slotDuration = reader.evalTime(cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), index));
+
+                    if(slotDuration > 0) {
+                        windowList.add(new float[] {
+                            firstCycleStart + cycleDuration * j + slotStart,
+                            firstCycleStart + cycleDuration * j + slotStart + slotDuration
+                        });
+                    }
+                }
+            }
+
+            float[][] windowArray = windowList.toArray(new float[windowList.size()][]);
+            Arrays.sort(windowArray, new Comparator<float[]>() {
+                public int compare(float[] a, float[] b) {
+                    return Float.compare(a[0], b[0]);
+                }
+            });
+
+            this.ports.put(frag, port);
+            this.previousFragments.put(frag, previous);
+            this.nextFragments.put(frag, new ArrayList<FlowFragment>());
+            this.priorities.put(frag, reader.evalInt(frag.getFragmentPriorityZ3()));
+            this.transmissionTimes.put(frag, reader.evalTime(port.transmissionTimeZ3(ctx, frag)));
+            this.slotWindows.put(frag, windowArray);
+            this.scheduledTimes.put(frag, this.newTimes(this.numOfPackets.get(frag)));
+
+            if(previous != null) {
+                this.nextFragments.get(previous).add(frag);
+            }
+        }
+
+        // Each fragment of a switch leads to the child on the same position
+        int index = 0;
+        for(FlowFragment frag : node.getFlowFragments()) {
+            this.readNode(node.getChildren().get(index), frag, reader, ctx);
+            index++;
+        }
+    }
+
+
+    /**
+     * [Method]: placePacket
+     * [Usage]: Computes the scheduled time of a packet left out of the
+     * windows, storing a conflict if it can not be transmitted.
+     *
+     * @param packet    Packet to be placed
+     * @return          True if the packet was placed
+     */
+    private boolean placePacket(PendingPacket packet) {
+        ArrayList<float[]> queue = this.getTransmissions(packet.frag);
+        float transmissionTime = this.transmissionTimes.get(packet.frag);
+        float ready = packet.arrival;
+        float scheduledTime = -1;
+
+        // First in, first out: waits for the packets of the same priority that arrived before
+        for(float[] transmission : queue) {
+            if(transmission[2] <= packet.arrival) {
+                ready = Math.max(ready, transmission[1]);
+            }
+        }
+
+        for(float[] window : this.slotWindows.get(packet.frag)) {
+            float start = Math.max(ready, window[0]);
+
+            if(start + transmissionTime <= window[1] + TOLERANCE) {
+                scheduledTime = start + transmissionTime;
+                break;
+            }
+        }
+
+        if(scheduledTime < 0) {
+            this.addConflict(packet.frag.getParent(), packet.index);
+            return false;
+        }
+
+        for(float[] transmission : queue) {
+            if(transmission[2] > packet.arrival && transmission[0] < scheduledTime - TOLERANCE) {
+                this.addConflict(packet.frag.getParent(), packet.index);
+                return false;
+            }
+        }
+
+        queue.add(new float[] {scheduledTime - transmissionTime, scheduledTime, packet.arrival});
+        this.scheduledTimes.get(packet.frag)[packet.index] = scheduledTime;
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: addNextPackets
+     * [Usage]: Adds to the pending packets the packets of the next hops
+     * that depart when the given packet is scheduled. Fragments with more
+     * packets than the previous one repeat its packets on the following
+     * cycles, as done by Port.departureTime.
+     *
+     * @param frag      Fragment of the scheduled packet
+     * @param index     Index of the scheduled packet
+     * @param pending   Packets waiting to be placed
+     */
+    private void addNextPackets(FlowFragment frag, int index, PriorityQueue<PendingPacket> pending) {
+        float scheduledTime = this.scheduledTimes.get(frag)[index];
+        int packets = this.numOfPackets.get(frag);
+        Port port = this.ports.get(frag);
+        float cycleSize = port.getMicroCycleSize() != -1 ? port.getMicroCycleSize() : port.getDefinedHyperCycleSize();
+
+        for(FlowFragment nextFrag : this.nextFragments.get(frag)) {
+            Port nextPort = this.ports.get(nextFrag);
+
+            for(int i = index; i < this.numOfPackets.get(nextFrag); i += packets) {
+                if(i >= nextFrag.getNumOfPacketsSent()) {
+                    pending.add(new PendingPacket(
+                        nextFrag,
+                        i,
+                        scheduledTime + ((i - index) / packets) * cycleSize + TimeEncoding.toGrid(nextPort.getTimeToTravel())
+                    ));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * [Method]: checkFlows
+     * [Usage]: Checks the hard constraint and the jitter bound of every
+     * packet reaching the subscribers of the flows.
+     *
+     * @param net       Network being scheduled
+     * @param reader    Reader of the model of the last round
+     */
+    private void checkFlows(Network net, ModelReader reader) {
+        float jitterUpperBound = reader.evalTime(net.getJitterUpperBoundRangeZ3());
+
+        for(FlowFragment frag : this.ports.keySet()) {
+            Flow flw = frag.getParent();
+            float[] scheduled = this.scheduledTimes.get(frag);
+            float[] latencies = new float[scheduled.length];
+            float averageLatency = 0;
+
+            // Flows with packets left unplaced are already in conflict
+            if(!this.nextFragments.get(frag).isEmpty() || this.firstConflicts.containsKey(flw)) {
+                continue;
+            }
+
+            for(int i = 0; i < scheduled.length; i++) {
+                latencies[i] = scheduled[i] - this.firstDepartures.get(flw) -
+                    TimeEncoding.toGrid(flw.getStartDevice().getPacketPeriodicity() * i);
+                averageLatency += latencies[i] / latencies.length;
+
+                if(latencies[i] > flw.getStartDevice().getHardConstraintTime() + TOLERANCE) {
+                    this.addConflict(flw, i);
+                }
+            }
+
+            for(int i = 0; i < latencies.length; i++) {
+                if(Math.abs(latencies[i] - averageLatency) > jitterUpperBound + TOLERANCE) {
+                    this.addConflict(flw, i);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * [Method]: completeSchedule
+     * [Usage]: Gives every packet back to the fragments and fixes the
+     * scheduled times of the packets outside of the windows to the ones
+     * found by the simulation, so the model holds the whole schedule.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver with the rules of the last round
+     * @param ctx       Context of the solver
+     * @return          Status of the solver with the simulated times fixed
+     */
+    private Status completeSchedule(Network net, Solver solver, Context ctx) {
+        BoolExpr pin = ctx.mkBoolConst("packetWindowSchedule");
+        IdentityHashMap<FlowFragment, Integer> windowPackets = new IdentityHashMap<FlowFragment, Integer>();
+
+        for(FlowFragment frag : this.ports.keySet()) {
+            windowPackets.put(frag, frag.getNumOfPacketsSent());
+        }
+
+        this.restorePackets(net);
+
+        for(FlowFragment frag : this.ports.keySet()) {
+            Port port = this.ports.get(frag);
+
+            for(int i = windowPackets.get(frag); i < this.numOfPackets.get(frag); i++) {
+                solver.add(ctx.mkImplies(pin, ctx.mkEq(
+                    port.scheduledTime(ctx, i, frag),
+                    TimeEncoding.mkGridTime(ctx, this.scheduledTimes.get(frag)[i])
+                )));
+            }
+        }
+
+        Status status = solver.check(pin);
+
+        if(status != Status.SATISFIABLE) {
+            this.applyWindows(net);
+        }
+
+        return status;
+    }
+
+
+    private void addConflict(Flow flw, int index) {
+        if(!this.firstConflicts.containsKey(flw) || this.firstConflicts.get(flw) > index) {
+            this.firstConflicts.put(flw, index);
+        }
+    }
+
+
+    private ArrayList<float[]> getTransmissions(FlowFragment frag) {
+        Port port = this.ports.get(frag);
+        int priority = this.priorities.get(frag);
+
+        if(!this.transmissions.containsKey(port)) {
+            this.transmissions.put(port, new HashMap<Integer, ArrayList<float[]>>());
+        }
+        if(!this.transmissions.get(port).containsKey(priority)) {
+            this.transmissions.get(port).put(priority, new ArrayList<float[]>());
+        }
+
+        return this.transmissions.get(port).get(priority);
+    }
+
+
+    private ArrayList<FlowFragment> getFragments(Flow flw) {
+        ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+        ArrayList<PathNode> nodes = new ArrayList<PathNode>();
+
+        nodes.add(flw.getPathTree().getRoot());
+
+        while(!nodes.isEmpty()) {
+            PathNode node = nodes.remove(nodes.size() - 1);
+
+            fragments.addAll(node.getFlowFragments());
+            nodes.addAll(node.getChildren());
+        }
+
+        return fragments;
+    }
+
+
+    private int countPackets() {
+        int packets = 0;
+
+        for(int fragPackets : this.numOfPackets.values()) {
+            packets += fragPackets;
+        }
+
+        return packets;
+    }
+
+
+    private int countWindowPackets(Network net) {
+        int packets = 0;
+
+        for(Flow flw : net.getFlows()) {
+            for(FlowFragment frag : this.getFragments(flw)) {
+                packets += frag.getNumOfPacketsSent();
+            }
+        }
+
+        return packets;
+    }
+
+
+    private float[] newTimes(int size) {
+        float[] times = new float[size];
+
+        Arrays.fill(times, Float.NaN);
+
+        return times;
+    }
+
+
+    /**
+     * [Class]: PendingPacket
+     * [Usage]: Packet of the simulation waiting to be placed on the port
+     * of its fragment.
+     */
+    private static class PendingPacket {
+        FlowFragment frag;
+        int index;
+        float arrival;
+
+        PendingPacket(FlowFragment frag, int index, float arrival) {
+            this.frag = frag;
+            this.index = index;
+            this.arrival = arrival;
+        }
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getInitialWindow() {
+        return initialWindow;
+    }
+
+    public void setInitialWindow(int initialWindow) {
+        this.initialWindow = initialWindow;
+    }
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public IdentityHashMap<Flow, Integer> getWindows() {
+        return windows;
+    }
+
+}
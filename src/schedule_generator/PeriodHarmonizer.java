@@ -0,0 +1,206 @@
+package schedule_generator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * [Class]: PeriodHarmonizer
+ * [Usage]: Optional pre-pass that keeps hyper cycles small. The number
+ * of packets scheduled on a port is the hyper cycle (least common multiple
+ * of the periods) divided by each period, so a single odd period can
+ * multiply the number of rules given to z3.
+ *
+ * The periods of the start devices of the flows are snapped down to the
+ * harmonic set {base * 2^k}, as long as the change is within the tolerance
+ * of the flow (a fraction of its period). Periods are only made shorter,
+ * so every flow still sends at least as often as requested. Periods that
+ * can not be snapped within their tolerance are kept.
+ *
+ * The resulting hyper cycle and an estimate of the reduction of the number
+ * of rules are printed before the schedule is generated.
+ */
+public class PeriodHarmonizer {
+
+    private float basePeriod = -1; // If not set, the shortest period of the network is used
+    private float defaultTolerance;
+    private HashMap<Flow, Float> tolerances = new HashMap<Flow, Float>();
+    private HashMap<Flow, Float> originalPeriods = new HashMap<Flow, Float>();
+
+
+    /**
+     * [Method]: PeriodHarmonizer
+     * [Usage]: Overloaded constructor of this class. The shortest
+     * period of the network is used as base.
+     *
+     * @param defaultTolerance  Fraction of its period a flow may be shortened by
+     */
+    public PeriodHarmonizer(float defaultTolerance) {
+        this.defaultTolerance = defaultTolerance;
+    }
+
+
+    /**
+     * [Method]: PeriodHarmonizer
+     * [Usage]: Overloaded constructor of this class.
+     *
+     * @param basePeriod        Base of the harmonic set of periods
+     * @param defaultTolerance  Fraction of its period a flow may be shortened by
+     */
+    public PeriodHarmonizer(float basePeriod, float defaultTolerance) {
+        this.basePeriod = basePeriod;
+        this.defaultTolerance = defaultTolerance;
+    }
+
+
+    /**
+     * [Method]: setTolerance
+     * [Usage]: Sets the tolerance of a single flow, overriding the
+     * default tolerance.
+     *
+     * @param flw           Flow whose period may be changed
+     * @param tolerance     Fraction of its period the flow may be shortened by (0 keeps it)
+     */
+    public void setTolerance(Flow flw, float tolerance) {
+        this.tolerances.put(flw, tolerance);
+    }
+
+
+    /**
+     * [Method]: harmonize
+     * [Usage]: Snaps the periods of the flows of a network to the
+     * harmonic set and prints the hyper cycle and packet count before
+     * and after. Must be called before the schedule is generated.
+     *
+     * @param net       Network whose periods are harmonized
+     */
+    public void harmonize(Network net) {
+        ArrayList<Float> periodsBefore = new ArrayList<Float>();
+        ArrayList<Float> periodsAfter = new ArrayList<Float>();
+        float base = this.basePeriod;
+
+        if(net.getFlows().isEmpty()) {
+            return;
+        }
+
+        if(base <= 0) {
+            base = Float.MAX_VALUE;
+
+            for(Flow flw : net.getFlows()) {
+                base = Math.min(base, flw.getStartDevice().getPacketPeriodicity());
+            }
+        }
+
+        for(Flow flw : net.getFlows()) {
+            Device dev = flw.getStartDevice();
+            float period = dev.getPacketPeriodicity();
+            float tolerance = this.tolerances.containsKey(flw) ? this.tolerances.get(flw) : this.defaultTolerance;
+            float harmonicPeriod = this.harmonicPeriod(period, base);
+
+            periodsBefore.add(period);
+
+            if(harmonicPeriod > 0 && period - harmonicPeriod <= tolerance * period) {
+                if(harmonicPeriod != period) {
+                    System.out.println("Period of " + flw.getName() + " changed from " + period + " to " + harmonicPeriod);
+                    this.originalPeriods.put(flw, period);
+                    dev.setPacketPeriodicity(harmonicPeriod);
+                }
+                periodsAfter.add(harmonicPeriod);
+            } else {
+                periodsAfter.add(period);
+            }
+        }
+
+        BigDecimal hyperCycleBefore = Port.findLCM(new ArrayList<Float>(periodsBefore));
+        BigDecimal hyperCycleAfter = Port.findLCM(new ArrayList<Float>(periodsAfter));
+        double packetsBefore = this.packetsInHyperCycle(hyperCycleBefore, periodsBefore);
+        double packetsAfter = this.packetsInHyperCycle(hyperCycleAfter, periodsAfter);
+
+        System.out.println("Hyper cycle of the network: " + hyperCycleBefore + " -> " + hyperCycleAfter);
+        System.out.println("Packets per hyper cycle: " + (long) packetsBefore + " -> " + (long) packetsAfter);
+
+        // Packet ordering rules are built for every pair of packets sharing a port
+        System.out.println("Estimated reduction of the packet rules: " +
+            String.format("%.1f", (packetsBefore * packetsBefore) / (packetsAfter * packetsAfter)) + "x");
+    }
+
+
+    /**
+     * [Method]: restore
+     * [Usage]: Gives back the original periods of the flows changed by
+     * the last call to harmonize.
+     */
+    public void restore() {
+        for(Flow flw : this.originalPeriods.keySet()) {
+            flw.getStartDevice().setPacketPeriodicity(this.originalPeriods.get(flw));
+        }
+
+        this.originalPeriods.clear();
+    }
+
+
+    /**
+     * [Method]: harmonicPeriod
+     * [Usage]: Largest value of the form base * 2^k that is not longer
+     * than the given period.
+     *
+     * @param period    Period to be snapped
+     * @param base      Base of the harmonic set
+     * @return          Harmonic period, or -1 if the period is shorter than any value of the set
+     */
+    private float harmonicPeriod(float period, float base) {
+        float harmonicPeriod = base;
+
+        while(harmonicPeriod > period) {
+            harmonicPeriod = harmonicPeriod / 2;
+
+            if(harmonicPeriod < base / 1024) {
+                return -1;
+            }
+        }
+
+        while(harmonicPeriod * 2 <= period) {
+            harmonicPeriod = harmonicPeriod * 2;
+        }
+
+        return harmonicPeriod;
+    }
+
+
+    private double packetsInHyperCycle(BigDecimal hyperCycle, ArrayList<Float> periods) {
+        double packets = 0;
+
+        for(float period : periods) {
+            packets += hyperCycle.divide(new BigDecimal(Float.toString(period)), 0, RoundingMode.HALF_UP).doubleValue();
+        }
+
+        return packets;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public float getBasePeriod() {
+        return basePeriod;
+    }
+
+    public void setBasePeriod(float basePeriod) {
+        this.basePeriod = basePeriod;
+    }
+
+    public float getDefaultTolerance() {
+        return defaultTolerance;
+    }
+
+    public void setDefaultTolerance(float defaultTolerance) {
+        this.defaultTolerance = defaultTolerance;
+    }
+
+    public HashMap<Flow, Float> getOriginalPeriods() {
+        return originalPeriods;
+    }
+
+}
@@ -1,13 +1,15 @@
 package schedule_generator;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.Vector;
 
+import com.microsoft.z3.ArithExpr;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import com.microsoft.z3.Expr;
@@ -33,6 +35,17 @@ import com.microsoft.z3.Solver;
 public class Port implements Serializable {
 
 	private static final long serialVersionUID = 1L;
+	
+	// Scheduling stops if a hyper cycle holds more packets than this (see checkHyperCycleSize)
+	public static int MAX_PACKETS_PER_HYPER_CYCLE = 10000;
+	
+	public static final int UNROLLED_CYCLES = 0; // Scheduling rules repeated for every micro cycle of the hyper cycle
+	public static final int INDEXED_CYCLES = 1;  // One integer cycle index per packet (see usesCycleIndices)
+	public static int CYCLE_ENCODING = UNROLLED_CYCLES;
+	
+	private static final String ARRIVAL_CYCLE = "ArrivalCycle";
+	private static final String SCHEDULED_CYCLE = "ScheduledCycle";
+	
 	private Boolean useMicroCycles = true;
     private Boolean useHyperCycle = false;
     
@@ -44,7 +57,7 @@ public class Port implements Serializable {
     private String connectsTo;
     
     private float bestEffortPercent = 0.5f;
-    transient RealExpr bestEffortPercentZ3;
+    transient ArithExpr bestEffortPercentZ3;
     
     private Cycle cycle;
     private ArrayList<FlowFragment> flowFragments;
@@ -59,11 +72,11 @@ public class Port implements Serializable {
     protected float portSpeed;
     protected int portNum;
 
-	private transient RealExpr gbSizeZ3; // Size of the guardBand
-    protected transient RealExpr maxPacketSizeZ3;
-    protected transient RealExpr timeToTravelZ3;
-    protected transient RealExpr transmissionTimeZ3;
-    protected transient RealExpr portSpeedZ3;
+	private transient ArithExpr gbSizeZ3; // Size of the guardBand
+    protected transient ArithExpr maxPacketSizeZ3;
+    protected transient ArithExpr timeToTravelZ3;
+    protected transient ArithExpr transmissionTimeZ3;
+    protected transient ArithExpr portSpeedZ3;
     
     
     /**
@@ -111,12 +124,14 @@ public class Port implements Serializable {
      * @param ctx      Context variable containing the z3 environment used
      */
     public void toZ3(Context ctx) {
-        this.gbSizeZ3 = ctx.mkReal(Float.toString(gbSize));
-        this.maxPacketSizeZ3 = ctx.mkReal(Float.toString(this.maxPacketSize));
-        this.timeToTravelZ3 = ctx.mkReal(Float.toString(this.timeToTravel));
-        this.transmissionTimeZ3 = ctx.mkReal(Float.toString(this.transmissionTime));
-        this.portSpeedZ3 = ctx.mkReal(Float.toString(portSpeed));
-        this.bestEffortPercentZ3 = ctx.mkReal(Float.toString(bestEffortPercent));
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        
+        this.gbSizeZ3 = TimeEncoding.mkTime(ctx, gbSize);
+        this.maxPacketSizeZ3 = cache.mkReal(this.maxPacketSize);
+        this.timeToTravelZ3 = TimeEncoding.mkTime(ctx, this.timeToTravel);
+        this.transmissionTimeZ3 = TimeEncoding.mkTime(ctx, this.transmissionTime);
+        this.portSpeedZ3 = cache.mkReal(portSpeed);
+        this.bestEffortPercentZ3 = cache.mkReal(bestEffortPercent);
         
         if(this.cycle.getFirstCycleStartZ3() == null) {
         	this.cycle.toZ3(ctx);
@@ -138,53 +153,62 @@ public class Port implements Serializable {
         for(FlowFragment frag : this.flowFragments) {
         	for(int index = 0; index < this.cycle.getNumOfSlots(); index++) {
                 IntExpr flowPriority = frag.getFragmentPriorityZ3();
-                IntExpr indexZ3 = ctx.mkInt(index);
                 
                 // A slot will be somewhere between 0 and the end of the cycle minus its duration (Slot in cycle constraint)
-                solver.add(ctx.mkGe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), ctx.mkInt(0)));
-                solver.add(
-                    ctx.mkLe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+                ConstraintTracker.add(solver, ctx, ctx.mkGe(cycle.slotStartZ3(ctx, flowPriority, index), TimeEncoding.mkTime(ctx, 0)),
+                    ConstraintTracker.SLOT_IN_CYCLE, frag.getParent().getName(), this.name);
+                ConstraintTracker.add(solver, ctx,
+                    ctx.mkLe(cycle.slotStartZ3(ctx, flowPriority, index), 
                         ctx.mkSub(
                             cycle.getCycleDurationZ3(),
-                            cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+                            cycle.slotDurationZ3(ctx, flowPriority, index)
                         )
-                    )
+                    ),
+                    ConstraintTracker.SLOT_IN_CYCLE, frag.getParent().getName(), this.name
                 );
                  
                 // Every slot duration is greater or equal 0 and lower or equal than the maximum (Slot duration constraint)
-                solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), ctx.mkInt(0)));
-                solver.add(ctx.mkLe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), cycle.getMaximumSlotDurationZ3()));
+                solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowPriority, index), TimeEncoding.mkTime(ctx, 0)));
+                solver.add(ctx.mkLe(cycle.slotDurationZ3(ctx, flowPriority, index), cycle.getMaximumSlotDurationZ3()));
                 
                 //Every slot must fit inside a cycle
-                solver.add(
+                ConstraintTracker.add(solver, ctx,
                     ctx.mkGe(
                         cycle.getCycleDurationZ3(), 
                         ctx.mkAdd(
-                            cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
-                            cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+                            cycle.slotStartZ3(ctx, flowPriority, index), 
+                            cycle.slotDurationZ3(ctx, flowPriority, index)
                         )
-                    )
+                    ),
+                    ConstraintTracker.SLOT_IN_CYCLE, frag.getParent().getName(), this.name
                 );
                 
                 /*
                  * If the priority of the fragments are the same, then the start and duration
                  * of a slot is also the same (needs to be specified due to z3 variable naming
                  * properties) (Same priority, same slot constraint)
+                 * 
+                 * When slots are encoded as functions of the priority, this holds
+                 * by congruence and nothing needs to be asserted.
                  */
                 
                 for (FlowFragment auxFrag : this.flowFragments) {
+                    if(cycle.usesSlotFunctions()) {
+                        break;
+                    }
+                    
                     solver.add(
                         ctx.mkImplies(
                             ctx.mkEq(frag.getFragmentPriorityZ3(), auxFrag.getFragmentPriorityZ3()), 
                             ctx.mkAnd(
                                     
                                  ctx.mkEq(
-                                         cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), indexZ3),
-                                         cycle.slotStartZ3(ctx, auxFrag.getFragmentPriorityZ3(), indexZ3)
+                                         cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), index),
+                                         cycle.slotStartZ3(ctx, auxFrag.getFragmentPriorityZ3(), index)
                                  ),
                                  ctx.mkEq(
-                                         cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), indexZ3),
-                                         cycle.slotDurationZ3(ctx, auxFrag.getFragmentPriorityZ3(), indexZ3)
+                                         cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), index),
+                                         cycle.slotDurationZ3(ctx, auxFrag.getFragmentPriorityZ3(), index)
                                  )
                                  
                             )    
@@ -200,7 +224,7 @@ public class Port implements Serializable {
                     
                     IntExpr auxFlowPriority = auxFrag.getFragmentPriorityZ3();
                     
-                    solver.add(
+                    ConstraintTracker.add(solver, ctx,
                         ctx.mkImplies(
                             ctx.mkNot(
                                 ctx.mkEq(
@@ -210,21 +234,22 @@ public class Port implements Serializable {
                             ),
                             ctx.mkOr(
                                 ctx.mkGe(
-                                    cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+                                    cycle.slotStartZ3(ctx, flowPriority, index),
                                     ctx.mkAdd(
-                                        cycle.slotStartZ3(ctx, auxFlowPriority, indexZ3),
-                                        cycle.slotDurationZ3(ctx, auxFlowPriority, indexZ3)
+                                        cycle.slotStartZ3(ctx, auxFlowPriority, index),
+                                        cycle.slotDurationZ3(ctx, auxFlowPriority, index)
                                     )
                                 ), 
                                 ctx.mkLe(
                                     ctx.mkAdd(
-                                        cycle.slotStartZ3(ctx, flowPriority, indexZ3),
-                                        cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+                                        cycle.slotStartZ3(ctx, flowPriority, index),
+                                        cycle.slotDurationZ3(ctx, flowPriority, index)
                                     ),
-                                    cycle.slotStartZ3(ctx, auxFlowPriority, indexZ3)
+                                    cycle.slotStartZ3(ctx, auxFlowPriority, index)
                                 )
                             )
-                        )
+                        ),
+                        ConstraintTracker.NO_OVERLAP, frag.getParent().getName(), this.name
                     );
                 }
                 
@@ -232,8 +257,8 @@ public class Port implements Serializable {
                 if(index < this.cycle.getNumOfSlots() - 1) {
                 	solver.add(
             			ctx.mkLt(
-        					cycle.slotStartZ3(ctx, flowPriority, indexZ3),    
-        					cycle.slotStartZ3(ctx, flowPriority, ctx.mkInt(index + 1))
+        					cycle.slotStartZ3(ctx, flowPriority, index),    
+        					cycle.slotStartZ3(ctx, flowPriority, index + 1)
     					)
         			);
                 }
@@ -266,7 +291,7 @@ public class Port implements Serializable {
 									),
         							ctx.mkNot(
     									ctx.mkEq(
-											cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+											cycle.slotStartZ3(ctx, flowPriority, index), 
 											ctx.mkAdd(
 												cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
 												cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
@@ -274,12 +299,12 @@ public class Port implements Serializable {
 										)
 									),
         							ctx.mkGt(
-    									cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+    									cycle.slotStartZ3(ctx, flowPriority, index), 
     									cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
 									)
     							),
             					ctx.mkGe(
-        							cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+        							cycle.slotStartZ3(ctx, flowPriority, index),
         							ctx.mkAdd(
     									cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
     									cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
@@ -308,25 +333,23 @@ public class Port implements Serializable {
      * @param flowFrag      A fragment of a flow that goes through this port
      */
     private void setupTimeSlots(Solver solver, Context ctx, FlowFragment flowFrag) {
-    	IntExpr indexZ3;
     	
     	// If there is a flow assigned to the slot, slotDuration must be greater than transmission time
     	for(int index = 0; index < this.cycle.getNumOfSlots(); index++) {
     		solver.add(
     			ctx.mkGe(
-					cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index+1)), 
+					cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index+1), 
 					ctx.mkAdd(
-							cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index)),
-							cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index))
+							cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+							cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index)
 					)
 				)
 			);
     	}
     	
     	for(int index = 0; index < this.cycle.getNumOfSlots(); index++) {
-    		indexZ3 = ctx.mkInt(index);
     		
-	        // solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), indexZ3), this.transmissionTimeZ3));
+	        // solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), index), this.transmissionTimeZ3));
 	        
 	        // Every flow must have a priority (Priority assignment constraint)
 	        solver.add(ctx.mkGe(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(0))); 
@@ -336,8 +359,8 @@ public class Port implements Serializable {
 	        solver.add(
 	            ctx.mkLe(
 	                ctx.mkAdd(
-	                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3)
+	                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index)
 	                ), 
 	                cycle.getCycleDurationZ3()
 	            )
@@ -359,24 +382,28 @@ public class Port implements Serializable {
      * @param flowFrag      A fragment of a flow that goes through this port
      */
     private void setupDevPacketTimes(Solver solver, Context ctx, FlowFragment flowFrag) {
+        
+        if(this.usesCycleIndices()) {
+            this.setupCycleIndices(solver, ctx, flowFrag);
+        }
 
         // For the specified range of packets defined by [0, upperBoundRange],
         // apply the scheduling rules.
         for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
             // Make t3 > t2 + transmissionTime
-            solver.add( // Time to Transmit constraint.
+            ConstraintTracker.add(solver, ctx, // Time to Transmit constraint.
                 ctx.mkGe(
                     this.scheduledTime(ctx, i, flowFrag),
-                    ctx.mkAdd(this.arrivalTime(ctx, i, flowFrag), ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3))
-                )
+                    ctx.mkAdd(this.arrivalTime(ctx, i, flowFrag), this.transmissionTimeZ3(ctx, flowFrag))
+                ),
+                ConstraintTracker.TIME_TO_TRANSMIT, flowFrag.getParent().getName(), this.name
             );
             
         }
         
-        IntExpr indexZ3 = null;
-        Expr auxExp = null;
-        Expr auxExp2 = ctx.mkTrue();
-        Expr exp = null;
+        // Predicates are gathered and built with a single n-ary call instead of nesting one level per predicate
+        ArrayList<BoolExpr> orderPredicates = new ArrayList<BoolExpr>();
+        ArrayList<BoolExpr> slotPredicates = new ArrayList<BoolExpr>();
         
         for(FlowFragment auxFragment : this.flowFragments) {
         	
@@ -409,10 +436,6 @@ public class Port implements Serializable {
         	
             for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
                 for(int j = 0; j < auxFragment.getNumOfPacketsSent(); j++) {
-                	if (auxExp == null) {
-                        auxExp = ctx.mkFalse();
-                    }
-                	
                 	if(auxFragment == flowFrag && i == j) {
                         continue;
                     }
@@ -424,7 +447,7 @@ public class Port implements Serializable {
                      * fit one of the three base cases. 
                      * 
                      *****************************************************/
-                    auxExp = ctx.mkOr((BoolExpr) auxExp,
+                    orderPredicates.add(
                             ctx.mkAnd(
                                 ctx.mkAnd(
                                     ctx.mkEq(auxFragment.getFragmentPriorityZ3(), flowFrag.getFragmentPriorityZ3()),
@@ -434,7 +457,7 @@ public class Port implements Serializable {
                                     this.scheduledTime(ctx, j, auxFragment),
                                     ctx.mkAdd(
                                         this.scheduledTime(ctx, i, flowFrag),
-                                        ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                        this.transmissionTimeZ3(ctx, flowFrag)
                                     )
                                 )
                             )
@@ -445,7 +468,7 @@ public class Port implements Serializable {
                 }
                 
                 
-                for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+                for(ArithExpr cycleStart : this.cycleStartsOfPacket(ctx, flowFrag, i, ARRIVAL_CYCLE)) {
                     
                     /*
                     T2 IS INSIDE SLOT, HAS ENOUGH TIME TO TRANSMIT
@@ -457,28 +480,27 @@ public class Port implements Serializable {
                     */
                 	
                 	for(int index = 0; index < this.cycle.getNumOfSlots(); index++) {
-                		indexZ3 = ctx.mkInt(index);
 
                 		/**/
-                		auxExp2 = ctx.mkAnd((BoolExpr) auxExp2, // Arrived during a time slot predicate
+                		slotPredicates.add( // Arrived during a time slot predicate
                                 ctx.mkImplies( 
                                     ctx.mkAnd(
                                         ctx.mkLe(
                                             this.arrivalTime(ctx, i, flowFrag), 
                                             ctx.mkSub(
                                                 ctx.mkAdd( 
-                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                    cycle.cycleStartZ3(ctx, ctx.mkInt(j))
+                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                    cycleStart
                                                 ), 
-                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                                this.transmissionTimeZ3(ctx, flowFrag)
                                             )
                                         ),
                                         ctx.mkGe(
                                             this.arrivalTime(ctx, i, flowFrag), 
                                             ctx.mkAdd( 
-                                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                cycle.cycleStartZ3(ctx, j)
+                                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                cycleStart
                                             )
                                         )
                                     ),    
@@ -486,7 +508,7 @@ public class Port implements Serializable {
                                         this.scheduledTime(ctx, i, flowFrag),
                                         ctx.mkAdd(
                                             this.arrivalTime(ctx, i, flowFrag),
-                                            ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                            this.transmissionTimeZ3(ctx, flowFrag)
                                         )
                                     )
                                 )
@@ -504,54 +526,54 @@ public class Port implements Serializable {
                         */
                 		
                 		if(index == 0) {
-                            auxExp2 = ctx.mkAnd((BoolExpr) auxExp2, // Arrived before slot start constraint
+                            slotPredicates.add( // Arrived before slot start constraint
                                     ctx.mkImplies( 
                                         ctx.mkAnd(
                                             ctx.mkLt(
                                                 this.arrivalTime(ctx, i, flowFrag), 
                                                 ctx.mkAdd(
-                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3), 
-                                                    cycle.cycleStartZ3(ctx, j)
+                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index), 
+                                                    cycleStart
                                                 )
                                             ),
                                             ctx.mkGe(
                                                 this.arrivalTime(ctx, i, flowFrag),
-                                                cycle.cycleStartZ3(ctx, j)
+                                                cycleStart
                                             )
                                         ),
                                         ctx.mkEq( 
                                             this.scheduledTime(ctx, i, flowFrag),
                                             ctx.mkAdd( 
                                                 ctx.mkAdd(
-                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                    cycle.cycleStartZ3(ctx, j)
+                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                    cycleStart
                                                 ),
-                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                                this.transmissionTimeZ3(ctx, flowFrag)
                                             )
                                             
                                         )
                                     )
                                 ); 
                 		} else if (index < this.cycle.getNumOfSlots()) {
-                			auxExp2 = ctx.mkAnd((BoolExpr) auxExp2,
+                			slotPredicates.add(
                                     ctx.mkImplies( 
                                         ctx.mkAnd(
                                             ctx.mkLt(
                                                 this.arrivalTime(ctx, i, flowFrag), 
                                                 ctx.mkAdd(
-                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3), 
-                                                    cycle.cycleStartZ3(ctx, j)
+                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index), 
+                                                    cycleStart
                                                 )
                                             ),
                                             ctx.mkGt(
                                                 this.arrivalTime(ctx, i, flowFrag),
                                                 ctx.mkSub(
                                             		ctx.mkAdd(
-                                                		cycle.cycleStartZ3(ctx, j),
-                                                		cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index - 1)),
-                                                		cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index - 1))                                                    
+                                                		cycleStart,
+                                                		cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index - 1),
+                                                		cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index - 1)                                                    
                                             		),
-                                            		ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                            		this.transmissionTimeZ3(ctx, flowFrag)
                                         		)                                                
                                             )
                                         ),
@@ -559,10 +581,10 @@ public class Port implements Serializable {
                                             this.scheduledTime(ctx, i, flowFrag),
                                             ctx.mkAdd( 
                                                 ctx.mkAdd(
-                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                    cycle.cycleStartZ3(ctx, j)
+                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                    cycleStart
                                                 ),
-                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                                this.transmissionTimeZ3(ctx, flowFrag)
                                             )
                                             
                                         )
@@ -584,27 +606,27 @@ public class Port implements Serializable {
                         */
                 		                		
                 		if(index == this.cycle.getNumOfSlots() - 1) {
-                			auxExp2 = ctx.mkAnd((BoolExpr) auxExp2, // Arrived after slot end constraint
+                			slotPredicates.add( // Arrived after slot end constraint
                 					ctx.mkImplies( 
                                         ctx.mkAnd(
                                             ctx.mkGe(
                                                 this.arrivalTime(ctx, i, flowFrag), 
-                                                cycle.cycleStartZ3(ctx, j)
+                                                cycleStart
                                             ),
                                             ctx.mkLe(
                                                 this.arrivalTime(ctx, i, flowFrag), 
                                                 ctx.mkAdd(
                                             		cycle.getCycleDurationZ3(),
-                                                    cycle.cycleStartZ3(ctx, j)		
+                                                    cycleStart		
                                         		)
                                             )
                                         ),
                                         ctx.mkLe( 
                                             this.scheduledTime(ctx, i, flowFrag),
                                             ctx.mkAdd(
-                                      		    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-                                                cycle.cycleStartZ3(ctx, j)
+                                      		    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+                                                cycleStart
                                             )
                                         )  
                                     )         
@@ -616,15 +638,15 @@ public class Port implements Serializable {
                 		* REVIEW LATER.
                 		
                 		if(j < this.cycleUpperBoundRange - 1 && index == this.cycle.getNumOfSlots() - 1) {
-                			auxExp2 = ctx.mkAnd((BoolExpr) auxExp2, // Arrived after slot end constraint
+                			slotPredicates.add( // Arrived after slot end constraint
                                     ctx.mkImplies( 
                                         ctx.mkAnd(
                                             ctx.mkGt(
                                                 this.arrivalTime(ctx, i, flowFrag), 
                                                 ctx.mkSub(
                                                     ctx.mkAdd(
-                                                        cycle.slotStartZ3(ctx, flowFrag.getFlowPriority(), indexZ3),
-                                                        cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), indexZ3),
+                                                        cycle.slotStartZ3(ctx, flowFrag.getFlowPriority(), index),
+                                                        cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), index),
                                                         cycle.cycleStartZ3(ctx, j)
                                                     ),
                                                     this.transmissionTimeZ3
@@ -643,7 +665,7 @@ public class Port implements Serializable {
                                             this.scheduledTime(ctx, i, flowFrag),
                                             ctx.mkAdd( 
                                                 ctx.mkAdd(
-                                                    cycle.slotStartZ3(ctx, flowFrag.getFlowPriority(), ctx.mkInt(0)),
+                                                    cycle.slotStartZ3(ctx, flowFrag.getFlowPriority(), 0),
                                                     cycle.cycleStartZ3(ctx, j + 1)
                                                 ),
                                                 this.transmissionTimeZ3
@@ -652,15 +674,15 @@ public class Port implements Serializable {
                                     )               
                             ); 
                 		} else if (j == this.cycleUpperBoundRange - 1 && index == this.cycle.getNumOfSlots() - 1) {
-                			auxExp2 = ctx.mkAnd((BoolExpr) auxExp2,
+                			slotPredicates.add(
                                     ctx.mkImplies( 
                                         ctx.mkAnd(
                                             ctx.mkGt(
                                                 this.arrivalTime(ctx, i, flowFrag), 
                                                 ctx.mkSub(
                                                     ctx.mkAdd(
-                                                        cycle.slotStartZ3(ctx, flowFrag.getFlowPriority(), indexZ3),
-                                                        cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), indexZ3),
+                                                        cycle.slotStartZ3(ctx, flowFrag.getFlowPriority(), index),
+                                                        cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), index),
                                                         cycle.cycleStartZ3(ctx, j)
                                                     ),
                                                     this.transmissionTimeZ3
@@ -687,67 +709,61 @@ public class Port implements Serializable {
                 	}
                 }
 
-                //auxExp = ctx.mkOr((BoolExpr)ctx.mkFalse(), (BoolExpr)auxExp2);
-                auxExp = ctx.mkOr((BoolExpr)auxExp, (BoolExpr)auxExp2);
-                
+                // Each packet is asserted on its own, which is the same as asserting the conjunction of all of them
+                orderPredicates.add(ctx.mkAnd(slotPredicates.toArray(new BoolExpr[slotPredicates.size()])));
+                ConstraintTracker.add(solver, ctx, ctx.mkOr(orderPredicates.toArray(new BoolExpr[orderPredicates.size()])),
+                    ConstraintTracker.SLOT_IN_CYCLE, flowFrag.getParent().getName(), this.name);
                 
-                if(exp == null) {
-                    exp = auxExp;
-                } else {
-                    exp = ctx.mkAnd((BoolExpr) exp, (BoolExpr) auxExp);
-                }
-                auxExp = ctx.mkFalse();
-                auxExp2 = ctx.mkTrue();
+                orderPredicates.clear();
+                slotPredicates.clear();
             }
         }
-
-        solver.add((BoolExpr)exp);
         
-        auxExp = null;
-        exp = ctx.mkFalse(); 
+        ArrayList<BoolExpr> slotChoices = new ArrayList<BoolExpr>();
         
         //Every packet must be transmitted inside a timeslot (transmit inside a time slot constraint)
         for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
-            for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+            for(ArithExpr cycleStart : this.cycleStartsOfPacket(ctx, flowFrag, i, SCHEDULED_CYCLE)) {
             	for(int index = 0; index < this.cycle.getNumOfSlots(); index++) {
-            		indexZ3 = ctx.mkInt(index);
-                    auxExp = ctx.mkAnd(
+                    slotChoices.add(
+                        ctx.mkAnd(
                              ctx.mkGe(
 	                            this.scheduledTime(ctx, i, flowFrag), 
 	                            ctx.mkAdd(
-	                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                cycle.cycleStartZ3(ctx, j),
-	                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                cycleStart,
+	                                this.transmissionTimeZ3(ctx, flowFrag)
 	                            )      
   	                        ),
 	                        ctx.mkLe(
 	                            this.scheduledTime(ctx, i, flowFrag), 
 	                            ctx.mkAdd(
-	                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                cycle.cycleStartZ3(ctx, j)
+	                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                cycleStart
 	                            )     
 	                        )                        
+                        )
                     ); 
-	                    
-                    exp = ctx.mkOr((BoolExpr) exp, (BoolExpr) auxExp);
             	}
             }
-            solver.add((BoolExpr) exp);
-            exp = ctx.mkFalse();
+            ConstraintTracker.add(solver, ctx, ctx.mkOr(slotChoices.toArray(new BoolExpr[slotChoices.size()])),
+                ConstraintTracker.SLOT_IN_CYCLE, flowFrag.getParent().getName(), this.name);
+            slotChoices.clear();
         }
         
         
         /**/
         for(int i = 0; i < flowFrag.getNumOfPacketsSent() - 1; i++) {
-            solver.add(
+            ConstraintTracker.add(solver, ctx,
                 ctx.mkGe(
                     this.scheduledTime(ctx, i + 1, flowFrag), 
                     ctx.mkAdd(
                             this.scheduledTime(ctx, i, flowFrag),
-                            ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                            this.transmissionTimeZ3(ctx, flowFrag)
                     )
-                )
+                ),
+                ConstraintTracker.NO_OVERLAP, flowFrag.getParent().getName(), this.name
             );
         }
         /**/
@@ -843,7 +859,7 @@ public class Port implements Serializable {
                 		continue;
                 	} 
                 	
-                	solver.add( // Packet transmission order constraint
+                	ConstraintTracker.add(solver, ctx, // Packet transmission order constraint
                         ctx.mkImplies(
                             ctx.mkAnd(
                                 ctx.mkLe(
@@ -859,10 +875,11 @@ public class Port implements Serializable {
                                 this.scheduledTime(ctx, i, flowFrag),
                                 ctx.mkSub(
                                     this.scheduledTime(ctx, j, auxFlowFrag),
-                                    ctx.mkDiv(auxFlowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                                    this.transmissionTimeZ3(ctx, auxFlowFrag)
                                 )
             				)
-                        )
+                        ),
+                        ConstraintTracker.NO_OVERLAP, flowFrag.getParent().getName(), this.name
                     );
                     
                     /*
@@ -885,6 +902,118 @@ public class Port implements Serializable {
     }
    
     
+    /**
+     * [Method]: usesCycleIndices
+     * [Usage]: Tells if the rules of this port refer to the cycle of
+     * each packet through an integer index instead of being repeated for
+     * every micro cycle of the hyper cycle. Only used with micro cycles,
+     * whose duration is known before solving, so the start of a cycle is
+     * still linear on its index.
+     * 
+     * @return          True if cycle indices are used by this port
+     */
+    private boolean usesCycleIndices() {
+        return CYCLE_ENCODING == INDEXED_CYCLES && 
+               this.useMicroCycles && 
+               this.microCycleSize > 0 && 
+               this.cycleUpperBoundRange > 1;
+    }
+    
+    
+    /**
+     * [Method]: setupCycleIndices
+     * [Usage]: Creates the cycle indices of the packets of a flow fragment.
+     * The arrival cycle of a packet is the cycle in which it arrives at the
+     * port, if it arrives within the hyper cycle. The scheduled cycle is
+     * bound by the slot rules to the cycle in which the packet is sent.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      A fragment of a flow that goes through this port
+     */
+    private void setupCycleIndices(Solver solver, Context ctx, FlowFragment flowFrag) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr hyperCycleEnd = this.indexedCycleStartZ3(ctx, cache.mkInt(this.cycleUpperBoundRange));
+        
+        for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
+            IntExpr arrivalCycle = this.cycleIndexZ3(ctx, flowFrag, i, ARRIVAL_CYCLE);
+            IntExpr scheduledCycle = this.cycleIndexZ3(ctx, flowFrag, i, SCHEDULED_CYCLE);
+            ArithExpr arrivalCycleStart = this.indexedCycleStartZ3(ctx, arrivalCycle);
+            
+            for(IntExpr cycleIndex : new IntExpr[] {arrivalCycle, scheduledCycle}) {
+                solver.add(ctx.mkGe(cycleIndex, cache.mkInt(0)));
+                solver.add(ctx.mkLt(cycleIndex, cache.mkInt(this.cycleUpperBoundRange)));
+            }
+            
+            solver.add(
+                ctx.mkImplies(
+                    ctx.mkAnd(
+                        ctx.mkGe(this.arrivalTime(ctx, i, flowFrag), this.cycle.getFirstCycleStartZ3()),
+                        ctx.mkLe(this.arrivalTime(ctx, i, flowFrag), hyperCycleEnd)
+                    ),
+                    ctx.mkAnd(
+                        ctx.mkGe(this.arrivalTime(ctx, i, flowFrag), arrivalCycleStart),
+                        ctx.mkLe(
+                            this.arrivalTime(ctx, i, flowFrag), 
+                            ctx.mkAdd(arrivalCycleStart, this.cycle.getCycleDurationZ3())
+                        )
+                    )
+                )
+            );
+        }
+    }
+    
+    
+    /**
+     * [Method]: cycleStartsOfPacket
+     * [Usage]: Retrieves the starts of the cycles a rule about a packet
+     * must be written for: one start per cycle of the hyper cycle, or the
+     * start of the cycle given by the index of the packet when cycle
+     * indices are used.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      Flow fragment that the packet belongs to
+     * @param auxIndex      Index of the packet
+     * @param kind          ARRIVAL_CYCLE or SCHEDULED_CYCLE
+     * @return              Starts of the cycles to be used by the rule
+     */
+    private ArrayList<ArithExpr> cycleStartsOfPacket(Context ctx, FlowFragment flowFrag, int auxIndex, String kind) {
+        ArrayList<ArithExpr> cycleStarts = new ArrayList<ArithExpr>();
+        
+        if(this.usesCycleIndices()) {
+            cycleStarts.add(this.indexedCycleStartZ3(ctx, this.cycleIndexZ3(ctx, flowFrag, auxIndex, kind)));
+            return cycleStarts;
+        }
+        
+        for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+            cycleStarts.add(this.cycle.cycleStartZ3(ctx, j));
+        }
+        
+        return cycleStarts;
+    }
+    
+    
+    private IntExpr cycleIndexZ3(Context ctx, FlowFragment flowFrag, int auxIndex, String kind) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        int cacheKind = kind.equals(ARRIVAL_CYCLE) ? Z3TermCache.ARRIVAL_CYCLE : Z3TermCache.SCHEDULED_CYCLE;
+        IntExpr cycleIndex = cache.getIndexTerm(cacheKind, flowFrag, auxIndex);
+        
+        if(cycleIndex == null) {
+            cycleIndex = cache.putIndexTerm(cacheKind, flowFrag, auxIndex, ctx.mkIntConst(flowFrag.getName() + kind + auxIndex));
+        }
+        
+        return cycleIndex;
+    }
+    
+    
+    private ArithExpr indexedCycleStartZ3(Context ctx, IntExpr cycleIndex) {
+        return (ArithExpr) ctx.mkAdd(
+            this.cycle.getFirstCycleStartZ3(),
+            ctx.mkMul(TimeEncoding.mkTime(ctx, this.microCycleSize), TimeEncoding.mkCount(ctx, cycleIndex))
+        );
+    }
+    
+    
     /**
      * [Method]: setupBestEffort
      * [Usage]: Use in order to enable the best effort traffic reservation
@@ -894,24 +1023,24 @@ public class Port implements Serializable {
      * @param ctx		Context object for the solver
      */
     public void setupBestEffort(Solver solver, Context ctx) {
-        RealExpr []slotStart = new RealExpr[8];
-        RealExpr []slotDuration = new RealExpr[8];
-        // RealExpr guardBandTime = null;        
+        ArithExpr []slotStart = new ArithExpr[8];
+        ArithExpr []slotDuration = new ArithExpr[8];
+        // ArithExpr guardBandTime = null;        
         
         BoolExpr firstPartOfImplication = null;
-        RealExpr sumOfPrtTime = null;
+        ArithExpr sumOfPrtTime = null;
         
         for(int i = 0; i < 8; i++) {
-            slotStart[i] = ctx.mkRealConst(this.name + "SlotStart" + i);
-            slotDuration[i] = ctx.mkRealConst(this.name + "SlotDuration" + i);
+            slotStart[i] = TimeEncoding.mkTimeConst(ctx, this.name + "SlotStart" + i);
+            slotDuration[i] = TimeEncoding.mkTimeConst(ctx, this.name + "SlotDuration" + i);
         }
         
         for(FlowFragment f : this.flowFragments) {
-            // RealExpr sumOfSlotsStart = ctx.mkReal(0);
-            RealExpr sumOfSlotsDuration = ctx.mkReal(0);
+            // ArithExpr sumOfSlotsStart = ctx.mkReal(0);
+            ArithExpr sumOfSlotsDuration = TimeEncoding.mkTime(ctx, 0);
         	
         	for(int i = 0; i < this.cycle.getNumOfSlots(); i++) {
-        		sumOfSlotsDuration = (RealExpr) ctx.mkAdd(cycle.slotDurationZ3(ctx, f.getFragmentPriorityZ3(), ctx.mkInt(i)));
+        		sumOfSlotsDuration = (ArithExpr) ctx.mkAdd(cycle.slotDurationZ3(ctx, f.getFragmentPriorityZ3(), ctx.mkInt(i)));
         	}
         	
         	/**/
@@ -956,8 +1085,8 @@ public class Port implements Serializable {
                 ctx.mkImplies(
                     firstPartOfImplication,
                     ctx.mkAnd(
-                        ctx.mkEq(slotStart[i-1], ctx.mkReal(0)),
-                        ctx.mkEq(slotDuration[i-1], ctx.mkReal(0))    
+                        ctx.mkEq(slotStart[i-1], TimeEncoding.mkTime(ctx, 0)),
+                        ctx.mkEq(slotDuration[i-1], TimeEncoding.mkTime(ctx, 0))    
                     )
                     
                 )                    
@@ -965,15 +1094,33 @@ public class Port implements Serializable {
 
         }
         
-        for(RealExpr slotDr : slotDuration) {
+        for(ArithExpr slotDr : slotDuration) {
             if(sumOfPrtTime == null) {
                 sumOfPrtTime = slotDr;
             } else {
-                sumOfPrtTime = (RealExpr) ctx.mkAdd(sumOfPrtTime, slotDr);
+                sumOfPrtTime = (ArithExpr) ctx.mkAdd(sumOfPrtTime, slotDr);
             }
         }
         
         
+        if(TimeEncoding.ENCODING == TimeEncoding.INTEGER) {
+            // Both sides are multiplied by the denominator of the reserved share, so the rule stays on integers
+            BigDecimal share = BigDecimal.ONE.subtract(new BigDecimal(Float.toString(bestEffortPercent))).stripTrailingZeros();
+            BigInteger denominator = BigInteger.TEN.pow(Math.max(0, share.scale()));
+            
+            solver.add( // Best-effort bandwidth reservation constraint
+                ctx.mkLe(
+                    ctx.mkMul(ctx.mkInt(denominator.toString()), sumOfPrtTime),
+                    ctx.mkMul(
+                        ctx.mkInt(share.multiply(new BigDecimal(denominator)).toBigIntegerExact().toString()),
+                        this.cycle.getCycleDurationZ3()
+                    )
+                )
+            );
+            
+            return;
+        }
+        
         solver.add( // Best-effort bandwidth reservation constraint
             ctx.mkLe(
                 sumOfPrtTime,
@@ -1015,77 +1162,157 @@ public class Port implements Serializable {
      * @return		Greatest common divisor or the two previous parameters
      */
     static float gcd(float a, float b) { 
-        if (a == 0) {
-            return b;             
-        }
+        ArrayList<Float> arr = new ArrayList<Float>();
+        arr.add(a);
+        arr.add(b);
         
-        return gcd(b % a, a); 
+        return findGCD(arr).floatValue(); 
     } 
   
     
     /**
      * [Method]: findGCD
      * [Usage]: Retrieves the value of the greatest common divisor 
-     * of all the values in an array.
+     * of all the values in an array. Values are scaled to exact
+     * integers (see scaledPeriods), so the result does not suffer
+     * from the rounding of float modulo. The result is kept exact, to
+     * be converted to float only where it is stored.
      * 
      * @param arr	Array of float values
      * @return		Greatest common divisor of all values of arr
      */
-    static float findGCD(ArrayList<Float> arr) { 
-        float gdc = arr.get(0); 
-        for (int i = 1; i < arr.size(); i++) {            
-            gdc = gcd(arr.get(i), gdc); 
+    static BigDecimal findGCD(ArrayList<Float> arr) { 
+        int scale = commonScale(arr);
+        BigInteger gcd = BigInteger.ZERO;
+        
+        for (BigInteger value : scaledPeriods(arr, scale)) {            
+            gcd = gcd.gcd(value); 
         }
   
-        return gdc; 
+        return new BigDecimal(gcd, scale); 
     } 
     
     
     /**
      * [Method]: findLCM
      * [Usage]: Retrieves the least common multiple of all values in 
-     * an array.
+     * an array. Values are scaled to exact integers (see scaledPeriods)
+     * and combined with Euclid's algorithm. The result is kept exact,
+     * as done by findGCD.
      * 
      * @param arr 		Array of float values
      * @return			Least common multiple of all values of arr	
      */
-    static float findLCM(ArrayList<Float> arr) {
+    static BigDecimal findLCM(ArrayList<Float> arr) {
+    	int scale = commonScale(arr);
     	
-    	float n = arr.size();
+    	return new BigDecimal(lcm(scaledPeriods(arr, scale)), scale);
+    }
+    
+    
+    /**
+     * [Method]: lcm
+     * [Usage]: Least common multiple of a list of exact integers.
+     * 
+     * @param values	Integer values
+     * @return			Least common multiple of the values
+     */
+    static BigInteger lcm(ArrayList<BigInteger> values) {
+    	BigInteger lcm = BigInteger.ONE;
     	
-    	float max_num = 0; 
-        for (int i = 0; i < n; i++) { 
-            if (max_num < arr.get(i)) { 
-                max_num = arr.get(i); 
-            } 
-        } 
-
-        float res = 1; 
- 
-        float x = 2;  
-        while (x <= max_num) {  
-            Vector<Integer> indexes = new Vector<>(); 
-            for (int j = 0; j < n; j++) { 
-                if (arr.get(j) % x == 0) { 
-                    indexes.add(indexes.size(), j); 
-                } 
-            } 
-            if (indexes.size() >= 2) { 
-                for (int j = 0; j < indexes.size(); j++) { 
-                    arr.set(indexes.get(j), arr.get(indexes.get(j)) / x); 
-                } 
-  
-                res = res * x; 
-            } else { 
-                x++; 
-            } 
-        } 
-  
-        for (int i = 0; i < n; i++) { 
-            res = res * arr.get(i); 
-        } 
-  
-        return res; 
+    	for(BigInteger value : values) {
+    		lcm = lcm.divide(lcm.gcd(value)).multiply(value);
+    	}
+    	
+    	return lcm;
+    }
+    
+    
+    /**
+     * [Method]: commonScale
+     * [Usage]: Number of decimal places needed to write every value of
+     * an array as an integer. Values are read from their float string,
+     * so 1000.5 has one decimal place instead of the many digits of its
+     * binary representation.
+     * 
+     * @param arr		Array of float values
+     * @return			Largest number of decimal places among the values
+     */
+    static int commonScale(ArrayList<Float> arr) {
+    	int scale = 0;
+    	
+    	for(Float value : arr) {
+    		scale = Math.max(scale, new BigDecimal(Float.toString(value)).stripTrailingZeros().scale());
+    	}
+    	
+    	return scale;
+    }
+    
+    
+    /**
+     * [Method]: scaledPeriods
+     * [Usage]: Converts every value of an array into an exact integer,
+     * multiplying it by 10^scale.
+     * 
+     * @param arr		Array of float values
+     * @param scale		Number of decimal places moved (see commonScale)
+     * @return			Values as exact integers
+     */
+    static ArrayList<BigInteger> scaledPeriods(ArrayList<Float> arr, int scale) {
+    	ArrayList<BigInteger> values = new ArrayList<BigInteger>();
+    	
+    	for(Float value : arr) {
+    		values.add(new BigDecimal(Float.toString(value)).movePointRight(scale).toBigIntegerExact());
+    	}
+    	
+    	return values;
+    }
+    
+    
+    /**
+     * [Method]: checkHyperCycleSize
+     * [Usage]: Computes, with exact integers, the number of packets of
+     * the periods of this port that fit in a hyper cycle. If this number
+     * is above MAX_PACKETS_PER_HYPER_CYCLE, the scheduling is stopped
+     * before any rule is given to z3, since the number of constraints
+     * grows with the square of the number of packets.
+     * 
+     * @return			Number of packets in the hyper cycle
+     */
+    private int checkHyperCycleSize() {
+    	int scale = commonScale(this.listOfPeriods);
+    	ArrayList<BigInteger> periods = scaledPeriods(this.listOfPeriods, scale);
+    	BigInteger hyperCycle = lcm(periods);
+    	BigInteger numOfPackets = BigInteger.ZERO;
+    	
+    	for(BigInteger period : periods) {
+    		numOfPackets = numOfPackets.add(hyperCycle.divide(period));
+    	}
+    	
+    	if(numOfPackets.compareTo(BigInteger.valueOf(MAX_PACKETS_PER_HYPER_CYCLE)) > 0) {
+    		String message = "Hyper cycle of port " + this.name + " (" + new BigDecimal(hyperCycle).movePointLeft(scale) + 
+    						 ") holds " + numOfPackets + " packets for periods " + this.listOfPeriods + 
+    						 ", above the limit of " + MAX_PACKETS_PER_HYPER_CYCLE + ".";
+    		
+    		System.out.println(message);
+    		throw new IllegalStateException(message);
+    	}
+    	
+    	return numOfPackets.intValue();
+    }
+    
+    
+    /**
+     * [Method]: checkCycleSize
+     * [Usage]: Checks the size of the hyper cycle of this port when its
+     * cycle is computed from its periods (micro cycles or hyper cycle).
+     * Only the periods are used, so it can be called before any z3
+     * object is created (see ScheduleGenerator.checkNetwork).
+     */
+    public void checkCycleSize() {
+    	if((useMicroCycles || useHyperCycle) && this.listOfPeriods.size() > 0) {
+    		this.checkHyperCycleSize();
+    	}
     }
     
     
@@ -1110,7 +1337,8 @@ public class Port implements Serializable {
         }
         */
         
-        float hyperCycleSize = findLCM((ArrayList<Float>) listOfPeriods.clone());
+        numOfPacketsScheduled = this.checkHyperCycleSize();
+        float hyperCycleSize = findLCM((ArrayList<Float>) listOfPeriods.clone()).floatValue();
         
         this.definedHyperCycleSize = hyperCycleSize;
         
@@ -1124,10 +1352,6 @@ public class Port implements Serializable {
         }
         */
         
-        for(Float periodicity : this.listOfPeriods) {
-        	numOfPacketsScheduled += (int) (hyperCycleSize/periodicity);
-        }
-        
         // System.out.println("Num of Cycles: " + this.cycleUpperBoundRange);
         
         this.cycle.setNumOfSlots(numOfPacketsScheduled);
@@ -1155,12 +1379,15 @@ public class Port implements Serializable {
         }
         */
         
-        this.microCycleSize = findGCD((ArrayList<Float>) listOfPeriods.clone());
-        float hyperCycleSize = findLCM((ArrayList<Float>) listOfPeriods.clone());
+        this.checkHyperCycleSize();
+        BigDecimal microCycle = findGCD((ArrayList<Float>) listOfPeriods.clone());
+        BigDecimal hyperCycle = findLCM((ArrayList<Float>) listOfPeriods.clone());
         
-        this.definedHyperCycleSize = hyperCycleSize;
+        this.microCycleSize = microCycle.floatValue();
+        this.definedHyperCycleSize = hyperCycle.floatValue();
         
-        this.cycleUpperBoundRange = (int) (hyperCycleSize/microCycleSize);
+        // The hyper cycle is an exact multiple of the micro cycle
+        this.cycleUpperBoundRange = hyperCycle.divide(microCycle).intValueExact();
 
         /*
         for(FlowFragment flowFrag : this.flowFragments) {
@@ -1224,6 +1451,22 @@ public class Port implements Serializable {
     	
     	// System.out.println("On port: " + this.name + " with: " + this.listOfPeriods.size() + " fragments");
 
+    	this.setUpCycleDuration(solver, ctx);
+    	
+    }
+    
+    /**
+     * [Method]: setUpCycleDuration
+     * [Usage]: Computes the cycle size of the port from its list of
+     * periods and binds the duration of the z3 cycle to it. Unlike
+     * setUpCycle, the z3 variables of the cycle are kept, so this can
+     * be called again when the list of periods of the port changes.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     */
+    public void setUpCycleDuration(Solver solver, Context ctx) {
+    	
     	if(this.listOfPeriods.size() < 1) {
     		return;
     	}
@@ -1233,13 +1476,13 @@ public class Port implements Serializable {
             setUpMicroCycles(solver, ctx);
                         
             solver.add(
-	            ctx.mkEq(this.cycle.getCycleDurationZ3(), ctx.mkReal(Float.toString(this.microCycleSize)))
+	            ctx.mkEq(this.cycle.getCycleDurationZ3(), TimeEncoding.mkTime(ctx, this.microCycleSize))
 	        );
         } else if (useHyperCycle && this.listOfPeriods.size() > 0) {
         	setUpHyperCycle(solver, ctx);
 
         	solver.add(
-	            ctx.mkEq(this.cycle.getCycleDurationZ3(), ctx.mkReal(Float.toString(this.definedHyperCycleSize)))
+	            ctx.mkEq(this.cycle.getCycleDurationZ3(), TimeEncoding.mkTime(ctx, this.definedHyperCycleSize))
 	        );
         } 
     	
@@ -1255,24 +1498,24 @@ public class Port implements Serializable {
      * @param ctx
      */
     public void zeroOutNonUsedSlots(Solver solver, Context ctx) {
-    	BoolExpr exp1;
-    	BoolExpr exp2;
-    	IntExpr indexZ3;
+    	ArrayList<BoolExpr> exp1 = new ArrayList<BoolExpr>();
+    	Z3TermCache cache = Z3TermCache.forContext(ctx);
     	
-    	for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
+    	// The slots of a fragment are the slots of its priority by congruence when encoded as functions
+    	for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts() && !this.cycle.usesSlotFunctions(); prtIndex++) {
     		for(FlowFragment frag : this.flowFragments) {	
         		for(int slotIndex = 0; slotIndex < this.cycle.getNumOfSlots(); slotIndex++) {
             		solver.add(
         				ctx.mkImplies(
-        					ctx.mkEq(frag.getFragmentPriorityZ3(), ctx.mkInt(prtIndex)),
+        					ctx.mkEq(frag.getFragmentPriorityZ3(), cache.mkInt(prtIndex)),
         					ctx.mkAnd(
     							ctx.mkEq(
-									cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(slotIndex)), 
-									cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), ctx.mkInt(slotIndex)) 
+									cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), slotIndex), 
+									cycle.slotStartZ3(ctx, prtIndex, slotIndex) 
 								),
     							ctx.mkEq(
-									cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(slotIndex)), 
-									cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), ctx.mkInt(slotIndex)) 
+									cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), slotIndex), 
+									cycle.slotDurationZ3(ctx, prtIndex, slotIndex) 
 								)
 							)
         				)	
@@ -1283,35 +1526,46 @@ public class Port implements Serializable {
     	
 
 		for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
+			// A slot left empty on any cycle is zeroed out with both encodings
 			for(int cycleNum = 0; cycleNum < this.cycleUpperBoundRange; cycleNum++) {
 				for(int indexNum = 0; indexNum < this.cycle.getNumOfSlots(); indexNum++) {
-					indexZ3 = ctx.mkInt(indexNum);
-    				exp1 = ctx.mkTrue();
+    				exp1.clear();
         			for(FlowFragment frag : this.flowFragments) {
         				for(int packetNum = 0; packetNum < frag.getNumOfPacketsSent(); packetNum++) {
-        					exp1 = ctx.mkAnd(
-        							exp1,
+        					ArithExpr cycleStart = cycle.cycleStartZ3(ctx, cycleNum);
+        					BoolExpr onCycle = ctx.mkTrue();
+        					
+        					// With cycle indices, the packet is on this cycle if its scheduled cycle index is this one
+        					if(this.usesCycleIndices()) {
+        						IntExpr scheduledCycle = this.cycleIndexZ3(ctx, frag, packetNum, SCHEDULED_CYCLE);
+        						
+        						cycleStart = this.indexedCycleStartZ3(ctx, scheduledCycle);
+        						onCycle = ctx.mkEq(scheduledCycle, cache.mkInt(cycleNum));
+        					}
+        					
+        					exp1.add(
         							ctx.mkAnd(
     									ctx.mkNot(
 	        								ctx.mkAnd(
+	        									onCycle,
 	    		    							ctx.mkGe(
 	    											this.scheduledTime(ctx, packetNum, frag),
 	    											ctx.mkAdd( 
-	    		                                        cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-	    		                                        cycle.cycleStartZ3(ctx, ctx.mkInt(cycleNum))
+	    		                                        cycle.slotStartZ3(ctx, prtIndex, indexNum),
+	    		                                        cycleStart
 	    		                                    )
 	    										),
 	    		    							ctx.mkLe(
 	    											this.scheduledTime(ctx, packetNum, frag),
 	    											ctx.mkAdd( 
-	    		                                        cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-	    		                                        cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-	    		                                        cycle.cycleStartZ3(ctx, ctx.mkInt(cycleNum))
+	    		                                        cycle.slotStartZ3(ctx, prtIndex, indexNum),
+	    		                                        cycle.slotDurationZ3(ctx, prtIndex, indexNum),
+	    		                                        cycleStart
 	    		                                    )
 	    										)
 	    									)	
 	    								),
-    									ctx.mkEq(ctx.mkInt(prtIndex), frag.getFragmentPriorityZ3())
+    									ctx.mkEq(cache.mkInt(prtIndex), frag.getFragmentPriorityZ3())
 									)
         					);
         				}    	
@@ -1320,8 +1574,8 @@ public class Port implements Serializable {
     			
     				solver.add(
     					ctx.mkImplies(
-							exp1, 	
-							ctx.mkEq(cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), indexZ3), ctx.mkInt(0)) 
+							ctx.mkAnd(exp1.toArray(new BoolExpr[exp1.size()])), 	
+							ctx.mkEq(cycle.slotDurationZ3(ctx, prtIndex, indexNum), TimeEncoding.mkTime(ctx, 0)) 
 						)
     				);
     			}   
@@ -1335,6 +1589,65 @@ public class Port implements Serializable {
     }
     
     
+    /**
+     * [Method]: portSlotRulesZ3
+     * [Usage]: With named slots, the slots of a priority given as a
+     * number are shared by the cycles of every port (see Cycle). Ties
+     * the slots of this port only (Cycle.getSlotStartZ3 and
+     * getSlotDurationZ3) to the slots of the fragments with each
+     * priority, and to 0 if no fragment of this port has it. Slot
+     * functions are already specific to the cycle of the port, so no
+     * rule is needed for them.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @return              Rules defining the slots of this port
+     */
+    public ArrayList<BoolExpr> portSlotRulesZ3(Context ctx) {
+        ArrayList<BoolExpr> rules = new ArrayList<BoolExpr>();
+        ArrayList<BoolExpr> notUsed = new ArrayList<BoolExpr>();
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        
+        if(this.cycle.usesSlotFunctions()) {
+            return rules;
+        }
+        
+        for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
+            for(int slotIndex = 0; slotIndex < this.cycle.getNumOfSlots(); slotIndex++) {
+                ArithExpr portSlotStart = this.cycle.getSlotStartZ3(prtIndex, slotIndex);
+                ArithExpr portSlotDuration = this.cycle.getSlotDurationZ3(prtIndex, slotIndex);
+                
+                notUsed.clear();
+                for(FlowFragment frag : this.flowFragments) {
+                    BoolExpr hasPriority = ctx.mkEq(frag.getFragmentPriorityZ3(), cache.mkInt(prtIndex));
+                    
+                    notUsed.add(ctx.mkNot(hasPriority));
+                    rules.add(
+                        ctx.mkImplies(
+                            hasPriority,
+                            ctx.mkAnd(
+                                ctx.mkEq(portSlotStart, this.cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), slotIndex)),
+                                ctx.mkEq(portSlotDuration, this.cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), slotIndex))
+                            )
+                        )
+                    );
+                }
+                
+                rules.add(
+                    ctx.mkImplies(
+                        ctx.mkAnd(notUsed.toArray(new BoolExpr[notUsed.size()])),
+                        ctx.mkAnd(
+                            ctx.mkEq(portSlotStart, TimeEncoding.mkTime(ctx, 0)),
+                            ctx.mkEq(portSlotDuration, TimeEncoding.mkTime(ctx, 0))
+                        )
+                    )
+                );
+            }
+        }
+        
+        return rules;
+    }
+    
+    
     /**
      * [Method]: setupSchedulingRules
      * [Usage]: Calls the set of functions that will set the z3 rules
@@ -1347,11 +1660,11 @@ public class Port implements Serializable {
     	
     	if (this.flowFragments.size() == 0) {
     		solver.add(ctx.mkEq( 
-                ctx.mkReal(Float.toString(0)), 
+                TimeEncoding.mkTime(ctx, 0), 
                 this.cycle.getCycleDurationZ3()
             ));
     		solver.add(ctx.mkEq( 
-                ctx.mkReal(Float.toString(0)), 
+                TimeEncoding.mkTime(ctx, 0), 
                 this.cycle.getFirstCycleStartZ3()
             ));
     		
@@ -1400,6 +1713,36 @@ public class Port implements Serializable {
         
     }
 
+    /**
+     * [Method]: transmissionTimeZ3
+     * [Usage]: Retrieves the time needed to transmit a packet of a flow
+     * fragment through this port (packet size / port speed). The term is
+     * built once per fragment and reused by the scheduling rules.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      Flow fragment that the packets belong to
+     * @return              Returns the z3 term for the transmission time of the packets
+     */
+    public ArithExpr transmissionTimeZ3(Context ctx, FlowFragment flowFrag) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr transmissionTime = cache.getTerm(Z3TermCache.TRANSMISSION_TIME, flowFrag, 0);
+        
+        if(transmissionTime == null) {
+            transmissionTime = cache.putTerm(
+                Z3TermCache.TRANSMISSION_TIME, 
+                flowFrag, 
+                0, 
+                TimeEncoding.ENCODING == TimeEncoding.INTEGER ?
+                    // Rounded up to the grid of the integer time variables
+                    TimeEncoding.mkTime(ctx, flowFrag.getParent().getStartDevice().getPacketSize() / this.portSpeed) :
+                    (ArithExpr) ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+            );
+        }
+        
+        return transmissionTime;
+    }
+    
+    
     /**
      * [Method]: departureTime
      * [Usage]: Retrieves the departure time of a packet from a flow fragment
@@ -1412,13 +1755,13 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     
-    public RealExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+    public ArithExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
                 
         // If the index is 0, then its the first departure time, else add index * periodicity
         return this.departureTime(ctx, (Integer.parseInt(index.toString())), flowFrag);
         
         /*
-        return (RealExpr) ctx.mkITE( 
+        return (ArithExpr) ctx.mkITE( 
                ctx.mkGe(index, ctx.mkInt(1)), 
                ctx.mkAdd(
                        flowFrag.getDepartureTimeZ3(Integer.parseInt(index.toString())),
@@ -1439,9 +1782,9 @@ public class Port implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
-    public RealExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
+    public ArithExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
     	IntExpr index = null;
-    	RealExpr departureTime;
+    	ArithExpr departureTime;
     	int cycleNum = 0;
         
     	
@@ -1450,10 +1793,10 @@ public class Port implements Serializable {
 
         	auxIndex = (auxIndex % flowFrag.getNumOfPacketsSent());
 
-        	departureTime = (RealExpr)
+        	departureTime = (ArithExpr)
         			ctx.mkAdd(
     					flowFrag.getDepartureTimeZ3(auxIndex), 
-    					ctx.mkMul(ctx.mkReal(cycleNum), this.cycle.getCycleDurationZ3())
+    					ctx.mkMul(TimeEncoding.mkCount(ctx, cycleNum), this.cycle.getCycleDurationZ3())
 					);
         	
         	
@@ -1478,13 +1821,13 @@ public class Port implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      *
-    public RealExpr arrivalTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+    public ArithExpr arrivalTime(Context ctx, IntExpr index, FlowFragment flowFrag){
        
        
        // The arrival time of this index from the given flow fragment is 
        // equal to the its departure time + time to travel
         
-       return (RealExpr) ctx.mkAdd(
+       return (ArithExpr) ctx.mkAdd(
                       departureTime(ctx, index, flowFrag),
                       timeToTravelZ3
                       );
@@ -1502,11 +1845,31 @@ public class Port implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
-    public RealExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
+    public ArithExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        ArithExpr arrivalTime;
+        
+        // Packets of later cycles depend on the cycle duration, so only the first ones are stored
+        if(auxIndex < flowFrag.getNumOfPacketsSent()) {
+            arrivalTime = cache.getTerm(Z3TermCache.ARRIVAL_TIME, flowFrag, auxIndex);
+            
+            if(arrivalTime == null) {
+                arrivalTime = cache.putTerm(
+                    Z3TermCache.ARRIVAL_TIME, 
+                    flowFrag, 
+                    auxIndex, 
+                    (ArithExpr) ctx.mkAdd( // Arrival time value constraint
+                        departureTime(ctx, auxIndex, flowFrag),
+                        timeToTravelZ3
+                    )
+                );
+            }
+            
+            return arrivalTime;
+        }
         
-        return (RealExpr) ctx.mkAdd( // Arrival time value constraint
-                        departureTime(ctx, index, flowFrag),
+        return (ArithExpr) ctx.mkAdd( // Arrival time value constraint
+                        departureTime(ctx, auxIndex, flowFrag),
                         timeToTravelZ3
                         );
     }
@@ -1527,10 +1890,10 @@ public class Port implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      *
-    public RealExpr scheduledTime(Context ctx, IntExpr index, FlowFragment flowFrag){
-        RealExpr devT3 = ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString());
+    public ArithExpr scheduledTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+        ArithExpr devT3 = TimeEncoding.mkTimeConst(ctx, flowFrag.getName() + "ScheduledTime" + index.toString());
         
-        return (RealExpr) devT3;
+        return (ArithExpr) devT3;
     }
     /**/
     
@@ -1550,33 +1913,38 @@ public class Port implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      */
-    public RealExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-    	IntExpr index = null;
-    	RealExpr scheduledTime;
+    public ArithExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
+    	ArithExpr scheduledTime;
     	int cycleNum = 0;
     	
         if(auxIndex + 1 > flowFrag.getNumOfPacketsSent()) {
 			cycleNum = (auxIndex - (auxIndex % flowFrag.getNumOfPacketsSent()))/flowFrag.getNumOfPacketsSent();
 
         	auxIndex = (auxIndex % flowFrag.getNumOfPacketsSent());
-        	index = ctx.mkInt(auxIndex);
         	
-        	scheduledTime = (RealExpr)
+        	scheduledTime = (ArithExpr)
         			ctx.mkAdd(
-    					ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString()), 
-    					ctx.mkMul(ctx.mkReal(cycleNum), this.cycle.getCycleDurationZ3())
+    					this.scheduledTime(ctx, auxIndex, flowFrag), 
+    					ctx.mkMul(TimeEncoding.mkCount(ctx, cycleNum), this.cycle.getCycleDurationZ3())
 					);
         	
         	
         	return scheduledTime;
         }
         
-        index = ctx.mkInt(auxIndex);
-        
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        scheduledTime = cache.getTerm(Z3TermCache.SCHEDULED_TIME, flowFrag, auxIndex);
         
-        scheduledTime = ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString());
+        if(scheduledTime == null) {
+            scheduledTime = cache.putTerm(
+                Z3TermCache.SCHEDULED_TIME, 
+                flowFrag, 
+                auxIndex, 
+                TimeEncoding.mkTimeConst(ctx, flowFrag.getName() + "ScheduledTime" + auxIndex)
+            );
+        }
         
-        return (RealExpr) scheduledTime;
+        return scheduledTime;
     }
 
     
@@ -1628,22 +1996,14 @@ public class Port implements Serializable {
     			solver.add(
 					ctx.mkEq(
 						this.cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(index)), 
-						ctx.mkReal(
-							Float.toString(
-								this.cycle.getSlotDuration(frag.getFragmentPriority(), index)
-							)
-						)
+						TimeEncoding.mkGridTime(ctx, this.cycle.getSlotDuration(frag.getFragmentPriority(), index))
 					)
 				);
     			
     			solver.add(
 					ctx.mkEq(
 						this.cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(index)), 
-						ctx.mkReal(
-							Float.toString(
-								this.cycle.getSlotStart(frag.getFragmentPriority(), index)
-							)
-						)
+						TimeEncoding.mkGridTime(ctx, this.cycle.getSlotStart(frag.getFragmentPriority(), index))
 					)
 				);
     			
@@ -1659,19 +2019,19 @@ public class Port implements Serializable {
 				);
     			*/
     			if (i > 0)
-    				frag.addDepartureTimeZ3(ctx.mkReal(Float.toString(frag.getDepartureTime(i))));
+    				frag.addDepartureTimeZ3(TimeEncoding.mkGridTime(ctx, frag.getDepartureTime(i)));
     			
     			solver.add(
 					ctx.mkEq(
 						this.arrivalTime(ctx, i, frag),
-						ctx.mkReal(Float.toString(frag.getArrivalTime(i)))
+						TimeEncoding.mkGridTime(ctx, frag.getArrivalTime(i))
 					)
 				);
     			
     			solver.add(
 					ctx.mkEq(
 						this.scheduledTime(ctx, i, frag),
-						ctx.mkReal(Float.toString(frag.getScheduledTime(i)))
+						TimeEncoding.mkGridTime(ctx, frag.getScheduledTime(i))
 					)
 				);
     			
@@ -1707,6 +2067,10 @@ public class Port implements Serializable {
         this.flowFragments.add(flowFrag);
     }
     
+    public void removeFromFragmentList(FlowFragment flowFrag) {
+        this.flowFragments.remove(flowFrag);
+    }
+    
     public float getGbSize() {
         return gbSize;
     }
@@ -1715,11 +2079,11 @@ public class Port implements Serializable {
         this.gbSize = gbSize;
     }
 
-    public RealExpr getGbSizeZ3() {
+    public ArithExpr getGbSizeZ3() {
         return gbSizeZ3;
     }
 
-    public void setGbSizeZ3(RealExpr gbSizeZ3) {
+    public void setGbSizeZ3(ArithExpr gbSizeZ3) {
         this.gbSizeZ3 = gbSizeZ3;
     }
 
@@ -1767,6 +2131,18 @@ public class Port implements Serializable {
 		this.definedHyperCycleSize = definedHyperCycleSize;
 	}    
 	
+	public float getMicroCycleSize() {
+		return microCycleSize;
+	}
+	
+	public float getTimeToTravel() {
+		return timeToTravel;
+	}
+	
+	public float getPortSpeed() {
+		return portSpeed;
+	}
+	
 	public int getPortNum() {
 		return portNum;
 	}
@@ -1795,41 +2171,42 @@ public class Port implements Serializable {
     public IntExpr getCycleOfScheduledTime(Context ctx, FlowFragment f, int index) {
         IntExpr cycleIndex = null;
         
-        RealExpr relativeST = (RealExpr) ctx.mkSub(
+        ArithExpr relativeST = (ArithExpr) ctx.mkSub(
                 this.scheduledTime(ctx, index, f),
                 this.cycle.getFirstCycleStartZ3()
         );
 
-        cycleIndex = ctx.mkReal2Int(
-                        (RealExpr) ctx.mkDiv(relativeST, this.cycle.getCycleDurationZ3())
-                     );
+        ArithExpr quotient = ctx.mkDiv(relativeST, this.cycle.getCycleDurationZ3());
+        
+        // Integer division already rounds down with the integer encoding
+        cycleIndex = quotient instanceof IntExpr ? (IntExpr) quotient : ctx.mkReal2Int((RealExpr) quotient);
              
         return cycleIndex;        
     }
     
     
-    public IntExpr getCycleOfTime(Context ctx, RealExpr time) {
+    public IntExpr getCycleOfTime(Context ctx, ArithExpr time) {
         IntExpr cycleIndex = null;
         
-        RealExpr relativeST = (RealExpr) ctx.mkSub(
+        ArithExpr relativeST = (ArithExpr) ctx.mkSub(
                 time,
                 this.cycle.getFirstCycleStartZ3()
         );
 
-        cycleIndex = ctx.mkReal2Int(
-                        (RealExpr) ctx.mkDiv(relativeST, this.cycle.getCycleDurationZ3())
-                     );
+        ArithExpr quotient = ctx.mkDiv(relativeST, this.cycle.getCycleDurationZ3());
+        
+        cycleIndex = quotient instanceof IntExpr ? (IntExpr) quotient : ctx.mkReal2Int((RealExpr) quotient);
              
         return cycleIndex;        
     }
     
-    public RealExpr getScheduledTimeOfPreviousPacket(Context ctx, FlowFragment f, int index) {
-        RealExpr prevPacketST = ctx.mkReal(0);
+    public ArithExpr getScheduledTimeOfPreviousPacket(Context ctx, FlowFragment f, int index) {
+        ArithExpr prevPacketST = TimeEncoding.mkTime(ctx, 0);
         
         for(FlowFragment auxFrag : this.flowFragments) {
             
             for(int i = 0; i < f.getNumOfPacketsSent(); i++) {
-                prevPacketST = (RealExpr)
+                prevPacketST = (ArithExpr)
                         ctx.mkITE(
                             ctx.mkAnd(
                                 ctx.mkEq(auxFrag.getFragmentPriorityZ3(), f.getFragmentPriorityZ3()),
@@ -1851,9 +2228,9 @@ public class Port implements Serializable {
            
         }
         
-        return (RealExpr)  
+        return (ArithExpr)  
                 ctx.mkITE(
-                    ctx.mkEq(prevPacketST, ctx.mkReal(0)),
+                    ctx.mkEq(prevPacketST, TimeEncoding.mkTime(ctx, 0)),
                     this.scheduledTime(ctx, index, f),
                     prevPacketST
                 );
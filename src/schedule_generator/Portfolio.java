@@ -0,0 +1,231 @@
+package schedule_generator;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: Portfolio
+ * [Usage]: Races several z3 configurations on the same set of
+ * constraints. The assertions of the solver built by the schedule
+ * generator are translated to one new context per configuration,
+ * and each configuration is checked on its own thread. The first
+ * one to give a definitive answer wins and the others are
+ * interrupted.
+ *
+ * Since the rest of the schedule generator retrieves values using
+ * the variables of the original context, the model of the winner is
+ * fixed on the original solver (see ModelReader.pinModel), which is
+ * checked again. With every
+ * variable fixed, this last check is immediate.
+ */
+public class Portfolio {
+
+    private ArrayList<PortfolioConfiguration> configurations;
+    private PortfolioConfiguration winner = null;
+    private HashMap<String, Long> solveTimes = new HashMap<String, Long>();
+    private String recordPath = null;
+
+
+    /**
+     * [Method]: Portfolio
+     * [Usage]: Overloaded constructor of this class. Creates a
+     * portfolio with the given configurations.
+     *
+     * @param configurations    Configurations to be raced
+     */
+    public Portfolio(ArrayList<PortfolioConfiguration> configurations) {
+        this.configurations = configurations;
+    }
+
+
+    /**
+     * [Method]: Portfolio
+     * [Usage]: Overloaded constructor of this class. Creates a
+     * portfolio with the default configurations.
+     *
+     * @param numOfConfigurations   Number of configurations to be raced
+     */
+    public Portfolio(int numOfConfigurations) {
+        this.configurations = PortfolioConfiguration.defaultConfigurations(numOfConfigurations);
+    }
+
+
+    /**
+     * [Method]: check
+     * [Usage]: Races the configurations over the assertions of the
+     * given solver. If the winner finds a model, its values are
+     * fixed on the given solver, so its model can be retrieved as
+     * usual after this call.
+     *
+     * @param net       Network being scheduled (used to record the winner)
+     * @param solver    Solver with the constraints of the network
+     * @param ctx       Context of the solver
+     * @return          Status given by the winner configuration
+     */
+    public Status check(Network net, Solver solver, Context ctx) {
+        ArrayList<Context> contexts = new ArrayList<Context>();
+        ArrayList<Solver> solvers = new ArrayList<Solver>();
+        BoolExpr[] assertions = solver.getAssertions();
+        Status status = Status.UNKNOWN;
+        Model model = null;
+        Context modelCtx = null;
+
+        this.winner = null;
+        this.solveTimes.clear();
+
+        // The original context is not thread safe, so translation is done before the race
+        for(PortfolioConfiguration configuration : this.configurations) {
+            HashMap<String, String> cfg = new HashMap<String, String>();
+            cfg.put("model", "true");
+            Context auxCtx = new Context(cfg);
+            Solver auxSolver = configuration.createSolver(auxCtx);
+
+            for(BoolExpr assertion : assertions) {
+                auxSolver.add((BoolExpr) assertion.translate(auxCtx));
+            }
+
+            contexts.add(auxCtx);
+            solvers.add(auxSolver);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.configurations.size());
+        ExecutorCompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+        ArrayList<Status> results = new ArrayList<Status>();
+
+        for(int i = 0; i < this.configurations.size(); i++) {
+            final int index = i;
+            results.add(Status.UNKNOWN);
+
+            completionService.submit(new Callable<Integer>() {
+                public Integer call() {
+                    long startTime = System.currentTimeMillis();
+
+                    try {
+                        results.set(index, solvers.get(index).check());
+                    } catch (Z3Exception e) {
+                        System.out.println(configurations.get(index).getName() + " failed: " + e.getMessage());
+                    }
+
+                    synchronized(solveTimes) {
+                        solveTimes.put(configurations.get(index).getName(), System.currentTimeMillis() - startTime);
+                    }
+
+                    return index;
+                }
+            });
+        }
+
+        try {
+            for(int i = 0; i < this.configurations.size(); i++) {
+                Future<Integer> finished = completionService.take();
+                int index = finished.get();
+
+                if(this.winner == null && results.get(index) != Status.UNKNOWN) {
+                    this.winner = this.configurations.get(index);
+                    status = results.get(index);
+
+                    if(status == Status.SATISFIABLE) {
+                        model = solvers.get(index).getModel();
+                        modelCtx = contexts.get(index);
+                    }
+
+                    // Losers are interrupted, but are still waited for before their contexts are closed
+                    for(int j = 0; j < contexts.size(); j++) {
+                        if(j != index) {
+                            contexts.get(j).interrupt();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        } finally {
+            executor.shutdown();
+        }
+
+        if(this.winner != null) {
+            System.out.println("Portfolio winner: " + this.winner.getName() + " (" + this.solveTimes.get(this.winner.getName()) + " ms)");
+            this.recordWinner(net);
+        } else {
+            System.out.println("No configuration of the portfolio gave a definitive answer.");
+        }
+
+        if(status == Status.SATISFIABLE) {
+            // Fix the values of the winner on the original solver
+            ModelReader.pinModel(model, modelCtx, net, solver, ctx);
+
+            status = solver.check();
+        }
+
+        for(Context auxCtx : contexts) {
+            auxCtx.close();
+        }
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: recordWinner
+     * [Usage]: If a record file was set, appends a line to it with
+     * the size of the network, the winner configuration and the time
+     * it took to solve the constraints.
+     *
+     * @param net       Network that was scheduled
+     */
+    private void recordWinner(Network net) {
+        if(this.recordPath == null) {
+            return;
+        }
+
+        try {
+            PrintWriter out = new PrintWriter(new FileWriter(this.recordPath, true));
+            out.println(
+                net.getSwitches().size() + "," +
+                net.getFlows().size() + "," +
+                this.winner.getName() + "," +
+                this.solveTimes.get(this.winner.getName())
+            );
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public ArrayList<PortfolioConfiguration> getConfigurations() {
+        return configurations;
+    }
+
+    public PortfolioConfiguration getWinner() {
+        return winner;
+    }
+
+    public HashMap<String, Long> getSolveTimes() {
+        return solveTimes;
+    }
+
+    public String getRecordPath() {
+        return recordPath;
+    }
+
+    public void setRecordPath(String recordPath) {
+        this.recordPath = recordPath;
+    }
+
+}
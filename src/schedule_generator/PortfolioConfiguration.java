@@ -0,0 +1,124 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: PortfolioConfiguration
+ * [Usage]: Describes one of the z3 configurations raced by the
+ * Portfolio. A configuration is made of a tactic (or the default
+ * solver of z3 when no tactic is given), a random seed and the
+ * arithmetic solver used by the smt core.
+ */
+public class PortfolioConfiguration {
+
+    private String tactic;
+    private int randomSeed;
+    private int arithSolver;
+
+
+    /**
+     * [Method]: PortfolioConfiguration
+     * [Usage]: Overloaded constructor of this class. Creates a
+     * configuration with the given properties.
+     *
+     * @param tactic        Name of the z3 tactic used ("smt", "qflra", "qflia"). Null for the default solver
+     * @param randomSeed    Random seed given to z3
+     * @param arithSolver   Arithmetic solver of the smt core. -1 keeps the z3 default
+     */
+    public PortfolioConfiguration(String tactic, int randomSeed, int arithSolver) {
+        this.tactic = tactic;
+        this.randomSeed = randomSeed;
+        this.arithSolver = arithSolver;
+    }
+
+
+    /**
+     * [Method]: createSolver
+     * [Usage]: Creates a solver of the given context following this
+     * configuration. Parameters not supported by the tactic are
+     * reported and ignored.
+     *
+     * @param ctx       Context in which the solver will be created
+     * @return          Solver configured according to this object
+     */
+    public Solver createSolver(Context ctx) {
+        Solver solver;
+        Params params = ctx.mkParams();
+
+        params.add("random_seed", this.randomSeed);
+        if(this.arithSolver != -1) {
+            params.add("arith.solver", this.arithSolver);
+        }
+
+        if(this.tactic == null) {
+            solver = ctx.mkSolver();
+            try {
+                solver.setParameters(params);
+            } catch (Z3Exception e) {
+                System.out.println("Parameters not accepted by " + this.getName() + ": " + e.getMessage());
+            }
+        } else {
+            Tactic auxTactic = ctx.mkTactic(this.tactic);
+            try {
+                auxTactic = ctx.usingParams(auxTactic, params);
+            } catch (Z3Exception e) {
+                System.out.println("Parameters not accepted by " + this.getName() + ": " + e.getMessage());
+            }
+            solver = ctx.mkSolver(auxTactic);
+        }
+
+        return solver;
+    }
+
+
+    /**
+     * [Method]: defaultConfigurations
+     * [Usage]: Returns a list of configurations mixing the default
+     * solver and the tactics smt, qflra and qflia with different
+     * seeds and arithmetic solvers.
+     *
+     * @param numOfConfigurations   Number of configurations in the list
+     * @return                      List of configurations
+     */
+    public static ArrayList<PortfolioConfiguration> defaultConfigurations(int numOfConfigurations) {
+        ArrayList<PortfolioConfiguration> configurations = new ArrayList<PortfolioConfiguration>();
+        String[] tactics = {null, "smt", "qflra", "qflia"};
+        int[] arithSolvers = {-1, 2, 6};
+
+        for(int i = 0; i < numOfConfigurations; i++) {
+            configurations.add(
+                new PortfolioConfiguration(
+                    tactics[i % tactics.length],
+                    i,
+                    arithSolvers[(i / tactics.length) % arithSolvers.length]
+                )
+            );
+        }
+
+        return configurations;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public String getName() {
+        return (tactic == null ? "default" : tactic) + "-seed" + randomSeed + "-arith" + arithSolver;
+    }
+
+    public String getTactic() {
+        return tactic;
+    }
+
+    public int getRandomSeed() {
+        return randomSeed;
+    }
+
+    public int getArithSolver() {
+        return arithSolver;
+    }
+
+}
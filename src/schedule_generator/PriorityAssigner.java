@@ -0,0 +1,260 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: PriorityAssigner
+ * [Usage]: Assigns the priorities of the flow fragments before the
+ * scheduling rules are given to z3. Without it, every fragment has a free
+ * priority, and z3 searches over every combination of priorities of the
+ * fragments sharing a port.
+ *
+ * On each port, the fragments are ranked by the selected policy (shortest
+ * period, smallest slack to the hard constraint or highest utilization
+ * first) and split in groups, one group per priority of the cycle, the
+ * first group getting the highest priority. Each fragment is then pinned
+ * to the priority of its group, or limited to a small range of priorities
+ * starting on it (see setDomainSize).
+ *
+ * The priorities of each port are asserted under a literal. Without the
+ * fallback, the literals are asserted as well, so the priorities hold on
+ * every check. With the fallback, the literals are given to the solver as
+ * assumptions (see check), and the ports whose literals are found in the
+ * unsat core have their priorities freed, until the solver finds a
+ * schedule or no literal is left in the core.
+ */
+public class PriorityAssigner {
+
+    public static final int BY_PERIOD = 0;       // Shortest period first (rate monotonic)
+    public static final int BY_SLACK = 1;        // Smallest slack to the hard constraint first
+    public static final int BY_UTILIZATION = 2;  // Highest transmission time over period first
+
+    private int policy = BY_PERIOD;
+    private int domainSize = 1;
+    private boolean fallback = true;
+
+    private ArrayList<BoolExpr> pins = new ArrayList<BoolExpr>();
+    private HashMap<BoolExpr, String> pinNames = new HashMap<BoolExpr, String>();
+    private ArrayList<String> freedPorts = new ArrayList<String>();
+
+
+    /**
+     * [Method]: PriorityAssigner
+     * [Usage]: Default constructor of this class. Pins the priorities
+     * by period, freeing the ports where the assignment fails.
+     */
+    public PriorityAssigner() {
+
+    }
+
+
+    /**
+     * [Method]: PriorityAssigner
+     * [Usage]: Overloaded constructor of this class.
+     *
+     * @param policy        Policy used to rank the fragments (BY_PERIOD, BY_SLACK or BY_UTILIZATION)
+     * @param domainSize    Number of priorities each fragment may take (1 pins them)
+     * @param fallback      If the priorities of the ports where the assignment fails are freed
+     */
+    public PriorityAssigner(int policy, int domainSize, boolean fallback) {
+        this.policy = policy;
+        this.domainSize = domainSize;
+        this.fallback = fallback;
+    }
+
+
+    /**
+     * [Method]: assign
+     * [Usage]: Computes the priorities of the fragments of every port
+     * and asserts them under the literal of the port. Must be called
+     * after the flows and switches are converted to z3.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver with the variables of the network
+     * @param ctx       Context of the solver
+     */
+    public void assign(Network net, Solver solver, Context ctx) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+
+        this.pins.clear();
+        this.pinNames.clear();
+        this.freedPorts.clear();
+
+        for(Switch swt : net.getSwitches()) {
+            for(Port port : ((TSNSwitch) swt).getPorts()) {
+                ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>(port.getFlowFragments());
+                int numOfPrts = port.getCycle().getNumOfPrts();
+                int domainSize = Math.max(1, Math.min(this.domainSize, numOfPrts));
+
+                if(fragments.isEmpty()) {
+                    continue;
+                }
+
+                final IdentityHashMap<FlowFragment, Float> keys = new IdentityHashMap<FlowFragment, Float>();
+                for(FlowFragment frag : fragments) {
+                    keys.put(frag, this.rankingKey(frag, port));
+                }
+
+                Collections.sort(fragments, new Comparator<FlowFragment>() {
+                    public int compare(FlowFragment a, FlowFragment b) {
+                        return Float.compare(keys.get(a), keys.get(b));
+                    }
+                });
+
+                BoolExpr pin = ctx.mkBoolConst("priorityPin" + port.getName());
+                ArrayList<BoolExpr> priorities = new ArrayList<BoolExpr>();
+
+                for(int rank = 0; rank < fragments.size(); rank++) {
+                    IntExpr priority = fragments.get(rank).getFragmentPriorityZ3();
+                    int group = rank * numOfPrts / fragments.size();
+                    int lowest = Math.max(0, numOfPrts - 1 - group - (domainSize - 1));
+
+                    if(domainSize == 1) {
+                        priorities.add(ctx.mkEq(priority, cache.mkInt(lowest)));
+                    } else {
+                        priorities.add(ctx.mkGe(priority, cache.mkInt(lowest)));
+                        priorities.add(ctx.mkLe(priority, cache.mkInt(lowest + domainSize - 1)));
+                    }
+                }
+
+                solver.add(ctx.mkImplies(pin, ctx.mkAnd(priorities.toArray(new BoolExpr[priorities.size()]))));
+
+                if(!this.fallback) {
+                    solver.add(pin);
+                }
+
+                this.pins.add(pin);
+                this.pinNames.put(pin, port.getName());
+            }
+        }
+
+        System.out.println("Priorities assigned on " + this.pins.size() + " ports.");
+    }
+
+
+    /**
+     * [Method]: check
+     * [Usage]: Checks the solver assuming the priorities of every port.
+     * If the solver rejects them, the ports in the unsat core have their
+     * priorities freed and the solver is checked again. The model can be
+     * retrieved from the solver as usual after this call.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver with the constraints of the network
+     * @param ctx       Context of the solver
+     * @return          Status of the solver
+     */
+    public Status check(Network net, Solver solver, Context ctx) {
+        ArrayList<BoolExpr> assumptions = new ArrayList<BoolExpr>(this.pins);
+        Status status = solver.check(assumptions.toArray(new BoolExpr[assumptions.size()]));
+
+        while(this.fallback && status == Status.UNSATISFIABLE) {
+            BoolExpr[] core = solver.getUnsatCore();
+
+            if(core.length == 0) { // Unsatisfiable even with free priorities
+                break;
+            }
+
+            for(BoolExpr pin : core) {
+                assumptions.remove(pin);
+                this.freedPorts.add(this.pinNames.get(pin));
+            }
+
+            System.out.println("Priorities freed on " + core.length + " ports (" + this.freedPorts.size() + " in total).");
+
+            status = solver.check(assumptions.toArray(new BoolExpr[assumptions.size()]));
+        }
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: assertPins
+     * [Usage]: Asserts the literals of every port, so the priorities
+     * hold on every check as they do without the fallback. Used when the
+     * solver is checked through other strategies than check, which can
+     * not free the priorities of a port.
+     *
+     * @param solver    Solver with the constraints of the network
+     */
+    public void assertPins(Solver solver) {
+        for(BoolExpr pin : this.pins) {
+            solver.add(pin);
+        }
+    }
+
+
+    /**
+     * [Method]: rankingKey
+     * [Usage]: Value used to rank a fragment on a port by the selected
+     * policy. Fragments with the smallest values get the highest
+     * priorities.
+     *
+     * The slack is estimated as the hard constraint of the flow minus the
+     * time to travel and transmit over each switch of its longest path,
+     * using the values of the given port.
+     *
+     * @param frag      Fragment being ranked
+     * @param port      Port of the fragment
+     * @return          Ranking key of the fragment
+     */
+    private float rankingKey(FlowFragment frag, Port port) {
+        Device startDevice = frag.getParent().getStartDevice();
+        float transmissionTime = startDevice.getPacketSize() / port.getPortSpeed();
+
+        if(this.policy == BY_SLACK) {
+            int numOfHops = 0;
+
+            for(PathNode leaf : frag.getParent().getPathTree().getLeaves()) {
+                numOfHops = Math.max(numOfHops, frag.getParent().getNodesFromRootToNode((Device) leaf.getNode()).size() - 2);
+            }
+
+            return startDevice.getHardConstraintTime() - numOfHops * (port.getTimeToTravel() + transmissionTime);
+        } else if(this.policy == BY_UTILIZATION) {
+            return -(transmissionTime / startDevice.getPacketPeriodicity());
+        }
+
+        return startDevice.getPacketPeriodicity();
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(int policy) {
+        this.policy = policy;
+    }
+
+    public int getDomainSize() {
+        return domainSize;
+    }
+
+    public void setDomainSize(int domainSize) {
+        this.domainSize = domainSize;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
+
+    public ArrayList<String> getFreedPorts() {
+        return freedPorts;
+    }
+
+}
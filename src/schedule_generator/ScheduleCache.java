@@ -0,0 +1,381 @@
+package schedule_generator;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * [Class]: ScheduleCache
+ * [Usage]: On-disk cache of solved schedules. Each network is identified
+ * by a SHA-256 hash of a canonical description of its switches, ports,
+ * cycle parameters, devices and path trees. The description does not
+ * depend on the order in which switches, ports, flows or branches were
+ * added to the network.
+ *
+ * The settings of the schedule generator that change the schedule found
+ * (encodings, optimizer, priority assignment, ...) are part of the
+ * description as well (see ScheduleGenerator.describeSettings), so a
+ * schedule is only reused with the settings it was found with.
+ *
+ * Each entry is a directory named after the hash, holding the serialized
+ * network (as written by ScheduleGenerator.serializeNetwork). The log and
+ * the XML files are generated again from the cached network, since they
+ * only depend on its values.
+ *
+ * Entries used least recently are deleted once the cache is larger than
+ * its maximum size.
+ */
+public class ScheduleCache {
+
+    private static final String NETWORK_FILE = "network.ser";
+
+    private File directory;
+    private long maxSize; // In bytes
+    private ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+
+
+    /**
+     * [Method]: ScheduleCache
+     * [Usage]: Overloaded constructor of this class. Creates a cache
+     * on the given directory.
+     *
+     * @param directory     Directory of the cache (created if needed)
+     * @param maxSize       Maximum size of the cache in bytes
+     */
+    public ScheduleCache(String directory, long maxSize) {
+        this.directory = new File(directory);
+        this.maxSize = maxSize;
+        this.directory.mkdirs();
+    }
+
+
+    /**
+     * [Method]: hashNetwork
+     * [Usage]: Computes the key of a network in the cache, scheduled
+     * with the default settings.
+     *
+     * @param net       Network to be hashed
+     * @return          Hexadecimal SHA-256 of the canonical description of the network
+     */
+    public String hashNetwork(Network net) {
+        return this.hashNetwork(net, "");
+    }
+
+
+    /**
+     * [Method]: hashNetwork
+     * [Usage]: Computes the key of a network in the cache. Must be
+     * called before the network is scheduled, since scheduling changes
+     * its flows.
+     *
+     * @param net       Network to be hashed
+     * @param settings  Description of the settings used to schedule it
+     * @return          Hexadecimal SHA-256 of the canonical description of the network
+     */
+    public String hashNetwork(Network net, String settings) {
+        ArrayList<String> switches = new ArrayList<String>();
+        ArrayList<String> flows = new ArrayList<String>();
+        StringBuilder description = new StringBuilder();
+
+        description.append(settings).append('\n');
+        description.append("net ").append(net.getJitterUpperBoundRange()).append('\n');
+
+        for(Switch swt : net.getSwitches()) {
+            StringBuilder swtDescription = new StringBuilder();
+
+            swtDescription.append("switch ").append(swt.getName())
+                .append(' ').append(swt.getMaxPacketSize())
+                .append(' ').append(swt.getTimeToTravel())
+                .append(' ').append(swt.getTransmissionTime())
+                .append(' ').append(swt.getPortSpeed());
+
+            if(swt instanceof TSNSwitch) {
+                ArrayList<String> ports = new ArrayList<String>();
+
+                swtDescription.append(' ').append(((TSNSwitch) swt).getGbSize());
+
+                for(Port port : ((TSNSwitch) swt).getPorts()) {
+                    Cycle cycle = port.getCycle();
+
+                    ports.add(
+                        "port " + port.getConnectsTo() +
+                        " " + port.getTimeToTravel() +
+                        " " + port.getPortSpeed() +
+                        " " + port.getGbSize() +
+                        " " + cycle.getMaximumSlotDuration() +
+                        " " + cycle.getUpperBoundCycleTime() +
+                        " " + cycle.getLowerBoundCycleTime() +
+                        " " + cycle.getNumOfPrts() +
+                        " " + cycle.getNumOfSlots()
+                    );
+                }
+
+                Collections.sort(ports);
+                for(String port : ports) {
+                    swtDescription.append("\n  ").append(port);
+                }
+            }
+
+            switches.add(swtDescription.toString());
+        }
+
+        for(Flow flw : net.getFlows()) {
+            Device dev = flw.getStartDevice();
+
+            flows.add(
+                "flow " + flw.getName() +
+                " " + flw.getType() +
+                " " + dev.getName() +
+                " " + dev.getPacketPeriodicity() +
+                " " + dev.getHardConstraintTime() +
+                " " + dev.getSoftConstraintTime() +
+                " " + dev.getPacketSize() +
+                " " + (flw.getPathTree() != null ? this.describeNode(flw.getPathTree().getRoot()) : this.describePath(flw))
+            );
+        }
+
+        Collections.sort(switches);
+        Collections.sort(flows);
+
+        for(String swt : switches) {
+            description.append(swt).append('\n');
+        }
+        for(String flw : flows) {
+            description.append(flw).append('\n');
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hash = new StringBuilder();
+
+            for(byte b : digest.digest(description.toString().getBytes(StandardCharsets.UTF_8))) {
+                hash.append(String.format("%02x", b));
+            }
+
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+    /**
+     * [Method]: describeNode
+     * [Usage]: Canonical description of a branch of a path tree. The
+     * branches under a node are sorted, so the order in which they were
+     * added does not matter.
+     *
+     * @param node      Root of the branch
+     * @return          Description of the branch
+     */
+    private String describeNode(PathNode node) {
+        ArrayList<String> children = new ArrayList<String>();
+        String name = node.getNode() instanceof Device ? ((Device) node.getNode()).getName() : ((Switch) node.getNode()).getName();
+
+        for(PathNode child : node.getChildren()) {
+            children.add(this.describeNode(child));
+        }
+        Collections.sort(children);
+
+        return "(" + name + (children.isEmpty() ? "" : " " + String.join(" ", children)) + ")";
+    }
+
+
+    /**
+     * [Method]: describePath
+     * [Usage]: Description of the path of a unicast flow whose path
+     * tree was not built yet.
+     *
+     * @param flw       Unicast flow
+     * @return          Description of the path
+     */
+    private String describePath(Flow flw) {
+        StringBuilder path = new StringBuilder("(" + flw.getStartDevice().getName());
+
+        if(flw.getPath() != null) {
+            for(Switch swt : flw.getPath()) {
+                path.append(" (").append(swt.getName());
+            }
+            path.append(" (").append(flw.getEndDevice().getName()).append(")");
+
+            for(int i = 0; i < flw.getPath().size(); i++) {
+                path.append(")");
+            }
+        }
+
+        return path.append(")").toString();
+    }
+
+
+    /**
+     * [Method]: load
+     * [Usage]: If the cache has an entry with the given key, copies its
+     * schedule to the network. The path trees of the flows and the ports
+     * of the switches are replaced by the cached ones, matched by name,
+     * and the first sending times of the start devices are copied.
+     *
+     * @param key       Key of the network (see hashNetwork)
+     * @param net       Network to receive the schedule
+     * @return          True if the entry was found and loaded
+     */
+    public boolean load(String key, Network net) {
+        File entry = new File(this.directory, key);
+        File networkFile = new File(entry, NETWORK_FILE);
+
+        if(key == null || !networkFile.exists()) {
+            return false;
+        }
+
+        Network cachedNet = this.scheduleGenerator.deserializeNetwork(networkFile.getPath());
+
+        if(cachedNet == null) {
+            return false;
+        }
+
+        HashMap<String, Flow> cachedFlows = new HashMap<String, Flow>();
+        HashMap<String, Switch> cachedSwitches = new HashMap<String, Switch>();
+
+        for(Flow flw : cachedNet.getFlows()) {
+            cachedFlows.put(flw.getName(), flw);
+        }
+        for(Switch swt : cachedNet.getSwitches()) {
+            cachedSwitches.put(swt.getName(), swt);
+        }
+
+        for(Flow flw : net.getFlows()) {
+            Flow cachedFlw = cachedFlows.get(flw.getName());
+
+            flw.setType(cachedFlw.getType());
+            flw.setPathTree(cachedFlw.getPathTree());
+            flw.setFlowFragments(cachedFlw.getFlowFragments());
+            flw.setNumOfPacketsSent(cachedFlw.getNumOfPacketsSent());
+            flw.setTotalNumOfPackets(cachedFlw.getTotalNumOfPackets());
+            flw.getStartDevice().setFirstT1Time(cachedFlw.getStartDevice().getFirstT1Time());
+
+            for(Switch swt : cachedNet.getSwitches()) {
+                for(Port port : ((TSNSwitch) swt).getPorts()) {
+                    for(FlowFragment frag : port.getFlowFragments()) {
+                        if(frag.getParent() == cachedFlw) {
+                            frag.setParent(flw);
+                        }
+                    }
+                }
+            }
+        }
+
+        for(Switch swt : net.getSwitches()) {
+            ((TSNSwitch) swt).setPorts(((TSNSwitch) cachedSwitches.get(swt.getName())).getPorts());
+        }
+
+        // Marks the entry as recently used
+        entry.setLastModified(System.currentTimeMillis());
+
+        return true;
+    }
+
+
+    /**
+     * [Method]: store
+     * [Usage]: Stores the schedule of a network under the given key,
+     * then deletes the entries used least recently while the cache is
+     * too large.
+     *
+     * @param key       Key of the network, computed before it was scheduled
+     * @param net       Scheduled network
+     */
+    public void store(String key, Network net) {
+        File entry = new File(this.directory, key);
+
+        if(key == null) {
+            return;
+        }
+
+        entry.mkdirs();
+        this.scheduleGenerator.serializeNetwork(net, new File(entry, NETWORK_FILE).getPath());
+
+        entry.setLastModified(System.currentTimeMillis());
+        this.evict();
+    }
+
+
+    /**
+     * [Method]: evict
+     * [Usage]: Deletes the entries used least recently until the cache
+     * is within its maximum size.
+     */
+    private void evict() {
+        File[] entries = this.directory.listFiles();
+        long totalSize = 0;
+
+        if(entries == null) {
+            return;
+        }
+
+        Arrays.sort(entries, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+
+        for(File entry : entries) {
+            totalSize += this.sizeOf(entry);
+        }
+
+        for(int i = 0; i < entries.length && totalSize > this.maxSize; i++) {
+            totalSize -= this.sizeOf(entries[i]);
+            this.delete(entries[i]);
+        }
+    }
+
+
+    private long sizeOf(File file) {
+        long size = file.length();
+        File[] files = file.listFiles();
+
+        if(files != null) {
+            for(File child : files) {
+                size += this.sizeOf(child);
+            }
+        }
+
+        return size;
+    }
+
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+
+        if(files != null) {
+            for(File child : files) {
+                this.delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public String getDirectory() {
+        return directory.getPath();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+}
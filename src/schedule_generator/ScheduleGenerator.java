@@ -6,6 +6,10 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.microsoft.z3.*;
 
@@ -26,6 +30,23 @@ public class ScheduleGenerator {
 	       }
 	   };
 	   
+	   private Portfolio portfolio = null;
+	   private ScheduleOptimizer optimizer = null;
+	   private HeuristicScheduler heuristicScheduler = null;
+	   private WarmStart warmStart = null;
+	   private ConstraintTracker constraintTracker = null;
+	   private Smt2Exporter smt2Exporter = null;
+	   private ScheduleCache scheduleCache = null;
+	   private PeriodHarmonizer periodHarmonizer = null;
+	   private PacketWindowRefiner packetWindowRefiner = null;
+	   private JitterRefiner jitterRefiner = null;
+	   private PriorityAssigner priorityAssigner = null;
+	   private ScheduleLogWriter scheduleLogWriter = new ScheduleLogWriter();
+	   private GclBinaryExporter gclBinaryExporter = null;
+	   
+	   public static boolean PRINT_FORMULA_SIZE = false; // Prints the number of assertions and terms given to z3
+	   public static boolean PRINT_MODEL = false;        // Prints the whole z3 model (may be larger than the log)
+	   
 	   /**
 	    * [Method]: stringToFloat
 	    * [Usage]: After evaluating the model, z3 allows the
@@ -106,6 +127,23 @@ public class ScheduleGenerator {
 	   }
 	   
 	   
+	   /**
+	    * [Method]: exportSchedule
+	    * [Usage]: Exports the gate control lists of a scheduled network
+	    * to the XML files of the switches and, if a binary exporter is
+	    * set, to its binary file.
+	    * 
+	    * @param net   Network with the schedule stored
+	    */
+	   public void exportSchedule(Network net) {
+		   new XMLExporter(net);
+		   
+		   if(this.gclBinaryExporter != null) {
+			   this.gclBinaryExporter.write(net);
+		   }
+	   }
+	   
+	   
 	   /**
 	    * [Method]: closeContext
 	    * [Usage]: Clears and close the context used to 
@@ -118,6 +156,8 @@ public class ScheduleGenerator {
            {
                 
                 { 
+                    Z3TermCache.release(ctx);
+                    ConstraintTracker.release(ctx);
                     ctx.close();
                 }
                 
@@ -138,154 +178,252 @@ public class ScheduleGenerator {
 	   }
 	   
 	   /**
-	    * [Method]: writePathTree
-	    * [Usage]: This is a recursive function used to 
-	    * navigate through the pathTree, storing information
-	    * about the switches and flowFramengts in the nodes
-	    * and printing data in the log.
+	    * [Method]: harvestSchedule
+	    * [Usage]: Stores the values found by z3 in the cycles of the
+	    * ports and in the flow fragments, walking the switches and
+	    * ports of the network once. The log is then written from the
+	    * stored values (see writeFlow).
+	    * 
+	    * @param net       Network scheduled
+	    * @param reader    Reader of the output model generated by z3
+	    * @param ctx       z3 context used to generate the model
+	    */
+	   public void harvestSchedule(Network net, ModelReader reader, Context ctx) {
+		   for(Switch swt : net.getSwitches()) {
+			   for(Port port : ((TSNSwitch) swt).getPorts()) {
+				   port.getCycle().setCycleStart(reader.evalTime(port.getCycle().getFirstCycleStartZ3()));
+				   port.getCycle().setCycleDuration(reader.evalTime(port.getCycle().getCycleDurationZ3()));
+				   
+				   for(FlowFragment ffrag : port.getFlowFragments()) {
+					   this.harvestFragment(port, ffrag, reader, ctx);
+				   }
+			   }
+		   }
+		   
+		   for(Flow flw : net.getFlows()) {
+			   flw.getStartDevice().setFirstT1Time(reader.evalTime(flw.getStartDevice().getFirstT1TimeZ3()));
+		   }
+	   }
+	   
+	   /**
+	    * [Method]: harvestFlow
+	    * [Usage]: Stores the values found by z3 in the fragments of a 
+	    * single flow and in the slots they use. Used when only part of
+	    * the flows of the network were scheduled on the context.
+	    * 
+	    * @param f         Flow to be stored
+	    * @param reader    Reader of the output model generated by z3
+	    * @param ctx       z3 context used to generate the model
+	    */
+	   public void harvestFlow(Flow f, ModelReader reader, Context ctx) {
+		   ArrayList<PathNode> nodes = new ArrayList<PathNode>();
+		   
+		   nodes.add(f.getPathTree().getRoot());
+		   
+		   while(!nodes.isEmpty()) {
+			   PathNode node = nodes.remove(0);
+			   
+			   if(node.getNode() instanceof TSNSwitch) {
+				   for(FlowFragment ffrag : node.getFlowFragments()) {
+					   this.harvestFragment(((TSNSwitch) node.getNode()).getPortOf(ffrag.getNextHop()), ffrag, reader, ctx);
+				   }
+			   }
+			   
+			   nodes.addAll(node.getChildren());
+		   }
+		   
+		   f.getStartDevice().setFirstT1Time(reader.evalTime(f.getStartDevice().getFirstT1TimeZ3()));
+	   }
+	   
+	   /**
+	    * [Method]: harvestFragment
+	    * [Usage]: Stores the priority and the packet times of a flow
+	    * fragment, and the slots of its priority in the cycle of its
+	    * port if no other fragment stored them yet.
+	    * 
+	    * @param port      Port of the fragment
+	    * @param ffrag     Fragment to be stored
+	    * @param reader    Reader of the output model generated by z3
+	    * @param ctx       z3 context used to generate the model
+	    */
+	   private void harvestFragment(Port port, FlowFragment ffrag, ModelReader reader, Context ctx) {
+		   Cycle cycle = port.getCycle();
+		   int fragmentPriority = reader.evalInt(ffrag.getFragmentPriorityZ3());
+		   int numOfPackets = ffrag.getParent().getNumOfPacketsSent();
+		   Expr[] departureTimes = new Expr[numOfPackets];
+		   Expr[] arrivalTimes = new Expr[numOfPackets];
+		   Expr[] scheduledTimes = new Expr[numOfPackets];
+		   
+		   ffrag.setFragmentPriority(fragmentPriority);
+		   ffrag.getParent().addToTotalNumOfPackets(ffrag.getNumOfPacketsSent());
+		   
+		   // Fragments of the same priority share the slots of the port
+		   if(!cycle.getSlotsUsed().contains(fragmentPriority)) {
+			   ArrayList<Float> listOfStart = new ArrayList<Float>();
+			   ArrayList<Float> listOfDuration = new ArrayList<Float>();
+			   
+			   for(int index = 0; index < cycle.getNumOfSlots(); index++) {
+				   listOfStart.add(reader.evalTime(cycle.slotStartZ3(ctx, fragmentPriority, index)));
+				   listOfDuration.add(reader.evalTime(cycle.slotDurationZ3(ctx, fragmentPriority, index)));
+			   }
+			   
+			   cycle.addSlotUsed(fragmentPriority, listOfStart, listOfDuration);
+		   }
+		   
+		   for(int i = 0; i < numOfPackets; i++) {
+			   departureTimes[i] = port.departureTime(ctx, i, ffrag);
+			   arrivalTimes[i] = port.arrivalTime(ctx, i, ffrag);
+			   scheduledTimes[i] = port.scheduledTime(ctx, i, ffrag);
+		   }
+		   
+		   float[] departureValues = reader.evalTimes(departureTimes);
+		   float[] arrivalValues = reader.evalTimes(arrivalTimes);
+		   float[] scheduledValues = reader.evalTimes(scheduledTimes);
+		   
+		   for(int i = 0; i < numOfPackets; i++) {
+			   ffrag.addDepartureTime(departureValues[i]);
+			   ffrag.addArrivalTime(arrivalValues[i]);
+			   ffrag.addScheduledTime(scheduledValues[i]);
+		   }
+	   }
+	   
+	   /**
+	    * [Method]: writeFlow
+	    * [Usage]: Stores the values found by z3 for a flow in its
+	    * fragments and prints its information in the log (see 
+	    * ScheduleLogWriter). Used when only part of the flows of the
+	    * network were scheduled on the context.
 	    * 
-	    * @param pathNode  Current node of pathTree (should start with root)
+	    * @param f         Flow to be written
 	    * @param model     Output model generated by z3
 	    * @param ctx       z3 context used to generate the model
 	    * @param out       PrintWriter stream to output log file
 	    */
-	   public void writePathTree(PathNode pathNode, Model model, Context ctx, PrintWriter out) {
-	       Switch swt;
-	       IntExpr indexZ3 = null;
-	    
-	       if((pathNode.getNode() instanceof Device) && (pathNode.getParent() != null)) {
-	           out.println("    [END OF BRANCH]");
-                
-	       }
-	       
-	       
-	       /*
-	        * Once given a node, an iteration through its children will begin. For
-	        * each switch children, there will be a flow fragment, and to each device
-	        * children, there will be an end of branch.
-	        * 
-	        * The logic for storing and printing the data on the publish subscribe
-	        * flows is similar but easier than the unicast flows. The pathNode object
-	        * stores references to both flow fragment and switch, so no search is needed.
-	        */
-           for(PathNode child : pathNode.getChildren()) {
-               if(child.getNode() instanceof Switch) {
-                   
-                   for(FlowFragment ffrag : child.getFlowFragments()) {
-                       out.println("    Fragment name: " + ffrag.getName());
-                       out.println("        Fragment node: " + ffrag.getNodeName());
-                       out.println("        Fragment next hop: " + ffrag.getNextHop());
-                       out.println("        Fragment priority: " + model.eval(ffrag.getFragmentPriorityZ3(), false));
-                       for(int index = 0; index < ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getNumOfSlots(); index++) {
-                    	   indexZ3 = ctx.mkInt(index);
-                    	   out.println("        Fragment slot start " + index + ": " 
-                                   + this.stringToFloat(
-                                           model.eval(((TSNSwitch) child.getNode())
-                                                  .getPortOf(ffrag.getNextHop())
-                                                  .getCycle()
-                                                  .slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                                  , false).toString()
-                                       ));
-                    	   out.println("        Fragment slot duration " + index + " : " 
-                                    + this.stringToFloat(
-                                        model.eval(((TSNSwitch) child.getNode())
-                                                   .getPortOf(ffrag.getNextHop())
-                                                   .getCycle()
-                                                   .slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                                   , false).toString()));
-                
-                       }
-                       
-                       out.println("        Fragment times-");
-                       ffrag.getParent().addToTotalNumOfPackets(ffrag.getNumOfPacketsSent());
-                       
-                       for(int i = 0; i < ffrag.getParent().getNumOfPacketsSent(); i++) {
-                    	   // System.out.println(((TSNSwitch)child.getNode()).departureTime(ctx, i, ffrag));
-                    	   // System.out.println(((TSNSwitch)child.getNode()).arrivalTime(ctx, i, ffrag));
-                    	   // System.out.println(((TSNSwitch)child.getNode()).scheduledTime(ctx, i, ffrag));
-                           
-                    	   if(i < ffrag.getNumOfPacketsSent()) {
-		                	   out.println("          (" + Integer.toString(i) + ") Fragment departure time: " + this.stringToFloat(model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString()));
-		                	   out.println("          (" + Integer.toString(i) + ") Fragment arrival time: " + this.stringToFloat(model.eval(((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag) , false).toString()));
-		                       out.println("          (" + Integer.toString(i) + ") Fragment scheduled time: " + this.stringToFloat(model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()));
-		                       out.println("          ----------------------------");
-                    	   }
-                           
-                    	   ffrag.setFragmentPriority(
-                			   Integer.parseInt(
-                    			   model.eval(ffrag.getFragmentPriorityZ3(), false).toString()
-        					   )
-            			   );
-                    	   
-                           ffrag.addDepartureTime(
-                               this.stringToFloat(
-                                   model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString()   
-                               )
-                           );
-                           ffrag.addArrivalTime(
-                               this.stringToFloat(
-                                   model.eval(((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag) , false).toString()   
-                               )
-                           );
-                           ffrag.addScheduledTime(
-                               this.stringToFloat(
-                                   model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()   
-                               )
-                           );
-                           
-                       }
-                       
-                       swt = (TSNSwitch) child.getNode();
-
-                       for (Port port : ((TSNSwitch) swt).getPorts()) {
-
-                           if(!port.getFlowFragments().contains(ffrag)) {
-                               continue;
-                           }
-
-                           ArrayList<Float> listOfStart = new ArrayList<Float>();
-                    	   ArrayList<Float> listOfDuration = new ArrayList<Float>();
-                    	
-                           
-                           for(int index = 0; index < ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getNumOfSlots(); index++) {
-                        	   indexZ3 = ctx.mkInt(index);
-                        	   
-                    		   listOfStart.add(
-                				   this.stringToFloat(model.eval( 
-                                       ((TSNSwitch) child.getNode())
-                                       .getPortOf(ffrag.getNextHop())
-                                       .getCycle().slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-            				   );
-                    		   listOfDuration.add(
-                				   this.stringToFloat(model.eval( 
-                                       ((TSNSwitch) child.getNode())
-                                       .getPortOf(ffrag.getNextHop())
-                                       .getCycle().slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-            				   );
-                           }
-                    	   
-                    	   port.getCycle().addSlotUsed(
-                               (int) this.stringToFloat(model.eval(ffrag.getFragmentPriorityZ3(), false).toString()), 
-                               listOfStart, 
-                               listOfDuration
-                           );
-                       }
-                       
-                   }
-                   
-                   this.writePathTree(child, model, ctx, out);
-               } 
-           }
-           
+	   public void writeFlow(Flow f, Model model, Context ctx, PrintWriter out) {
+		   this.harvestFlow(f, new ModelReader(model), ctx);
+		   
+		   if(this.scheduleLogWriter != null) {
+			   this.scheduleLogWriter.writeFlow(f, out);
+		   }
 	   }
 	   
 	   
-	   public void configureNetwork(Network net, Context ctx, Solver solver) {
+	   /**
+	    * [Method]: countTerms
+	    * [Usage]: Counts the distinct terms of a set of assertions, 
+	    * visiting shared subterms only once. Used to compare the 
+	    * size of the formulas given by different encodings.
+	    * 
+	    * @param assertions    Assertions of a solver
+	    * @return              Number of distinct terms
+	    */
+	   public int countTerms(BoolExpr[] assertions) {
+		   HashSet<Integer> visited = new HashSet<Integer>();
+		   ArrayList<Expr> pending = new ArrayList<Expr>(Arrays.asList(assertions));
+		   
+		   while(!pending.isEmpty()) {
+			   Expr expr = pending.remove(pending.size() - 1);
+			   
+			   if(!visited.add(expr.getId()) || !expr.isApp()) {
+				   continue;
+			   }
+			   
+			   pending.addAll(Arrays.asList(expr.getArgs()));
+		   }
+		   
+		   return visited.size();
+	   }
+	   
+	   
+	   /**
+	    * [Method]: describeSettings
+	    * [Usage]: Describes the settings that change the schedule found
+	    * for a network: the encodings of time, cycles and slots, the
+	    * limits of the rules and the strategies set on this generator.
+	    * Used as part of the key of the network in the schedule cache.
+	    * 
+	    * @return      Description of the settings
+	    */
+	   public String describeSettings() {
+		   StringBuilder settings = new StringBuilder("settings");
+		   
+		   settings.append(" time ").append(TimeEncoding.ENCODING).append(' ').append(TimeEncoding.RESOLUTION);
+		   settings.append(" cycles ").append(Port.CYCLE_ENCODING);
+		   settings.append(" slots ").append(Cycle.SLOT_ENCODING);
+		   settings.append(" ranges ").append(Network.PACKETUPPERBOUNDRANGE).append(' ').append(Network.CYCLEUPPERBOUNDRANGE);
+		   
+		   if(this.optimizer != null) {
+			   settings.append(" optimizer ").append(this.optimizer.getMode())
+			   		   .append(' ').append(this.optimizer.getObjectives())
+			   		   .append(' ').append(this.optimizer.getWeights())
+			   		   .append(' ').append(this.optimizer.getTimeout());
+		   }
+		   if(this.heuristicScheduler != null) {
+			   settings.append(" heuristic");
+		   }
+		   if(this.priorityAssigner != null) {
+			   settings.append(" priorities ").append(this.priorityAssigner.getPolicy())
+			   		   .append(' ').append(this.priorityAssigner.getDomainSize())
+			   		   .append(' ').append(this.priorityAssigner.isFallback());
+		   }
+		   if(this.packetWindowRefiner != null) {
+			   settings.append(" windows ").append(this.packetWindowRefiner.getInitialWindow())
+			   		   .append(' ').append(this.packetWindowRefiner.getMaxRounds());
+		   }
+		   if(this.jitterRefiner != null) {
+			   settings.append(" lazyJitter");
+		   }
+		   if(this.warmStart != null) {
+			   settings.append(" warmStart");
+		   }
+		   if(this.portfolio != null) {
+			   settings.append(" portfolio");
+		   }
+		   
+		   return settings.toString();
+	   }
+	   
+	   
+	   /**
+	    * [Method]: checkNetwork
+	    * [Usage]: Converts the unicast flows, gives the periods of the
+	    * flows to the ports and checks the size of the hyper cycle of
+	    * every port (see Port.checkCycleSize) and, with the integer time
+	    * encoding, that the periods and bounds of the network are on the
+	    * grid (see TimeEncoding.checkNetwork). Must be called before the
+	    * context is created, so a network that is too large to schedule
+	    * is rejected before any z3 object exists.
+	    * 
+	    * @param net   Network to be scheduled
+	    */
+	   public void checkNetwork(Network net) {
+		   TimeEncoding.checkNetwork(net);
+		   
 		   for(Flow flw : net.getFlows()) {
 	    	   flw.convertUnicastFlow();
 	    	   flw.setUpPeriods(flw.getPathTree().getRoot());
 	       }
-	       
+		   
+		   for(Switch swt : net.getSwitches()) {
+			   for(Port port : ((TSNSwitch) swt).getPorts()) {
+				   port.checkCycleSize();
+			   }
+		   }
+	   }
+	   
+	   
+	   /**
+	    * [Method]: configureNetwork
+	    * [Usage]: Converts the network to z3 values and sets up the
+	    * scheduling rules on the given solver. The flows must already
+	    * be converted and their periods given to the ports by
+	    * checkNetwork.
+	    * 
+	    * @param net       Network to be scheduled
+	    * @param ctx       z3 context of the solver
+	    * @param solver    Solver receiving the rules of the network
+	    */
+	   public void configureNetwork(Network net, Context ctx, Solver solver) {
 	       for(Switch swt : net.getSwitches()) {
 	    	   TSNSwitch auxSwt = (TSNSwitch) swt;
 	    	   auxSwt.setUpCycleSize(solver, ctx);
@@ -302,9 +440,19 @@ public class ScheduleGenerator {
                ((TSNSwitch) swt).toZ3(ctx, solver);
            }
            
+           // Priorities are pinned before the scheduling rules are set up
+           if(this.priorityAssigner != null) {
+        	   this.priorityAssigner.assign(net, solver, ctx);
+           }
+           
            // Sets up the hard constraint for each individual flow in the network
            net.setJitterUpperBoundRangeZ3(ctx, 25);
-	       net.secureHC(solver, ctx);
+           net.setLazyJitter(this.jitterRefiner != null);
+           
+           // With a packet window refiner, the packet rules are set up round by round
+           if(this.packetWindowRefiner == null) {
+        	   net.secureHC(solver, ctx);
+           }
 	   }
 	   
 	   
@@ -319,9 +467,35 @@ public class ScheduleGenerator {
 	    */
 	   public void generateSchedule(Network net) 
 	   {
+		   String cacheKey = null;
+		   
+		   if(this.periodHarmonizer != null) {
+			   this.periodHarmonizer.harmonize(net);
+		   }
+		   
+		   if(this.scheduleCache != null) {
+			   cacheKey = this.scheduleCache.hashNetwork(net, this.describeSettings());
+			   
+			   if(this.scheduleCache.load(cacheKey, net)) {
+				   System.out.println("Schedule loaded from cache (" + cacheKey + ").");
+				   
+				   if(this.scheduleLogWriter != null) {
+					   this.scheduleLogWriter.write(net);
+				   }
+				   
+				   this.exportSchedule(net);
+				   return;
+			   }
+		   }
+		   
+		   this.checkNetwork(net);
+		   
 		   Context ctx = this.createContext(); //Creating the z3 context
 	       Solver solver = ctx.mkSolver();     //Creating the solver to generate unknown values based on the given context
 	       
+	       if(this.constraintTracker != null) {
+	    	   this.constraintTracker.register(ctx);
+	       }
 	       
 	        this.configureNetwork(net, ctx, solver);
 	       // net.loadNetwork(ctx, solver);
@@ -333,7 +507,7 @@ public class ScheduleGenerator {
            // The duration of the cycle is given as a question to z3, so all the 
            // constraints will have to be evaluated in order to z3 to know this cycle
            // duration
-           RealExpr switch1CycDuration = switch1.getCycle(0).getCycleDurationZ3();
+           ArithExpr switch1CycDuration = switch1.getCycle(0).getCycleDurationZ3();
            
            
 	       /* find model for the constraints above */
@@ -344,168 +518,218 @@ public class ScheduleGenerator {
 	       System.out.println("Rules set. Checking solver.");
 	       System.out.println("Current time of the day: " + time);
 	       
+	       if(PRINT_FORMULA_SIZE) {
+	    	   System.out.println("Formula size: " + solver.getNumAssertions() + " assertions, " + 
+	    			   this.countTerms(solver.getAssertions()) + " terms");
+	       }
+	       
+	       
+	       Status status = null;
+	       boolean heuristicScheduled = false;
 	       
-	       if (Status.SATISFIABLE == solver.check())
+	       // Only the plain check can free the priorities of a port, so the other strategies keep them all
+	       if(this.priorityAssigner != null && this.priorityAssigner.isFallback() && 
+	    	  (this.optimizer != null || this.warmStart != null || this.portfolio != null || this.packetWindowRefiner != null)) {
+	    	   System.out.println("Priority fallback not available with the selected strategy. Assigned priorities are kept.");
+	    	   this.priorityAssigner.assertPins(solver);
+	       }
+	       
+	       // Tracked constraints hold on a scope of their own, dropped if a diagnosis is needed
+	       if(this.constraintTracker != null && this.packetWindowRefiner == null) {
+	    	   solver.push();
+	    	   this.constraintTracker.enable(solver);
+	       }
+	       
+	       if(this.smt2Exporter != null && this.smt2Exporter.getExportPath() != null && this.packetWindowRefiner == null) {
+	    	   this.smt2Exporter.export(solver, ctx, this.smt2Exporter.getExportPath());
+	       }
+	       
+	       // The heuristic schedule is tried first as a hint, and dropped if the solver rejects it.
+	       // When optimizing, the hint is not used, since it would end the search on its first model
+	       if(this.packetWindowRefiner != null) {
+	    	   status = this.packetWindowRefiner.check(net, solver, ctx);
+	       } else if(this.smt2Exporter != null && this.smt2Exporter.getReplayPath() != null) {
+	    	   status = this.smt2Exporter.replay(solver, ctx, this.smt2Exporter.getReplayPath());
+	       } else if(this.heuristicScheduler != null && this.heuristicScheduler.computeSchedule(net)) {
+	    	   heuristicScheduled = true;
+	    	   
+	    	   if(this.optimizer == null) {
+	    		   status = solver.check(this.heuristicScheduler.pinSchedule(net, solver, ctx));
+	    	   }
+	    	   
+	    	   if(status != null && status != Status.SATISFIABLE) {
+	    		   System.out.println("Heuristic schedule rejected by the solver.");
+	    		   status = null;
+	    	   }
+	       } else if(this.heuristicScheduler != null) {
+	    	   System.out.println("Heuristic scheduler failed: " + this.heuristicScheduler.getFailure());
+	       }
+	       
+	       if(status != null) {
+	    	   if(heuristicScheduled) {
+	    		   System.out.println("Heuristic schedule accepted by the solver.");
+	    	   }
+	       } else if(this.optimizer != null) {
+	    	   status = this.optimizer.check(net, solver, ctx);
+	       } else if(this.warmStart != null) {
+	    	   status = this.warmStart.check(net, solver, ctx);
+	       } else if(this.portfolio != null) {
+	    	   status = this.portfolio.check(net, solver, ctx);
+	       } else if(this.priorityAssigner != null && this.priorityAssigner.isFallback()) {
+	    	   status = this.priorityAssigner.check(net, solver, ctx);
+	       } else {
+	    	   status = solver.check();
+	       }
+	       
+	       if(this.jitterRefiner != null) {
+	    	   status = this.jitterRefiner.check(net, solver, ctx, status);
+	       }
+	       
+	       if (Status.SATISFIABLE == status)
 	       {
 	           model = solver.getModel();
-	           System.out.println(model);
+	           ModelReader reader = new ModelReader(model);
+	           
+	           if(PRINT_MODEL) {
+	        	   System.out.println(model);
+	           }
+	           
 	           Expr v = model.evaluate(switch1CycDuration, false);
 	           if (v != null)
 	           {
 	               System.out.println("Model generated.");
 	                              
-	               try {
-	                   PrintWriter out = new PrintWriter("log.txt");
-	                   
-	                   out.println("SCHEDULER LOG:\n\n");
-                       	                   
-	                   out.println("SWITCH LIST:");
-	                   
-	                   // For every switch in the network, store its information in the log
-	                   for(Switch auxSwt : net.getSwitches()) {
-	                       out.println("  Switch name: " + auxSwt.getName());
-	                       out.println("    Max packet size: " + auxSwt.getMaxPacketSize());
-                           out.println("    Port speed: " + auxSwt.getPortSpeed());
-                           out.println("    Time to Travel: " + auxSwt.getTimeToTravel());
-	                       out.println("    Transmission time: " + auxSwt.getTransmissionTime());
-//	                       out.println("    Cycle information -");
-//	                       out.println("        First cycle start: " + model.eval(((TSNSwitch)auxSwt).getCycleStart(), false));
-//	                       out.println("        Cycle duration: " + model.eval(((TSNSwitch)auxSwt).getCycleDuration(), false));
-                           out.println("");
-	                       /*
-	                       for (Port port : ((TSNSwitch)auxSwt).getPorts()) {
-                               out.println("        Port name (Virtual Index): " + port.getName());
-                               out.println("        First cycle start: " + model.eval(port.getCycle().getFirstCycleStartZ3(), false));
-                               out.println("        Cycle duration: " + model.eval(port.getCycle().getCycleDurationZ3(), false));
-                               out.println(""); 
-                           }
-                           */
-	                       
-	                       
-	                       // [EXTRACTING OUTPUT]: Obtaining the z3 output of the switch properties,
-                           // converting it from string to float and storing in the objects
-                                                    
-	                       for (Port port : ((TSNSwitch)auxSwt).getPorts()) {
-	                           port
-                                   .getCycle()
-                                   .setCycleStart(
-                                       this.stringToFloat("" + model.eval(port.getCycle().getFirstCycleStartZ3(), false))
-                                   );
-	                       }
-	                       
-	                       // cycleDuration
-	                       for (Port port : ((TSNSwitch)auxSwt).getPorts()) {
-                               port
-                                   .getCycle()
-                                   .setCycleDuration(
-                                       this.stringToFloat("" + model.eval(port.getCycle().getCycleDurationZ3(), false))
-                                   );
-	                       }
-	                       
-	                   }
-	                   
-	                   out.println("");
-
-	                   out.println("FLOW LIST:");
-	                   //For every flow in the network, store its information in the log
-	                   for(Flow f : net.getFlows()) {
-	                       out.println("  Flow name: " + f.getName());
-	                       //out.println("    Flow priority:" + model.eval(f.getFlowPriority(), false));
-	                       out.println("    Start dev. first t1: " + model.eval(f.getStartDevice().getFirstT1TimeZ3(), false));
-	                       out.println("    Start dev. HC: " + model.eval(f.getStartDevice().getHardConstraintTimeZ3(), false));
-	                       out.println("    Start dev. packet periodicity: " + model.eval(f.getStartDevice().getPacketPeriodicityZ3(), false));
-	                       
-	                       
-	                       // IF FLOW IS UNICAST
-	                       /*
-	                       Observation: The flow is broken in smaller flow fragments.
-                           In order to know the departure, arrival, scheduled times
-                           and other properties of the flow the switch that the flow fragment
-                           belongs to must be retrieved. The flow is then used on the switch 
-                           to find the port to its destination. The port and the flow fragment
-                           can now be used to retrieve information about the flow.
-                           
-                           The way in which unicast and publish subscribe flows are 
-                           structured here are different. So this process is done differently
-                           in each case.
-	                       */
-	                       if(f.getType() == Flow.UNICAST) {
-	                           // TODO: Throw error. UNICAST data structure are not allowed at this point
-	                    	   // Everything should had been converted into the multicast model.
-	                       } else if(f.getType() == Flow.PUBLISH_SUBSCRIBE) { //IF FLOW IS PUB-SUB
-	                           
-	                           /*
-	                            * In case of a publish subscribe flow, it is easier to 
-	                            * traverse through the path three than iterate over the 
-	                            * nodes as it could be done with the unicast flow.
-	                            */
-	                           
-	                           PathTree pathTree;
-	                           PathNode pathNode;
-	                           
-	                           pathTree = f.getPathTree();
-	                           pathNode = pathTree.getRoot();
-	                           
-	                           out.println("    Flow type: Multicast");
-	                           ArrayList<PathNode> auxNodes;
-	                           ArrayList<FlowFragment> auxFlowFragments;
-	                           int auxCount = 0;
-	                           
-	                           out.print("    List of leaves: ");
-	                           for(PathNode node : f.getPathTree().getLeaves()) {
-	                               out.print(((Device) node.getNode()).getName() + ", ");                                           
-	                           }
-	                           out.println("");
-                               for(PathNode node : f.getPathTree().getLeaves()) {
-                                   auxNodes = f.getNodesFromRootToNode((Device) node.getNode());
-                                   auxFlowFragments = f.getFlowFromRootToNode((Device) node.getNode());
-                                   
-                                   out.print("    Path to " + ((Device) node.getNode()).getName() + ": ");
-                                   auxCount = 0;
-                                   for(PathNode auxNode : auxNodes) {
-                                       if(auxNode.getNode() instanceof Device) {
-                                           out.print(((Device) auxNode.getNode()).getName() + ", ");                                           
-                                       } else if (auxNode.getNode() instanceof TSNSwitch) {
-                                           out.print(
-                                               ((TSNSwitch) auxNode.getNode()).getName() + 
-                                               "(" + 
-                                               auxFlowFragments.get(auxCount).getName() +
-                                               "), ");
-                                           auxCount++;
-                                       }
-                                       
-                                   }
-                                   out.println("");
-                               }
-                               out.println("");
-                               
-	                           //Start the data storing and log printing process from the root
-	                           this.writePathTree(pathNode, model, ctx, out);                                
-	                       }
-	                       
-	                       out.println("");
-	                       
-	                   }
-
-	                   out.close();
-	                   
-                   } catch (FileNotFoundException e) {
-                       e.printStackTrace();
-                   }
-                   
+	               // [EXTRACTING OUTPUT]: The values of the model are stored in the 
+	               // cycles and fragments once, and the log is written from them
+	               this.harvestSchedule(net, reader, ctx);
+	               
+	               if(this.scheduleLogWriter != null) {
+	            	   this.scheduleLogWriter.write(net);
+	               }
+	               
+	               if(this.scheduleCache != null) {
+	            	   this.scheduleCache.store(cacheKey, net);
+	               }
+	               
 	           } else
 	           {
 	               System.out.println("Failed to evaluate");
 	           }
+	       } else if(this.constraintTracker != null && status == Status.UNSATISFIABLE)
+	       {
+	           System.out.println("The specified constraints might not be satisfiable. Looking for conflicts.");
+	           solver.pop();
+	           this.constraintTracker.diagnose(solver);
+	       } else if(heuristicScheduled && status == Status.UNKNOWN)
+	       {
+	           // Only used when the solver gives up, since an unsatisfiable result proves it breaks the rules
+	           System.out.println("The solver gave no answer (" + solver.getReasonUnknown() + "). Using the heuristic schedule.");
+	           this.heuristicScheduler.storeSchedule(net);
+	           
+	           if(this.scheduleLogWriter != null) {
+	        	   this.scheduleLogWriter.write(net);
+	           }
 	       } else
 	       {
 	           System.out.println("The specified constraints might not be satisfiable.");
 	       }
 	       
 	       this.closeContext(ctx);
-	       new XMLExporter(net);
+	       this.exportSchedule(net);
 	       // this.serializeNetwork(net, "network.ser");
 	   }
+	   
+	   
+	   /**
+	    * [Method]: generateScheduleInParallel
+	    * [Usage]: Alternative to generateSchedule. The flows of the
+	    * network are grouped in a conflict graph, where flows sharing
+	    * a port or a start device are in the same component. Each
+	    * component is scheduled on its own context, using a pool of
+	    * threads, and the results are merged back in the network.
+	    * 
+	    * Ports that are not used by any flow have their cycle start and
+	    * duration set to 0, as is done by the solver in generateSchedule.
+	    * 
+	    * @param net           Network used as base to generate the schedule
+	    * @param numOfThreads  Maximum number of components solved at the same time
+	    */
+	   public void generateScheduleInParallel(Network net, int numOfThreads) {
+		   ArrayList<ComponentScheduler> componentSchedulers = new ArrayList<ComponentScheduler>();
+		   ArrayList<Future<Status>> results = null;
+		   ArrayList<Port> usedPorts = new ArrayList<Port>();
+		   boolean satisfiable = true;
+		   float jitterUpperBoundRange = 25;
+		   
+		   if(net.getJitterUpperBoundRange() != -1) {
+			   jitterUpperBoundRange = net.getJitterUpperBoundRange();
+		   }
+		   
+		   this.checkNetwork(net);
+		   
+		   ConflictGraph conflictGraph = new ConflictGraph(net);
+		   
+		   System.out.println("Number of independent components: " + conflictGraph.getNumOfComponents());
+		   
+		   for(int i = 0; i < conflictGraph.getNumOfComponents(); i++) {
+			   componentSchedulers.add(
+				   new ComponentScheduler(
+					   net, 
+					   conflictGraph.getFlowsOfComponent(i), 
+					   conflictGraph.getPortsOfComponent(i), 
+					   jitterUpperBoundRange
+				   )
+			   );
+			   usedPorts.addAll(conflictGraph.getPortsOfComponent(i));
+		   }
+		   
+		   System.out.println("Rules set. Checking solver.");
+		   System.out.println("Current time of the day: " + LocalTime.now());
+		   
+		   ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numOfThreads));
+		   
+		   try {
+			   results = new ArrayList<Future<Status>>(executor.invokeAll(componentSchedulers));
+		   } catch (InterruptedException e) {
+			   e.printStackTrace();
+		   } finally {
+			   executor.shutdown();
+		   }
+		   
+		   for(int i = 0; i < componentSchedulers.size(); i++) {
+			   try {
+				   if(results == null || results.get(i).get() != Status.SATISFIABLE) {
+					   System.out.println("The specified constraints of component " + i + " might not be satisfiable.");
+					   satisfiable = false;
+				   }
+			   } catch (InterruptedException | ExecutionException e) {
+				   e.printStackTrace();
+				   satisfiable = false;
+			   }
+			   
+			   componentSchedulers.get(i).writeResults();
+		   }
+		   
+		   // Idle ports are not given to any component
+		   for(Switch swt : net.getSwitches()) {
+			   for(Port port : ((TSNSwitch) swt).getPorts()) {
+				   if(!usedPorts.contains(port)) {
+					   port.getCycle().setCycleStart(0);
+					   port.getCycle().setCycleDuration(0);
+				   }
+			   }
+		   }
+		   
+		   if(satisfiable) {
+			   System.out.println("Model generated.");
+		   }
+		   
+		   if(this.scheduleLogWriter != null) {
+			   this.scheduleLogWriter.write(net);
+		   }
+		   
+		   this.exportSchedule(net);
+	   }
 
 
 	   /**
@@ -558,4 +782,221 @@ public class ScheduleGenerator {
 
 
 
+	   public Portfolio getPortfolio() {
+		   return portfolio;
+	   }
+	   
+	   /**
+	    * [Method]: setPortfolio
+	    * [Usage]: When a portfolio is set, generateSchedule races its
+	    * configurations instead of running a single check on the solver.
+	    * 
+	    * @param portfolio     Portfolio of z3 configurations (null to disable)
+	    */
+	   public void setPortfolio(Portfolio portfolio) {
+		   this.portfolio = portfolio;
+	   }
+
+	   public ScheduleOptimizer getOptimizer() {
+		   return optimizer;
+	   }
+	   
+	   /**
+	    * [Method]: setOptimizer
+	    * [Usage]: When an optimizer is set, generateSchedule minimizes its
+	    * objectives instead of accepting the first schedule found. Takes
+	    * precedence over the portfolio.
+	    * 
+	    * @param optimizer     Objectives and time budget of the optimization (null to disable)
+	    */
+	   public void setOptimizer(ScheduleOptimizer optimizer) {
+		   this.optimizer = optimizer;
+	   }
+
+	   public HeuristicScheduler getHeuristicScheduler() {
+		   return heuristicScheduler;
+	   }
+	   
+	   /**
+	    * [Method]: setHeuristicScheduler
+	    * [Usage]: When a heuristic scheduler is set, generateSchedule
+	    * computes a greedy schedule before checking the solver and gives
+	    * it to the solver as a hint. If the solver gives up (unknown
+	    * status, such as on a timeout), the heuristic schedule is used
+	    * instead. It is not used if the solver finds the rules
+	    * unsatisfiable.
+	    * 
+	    * @param heuristicScheduler    Greedy scheduler (null to disable)
+	    */
+	   public void setHeuristicScheduler(HeuristicScheduler heuristicScheduler) {
+		   this.heuristicScheduler = heuristicScheduler;
+	   }
+
+	   public WarmStart getWarmStart() {
+		   return warmStart;
+	   }
+	   
+	   /**
+	    * [Method]: setWarmStart
+	    * [Usage]: When a warm start is set, generateSchedule gives the
+	    * values of a previous schedule to the solver as hints. Hints that
+	    * no longer fit the network are dropped. Used after the optimizer
+	    * and before the portfolio.
+	    * 
+	    * @param warmStart     Previous schedule to start from (null to disable)
+	    */
+	   public void setWarmStart(WarmStart warmStart) {
+		   this.warmStart = warmStart;
+	   }
+
+	   public ConstraintTracker getConstraintTracker() {
+		   return constraintTracker;
+	   }
+	   
+	   /**
+	    * [Method]: setConstraintTracker
+	    * [Usage]: When a constraint tracker is set, generateSchedule asserts
+	    * the main families of constraints under tracking literals and, if
+	    * no schedule is found, reports the flows and ports in conflict.
+	    * 
+	    * @param constraintTracker     Tracker of the constraints (null to disable)
+	    */
+	   public void setConstraintTracker(ConstraintTracker constraintTracker) {
+		   this.constraintTracker = constraintTracker;
+	   }
+
+	   public Smt2Exporter getSmt2Exporter() {
+		   return smt2Exporter;
+	   }
+	   
+	   /**
+	    * [Method]: setSmt2Exporter
+	    * [Usage]: When an exporter is set, generateSchedule writes the
+	    * constraints to its export path (if any) before checking the
+	    * solver, and replays the model of its replay path (if any)
+	    * instead of searching for a schedule.
+	    * 
+	    * @param smt2Exporter      Exporter of the constraints (null to disable)
+	    */
+	   public void setSmt2Exporter(Smt2Exporter smt2Exporter) {
+		   this.smt2Exporter = smt2Exporter;
+	   }
+
+	   public ScheduleCache getScheduleCache() {
+		   return scheduleCache;
+	   }
+	   
+	   /**
+	    * [Method]: setScheduleCache
+	    * [Usage]: When a cache is set, generateSchedule looks for the
+	    * schedule of the network in it before creating a context, and
+	    * stores every schedule found by the solver.
+	    * 
+	    * @param scheduleCache     Cache of schedules (null to disable)
+	    */
+	   public void setScheduleCache(ScheduleCache scheduleCache) {
+		   this.scheduleCache = scheduleCache;
+	   }
+
+	   public PeriodHarmonizer getPeriodHarmonizer() {
+		   return periodHarmonizer;
+	   }
+	   
+	   /**
+	    * [Method]: setPeriodHarmonizer
+	    * [Usage]: When a period harmonizer is set, generateSchedule snaps
+	    * the periods of the flows to its harmonic set before anything else
+	    * is done, keeping the hyper cycles small.
+	    * 
+	    * @param periodHarmonizer  Harmonizer of the periods (null to disable)
+	    */
+	   public void setPeriodHarmonizer(PeriodHarmonizer periodHarmonizer) {
+		   this.periodHarmonizer = periodHarmonizer;
+	   }
+
+	   public PacketWindowRefiner getPacketWindowRefiner() {
+		   return packetWindowRefiner;
+	   }
+	   
+	   /**
+	    * [Method]: setPacketWindowRefiner
+	    * [Usage]: When a packet window refiner is set, generateSchedule
+	    * gives z3 only the first packets of each flow, widening the
+	    * windows of the flows whose remaining packets conflict. The
+	    * constraints are not exported, since they change between rounds.
+	    * 
+	    * @param packetWindowRefiner   Refiner of the packet windows (null to disable)
+	    */
+	   public void setPacketWindowRefiner(PacketWindowRefiner packetWindowRefiner) {
+		   this.packetWindowRefiner = packetWindowRefiner;
+	   }
+
+	   public JitterRefiner getJitterRefiner() {
+		   return jitterRefiner;
+	   }
+	   
+	   /**
+	    * [Method]: setJitterRefiner
+	    * [Usage]: When a jitter refiner is set, generateSchedule solves
+	    * the network without jitter constraints, adding them only for
+	    * the subscribers whose jitter exceeds the maximum allowed on the
+	    * model found.
+	    * 
+	    * @param jitterRefiner     Refiner of the jitter constraints (null to disable)
+	    */
+	   public void setJitterRefiner(JitterRefiner jitterRefiner) {
+		   this.jitterRefiner = jitterRefiner;
+	   }
+
+	   public PriorityAssigner getPriorityAssigner() {
+		   return priorityAssigner;
+	   }
+	   
+	   /**
+	    * [Method]: setPriorityAssigner
+	    * [Usage]: When a priority assigner is set, the priorities of the
+	    * fragments are pinned (or limited to small ranges) by its policy
+	    * before the scheduling rules are set up. With the fallback of the
+	    * assigner, the ports where the assignment fails have their
+	    * priorities freed when the solver is checked without any other
+	    * strategy set. With an optimizer, warm start, portfolio or packet
+	    * window refiner, the assigned priorities are kept on every port.
+	    * 
+	    * @param priorityAssigner  Assigner of the priorities (null to disable)
+	    */
+	   public void setPriorityAssigner(PriorityAssigner priorityAssigner) {
+		   this.priorityAssigner = priorityAssigner;
+	   }
+
+	   public ScheduleLogWriter getScheduleLogWriter() {
+		   return scheduleLogWriter;
+	   }
+	   
+	   /**
+	    * [Method]: setScheduleLogWriter
+	    * [Usage]: Sets the writer of the log of the schedule. By default,
+	    * every packet is written to "log.txt".
+	    * 
+	    * @param scheduleLogWriter     Writer of the log (null to disable)
+	    */
+	   public void setScheduleLogWriter(ScheduleLogWriter scheduleLogWriter) {
+		   this.scheduleLogWriter = scheduleLogWriter;
+	   }
+
+	   public GclBinaryExporter getGclBinaryExporter() {
+		   return gclBinaryExporter;
+	   }
+	   
+	   /**
+	    * [Method]: setGclBinaryExporter
+	    * [Usage]: When a binary exporter is set, the gate control lists
+	    * are also written to a single binary file, next to the XML files
+	    * of the switches. The file can be loaded with a GclBinaryReader.
+	    * 
+	    * @param gclBinaryExporter     Exporter of the binary file (null to disable)
+	    */
+	   public void setGclBinaryExporter(GclBinaryExporter gclBinaryExporter) {
+		   this.gclBinaryExporter = gclBinaryExporter;
+	   }
+
 }
@@ -0,0 +1,243 @@
+package schedule_generator;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * [Class]: ScheduleLogWriter
+ * [Usage]: Writes the log of a schedule ("log.txt" by default) from the
+ * values stored in the cycles and flow fragments after the model is
+ * harvested (see ScheduleGenerator.harvestSchedule). The file is written
+ * through a buffer, and the detail of the log can be chosen:
+ *
+ *  - NONE: no log is written.
+ *  - SUMMARY: switches and the first sending time, hard constraint and
+ *    period of each flow.
+ *  - FLOWS: adds the paths of the flows, and the priority and slots of
+ *    each fragment.
+ *  - PACKETS (default): adds the departure, arrival and scheduled times
+ *    of every packet, as in the original log.
+ */
+public class ScheduleLogWriter {
+
+    public static final int NONE = 0;
+    public static final int SUMMARY = 1;
+    public static final int FLOWS = 2;
+    public static final int PACKETS = 3;
+
+    private int level = PACKETS;
+    private String path = "log.txt";
+    private int bufferSize = 1 << 16;
+
+
+    /**
+     * [Method]: ScheduleLogWriter
+     * [Usage]: Default constructor of this class. Writes every packet
+     * to "log.txt".
+     */
+    public ScheduleLogWriter() {
+
+    }
+
+
+    /**
+     * [Method]: ScheduleLogWriter
+     * [Usage]: Overloaded constructor of this class.
+     *
+     * @param level     Detail of the log (NONE, SUMMARY, FLOWS or PACKETS)
+     * @param path      Path of the log file
+     */
+    public ScheduleLogWriter(int level, String path) {
+        this.level = level;
+        this.path = path;
+    }
+
+
+    /**
+     * [Method]: write
+     * [Usage]: Writes the log of a scheduled network to the log file.
+     *
+     * @param net       Network with the schedule stored
+     */
+    public void write(Network net) {
+        if(this.level == NONE) {
+            return;
+        }
+
+        try {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(this.path), this.bufferSize));
+
+            out.println("SCHEDULER LOG:\n\n");
+
+            out.println("SWITCH LIST:");
+
+            // For every switch in the network, store its information in the log
+            for(Switch auxSwt : net.getSwitches()) {
+                out.println("  Switch name: " + auxSwt.getName());
+                out.println("    Max packet size: " + auxSwt.getMaxPacketSize());
+                out.println("    Port speed: " + auxSwt.getPortSpeed());
+                out.println("    Time to Travel: " + auxSwt.getTimeToTravel());
+                out.println("    Transmission time: " + auxSwt.getTransmissionTime());
+                out.println("");
+            }
+
+            out.println("");
+
+            out.println("FLOW LIST:");
+            //For every flow in the network, store its information in the log
+            for(Flow f : net.getFlows()) {
+                this.writeFlow(f, out);
+            }
+
+            out.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * [Method]: writeFlow
+     * [Usage]: Prints the information of a flow in the log, with the
+     * detail of the selected level.
+     *
+     * @param f         Flow to be written
+     * @param out       PrintWriter stream to output log file
+     */
+    public void writeFlow(Flow f, PrintWriter out) {
+        if(this.level == NONE) {
+            return;
+        }
+
+        out.println("  Flow name: " + f.getName());
+        out.println("    Start dev. first t1: " + f.getStartDevice().getFirstT1Time());
+        out.println("    Start dev. HC: " + f.getStartDevice().getHardConstraintTime());
+        out.println("    Start dev. packet periodicity: " + f.getStartDevice().getPacketPeriodicity());
+
+        // Unicast flows are converted into the multicast model before being scheduled
+        if(this.level >= FLOWS && f.getType() == Flow.PUBLISH_SUBSCRIBE) {
+            ArrayList<PathNode> auxNodes;
+            ArrayList<FlowFragment> auxFlowFragments;
+            int auxCount = 0;
+
+            out.println("    Flow type: Multicast");
+
+            out.print("    List of leaves: ");
+            for(PathNode node : f.getPathTree().getLeaves()) {
+                out.print(((Device) node.getNode()).getName() + ", ");
+            }
+            out.println("");
+            for(PathNode node : f.getPathTree().getLeaves()) {
+                auxNodes = f.getNodesFromRootToNode((Device) node.getNode());
+                auxFlowFragments = f.getFlowFromRootToNode((Device) node.getNode());
+
+                out.print("    Path to " + ((Device) node.getNode()).getName() + ": ");
+                auxCount = 0;
+                for(PathNode auxNode : auxNodes) {
+                    if(auxNode.getNode() instanceof Device) {
+                        out.print(((Device) auxNode.getNode()).getName() + ", ");
+                    } else if (auxNode.getNode() instanceof TSNSwitch) {
+                        out.print(
+                            ((TSNSwitch) auxNode.getNode()).getName() +
+                            "(" +
+                            auxFlowFragments.get(auxCount).getName() +
+                            "), ");
+                        auxCount++;
+                    }
+
+                }
+                out.println("");
+            }
+            out.println("");
+
+            this.writePathTree(f.getPathTree().getRoot(), out);
+        }
+
+        out.println("");
+    }
+
+
+    /**
+     * [Method]: writePathTree
+     * [Usage]: This is a recursive function used to navigate through
+     * the pathTree, printing the data stored in the flowFragments of
+     * the nodes and in the cycles of their ports. The times of the
+     * packets are only printed on the PACKETS level.
+     *
+     * @param pathNode  Current node of pathTree (should start with root)
+     * @param out       PrintWriter stream to output log file
+     */
+    public void writePathTree(PathNode pathNode, PrintWriter out) {
+
+        if((pathNode.getNode() instanceof Device) && (pathNode.getParent() != null)) {
+            out.println("    [END OF BRANCH]");
+        }
+
+        for(PathNode child : pathNode.getChildren()) {
+            if(child.getNode() instanceof Switch) {
+
+                for(FlowFragment ffrag : child.getFlowFragments()) {
+                    Cycle cycle = ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle();
+                    int prt = ffrag.getFragmentPriority();
+
+                    out.println("    Fragment name: " + ffrag.getName());
+                    out.println("        Fragment node: " + ffrag.getNodeName());
+                    out.println("        Fragment next hop: " + ffrag.getNextHop());
+                    out.println("        Fragment priority: " + prt);
+                    for(int index = 0; index < cycle.getNumOfSlots(); index++) {
+                        out.println("        Fragment slot start " + index + ": " + cycle.getSlotStart(prt, index));
+                        out.println("        Fragment slot duration " + index + " : " + cycle.getSlotDuration(prt, index));
+                    }
+
+                    if(this.level < PACKETS) {
+                        continue;
+                    }
+
+                    out.println("        Fragment times-");
+                    for(int i = 0; i < ffrag.getNumOfPacketsSent(); i++) {
+                        out.println("          (" + Integer.toString(i) + ") Fragment departure time: " + ffrag.getDepartureTime(i));
+                        out.println("          (" + Integer.toString(i) + ") Fragment arrival time: " + ffrag.getArrivalTime(i));
+                        out.println("          (" + Integer.toString(i) + ") Fragment scheduled time: " + ffrag.getScheduledTime(i));
+                        out.println("          ----------------------------");
+                    }
+                }
+
+                this.writePathTree(child, out);
+            }
+        }
+
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+}
@@ -0,0 +1,286 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: ScheduleOptimizer
+ * [Usage]: Instead of accepting any schedule that satisfies the
+ * constraints, searches for the schedule that minimizes a set of
+ * objectives using the z3 optimization engine.
+ *
+ * The objectives available are the sum of the slot durations of
+ * every port, the sum of the average latencies of the flows, the
+ * maximum jitter of the network and the sum of the cycle durations.
+ * They can be combined with weights into a single objective or
+ * minimized in lexicographic order (in the order they were added).
+ *
+ * A time budget can be given. When it runs out, the best schedule
+ * found so far is used, if any.
+ *
+ * Since the rest of the schedule generator retrieves values using
+ * the original solver, the model of the optimizer is fixed on it
+ * (see ModelReader.pinModel), as done by the Portfolio.
+ */
+public class ScheduleOptimizer {
+
+    public static final int SLOT_DURATION = 0;
+    public static final int AVG_LATENCY = 1;
+    public static final int MAX_JITTER = 2;
+    public static final int CYCLE_DURATION = 3;
+
+    public static final int WEIGHTED = 0;
+    public static final int LEXICOGRAPHIC = 1;
+
+    private int mode;
+    private int timeout = 0; // In milliseconds. 0 means no time budget
+    private ArrayList<Integer> objectives = new ArrayList<Integer>();
+    private ArrayList<Integer> weights = new ArrayList<Integer>();
+    private ArrayList<Float> objectiveValues = new ArrayList<Float>();
+    private boolean budgetExhausted = false;
+
+
+    /**
+     * [Method]: ScheduleOptimizer
+     * [Usage]: Overloaded constructor of this class. Creates an
+     * optimizer without objectives in the given mode.
+     *
+     * @param mode        WEIGHTED or LEXICOGRAPHIC
+     */
+    public ScheduleOptimizer(int mode) {
+        this.mode = mode;
+    }
+
+
+    /**
+     * [Method]: ScheduleOptimizer
+     * [Usage]: Overloaded constructor of this class. Creates an
+     * optimizer without objectives in the given mode and with
+     * a time budget.
+     *
+     * @param mode        WEIGHTED or LEXICOGRAPHIC
+     * @param timeout     Time budget in milliseconds
+     */
+    public ScheduleOptimizer(int mode, int timeout) {
+        this.mode = mode;
+        this.timeout = timeout;
+    }
+
+
+    /**
+     * [Method]: addObjective
+     * [Usage]: Adds an objective to be minimized with weight 1.
+     *
+     * @param objective   SLOT_DURATION, AVG_LATENCY, MAX_JITTER or CYCLE_DURATION
+     */
+    public void addObjective(int objective) {
+        this.addObjective(objective, 1);
+    }
+
+
+    /**
+     * [Method]: addObjective
+     * [Usage]: Adds an objective to be minimized. The weight is only
+     * used in the WEIGHTED mode. In the LEXICOGRAPHIC mode, objectives
+     * added first have higher priority.
+     *
+     * @param objective   SLOT_DURATION, AVG_LATENCY, MAX_JITTER or CYCLE_DURATION
+     * @param weight      Weight of the objective in the weighted sum
+     */
+    public void addObjective(int objective, int weight) {
+        this.objectives.add(objective);
+        this.weights.add(weight);
+    }
+
+
+    /**
+     * [Method]: check
+     * [Usage]: Minimizes the objectives over the assertions of the
+     * given solver. If a schedule is found (even if the time budget
+     * runs out before it is proven optimal), its values are fixed
+     * on the given solver, so its model can be retrieved as usual
+     * after this call.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver with the constraints of the network
+     * @param ctx       Context of the solver
+     * @return          SATISFIABLE if a schedule was found
+     */
+    public Status check(Network net, Solver solver, Context ctx) {
+        ArrayList<ArithExpr> objectiveTerms = new ArrayList<ArithExpr>();
+        Optimize optimize = ctx.mkOptimize();
+        Params params = ctx.mkParams();
+        Status status;
+        Model model = null;
+
+        this.objectiveValues.clear();
+        this.budgetExhausted = false;
+
+        // Objective terms may add the definitions of their variables to the solver, so they come first
+        for(int objective : this.objectives) {
+            objectiveTerms.add(this.objectiveZ3(objective, net, solver, optimize, ctx));
+        }
+
+        optimize.Add(solver.getAssertions());
+
+        if(this.timeout > 0) {
+            params.add("timeout", this.timeout);
+        }
+        params.add("priority", this.mode == LEXICOGRAPHIC ? "lex" : "box");
+        optimize.setParameters(params);
+
+        if(this.mode == LEXICOGRAPHIC) {
+            for(ArithExpr term : objectiveTerms) {
+                optimize.MkMinimize(term);
+            }
+        } else if(!objectiveTerms.isEmpty()) {
+            ArithExpr[] weightedTerms = new ArithExpr[objectiveTerms.size()];
+
+            for(int i = 0; i < objectiveTerms.size(); i++) {
+                weightedTerms[i] = ctx.mkMul(TimeEncoding.mkCount(ctx, this.weights.get(i)), objectiveTerms.get(i));
+            }
+
+            optimize.MkMinimize(ctx.mkAdd(weightedTerms));
+        }
+
+        status = optimize.Check();
+
+        if(status == Status.SATISFIABLE) {
+            model = optimize.getModel();
+        } else if(status == Status.UNKNOWN) {
+            System.out.println("Optimization stopped: " + optimize.getReasonUnknown());
+            this.budgetExhausted = true;
+
+            // The best model found before the budget ran out, if any
+            try {
+                model = optimize.getModel();
+            } catch (Z3Exception e) {
+                model = null;
+            }
+        }
+
+        if(model == null) {
+            return status;
+        }
+
+        ModelReader reader = new ModelReader(model, true);
+
+        for(ArithExpr term : objectiveTerms) {
+            this.objectiveValues.add(reader.evalTime(term));
+        }
+        System.out.println("Objective values: " + this.objectiveValues);
+
+        ModelReader.pinModel(model, ctx, net, solver, ctx);
+
+        return solver.check();
+    }
+
+
+    /**
+     * [Method]: objectiveZ3
+     * [Usage]: Builds the z3 term of an objective for the given network.
+     * Rules that only serve the objective (the slots of each port and
+     * the bounds of the maximum jitter) are added to the optimizer, so
+     * the solver of the network is left as it was.
+     *
+     * @param objective   SLOT_DURATION, AVG_LATENCY, MAX_JITTER or CYCLE_DURATION
+     * @param net         Network being scheduled
+     * @param solver      Solver with the constraints of the network
+     * @param optimize    Optimizer minimizing the objective
+     * @param ctx         Context of the solver
+     * @return            z3 term of the objective
+     */
+    private ArithExpr objectiveZ3(int objective, Network net, Solver solver, Optimize optimize, Context ctx) {
+        ArrayList<ArithExpr> terms = new ArrayList<ArithExpr>();
+
+        if(objective == SLOT_DURATION) {
+            for(Switch swt : net.getSwitches()) {
+                for(Port port : ((TSNSwitch) swt).getPorts()) {
+                    if(port.getFlowFragments().isEmpty()) {
+                        continue;
+                    }
+
+                    // Slots of a priority given as a number are shared by every port, so the slots of the port are used
+                    Cycle cycle = port.getCycle();
+                    ArrayList<BoolExpr> portSlotRules = port.portSlotRulesZ3(ctx);
+
+                    optimize.Add(portSlotRules.toArray(new BoolExpr[portSlotRules.size()]));
+                    for(int prt = 0; prt < cycle.getNumOfPrts(); prt++) {
+                        for(int index = 0; index < cycle.getNumOfSlots(); index++) {
+                            terms.add(cycle.getSlotDurationZ3(prt, index));
+                        }
+                    }
+                }
+            }
+        } else if(objective == AVG_LATENCY) {
+            for(Flow flw : net.getFlows()) {
+                terms.add(flw.getAvgLatency(solver, ctx));
+            }
+        } else if(objective == MAX_JITTER) {
+            ArithExpr maxJitter = TimeEncoding.mkTimeConst(ctx, "maxJitterOfNetwork");
+
+            for(Flow flw : net.getFlows()) {
+                for(PathNode node : flw.getPathTree().getLeaves()) {
+                    for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+                        optimize.Add(ctx.mkGe(maxJitter, flw.getJitterZ3((Device) node.getNode(), solver, ctx, i)));
+                    }
+                }
+            }
+
+            return maxJitter;
+        } else if(objective == CYCLE_DURATION) {
+            for(Switch swt : net.getSwitches()) {
+                for(Port port : ((TSNSwitch) swt).getPorts()) {
+                    if(!port.getFlowFragments().isEmpty()) {
+                        terms.add(port.getCycle().getCycleDurationZ3());
+                    }
+                }
+            }
+        }
+
+        if(terms.isEmpty()) {
+            return TimeEncoding.mkTime(ctx, 0);
+        }
+
+        return ctx.mkAdd(terms.toArray(new ArithExpr[terms.size()]));
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public int getMode() {
+        return mode;
+    }
+
+    public void setMode(int mode) {
+        this.mode = mode;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public ArrayList<Integer> getObjectives() {
+        return objectives;
+    }
+
+    public ArrayList<Integer> getWeights() {
+        return weights;
+    }
+
+    public ArrayList<Float> getObjectiveValues() {
+        return objectiveValues;
+    }
+
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+}
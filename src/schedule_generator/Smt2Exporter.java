@@ -0,0 +1,329 @@
+package schedule_generator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.microsoft.z3.*;
+import com.microsoft.z3.enumerations.Z3_ast_print_mode;
+import com.microsoft.z3.enumerations.Z3_decl_kind;
+
+/**
+ * [Class]: Smt2Exporter
+ * [Usage]: Splits the generation of the constraints and their solving
+ * into separate stages. The assertions of a solver are written to an
+ * SMT-LIB2 file, along with the declarations of their variables, so they
+ * can be profiled, shared or solved on another machine (for instance with
+ * "z3 -smt2 constraints.smt2 > model.txt"). The model given by the solver
+ * can then be replayed on the network: its values are fixed on a solver
+ * built again for the same network, so the schedule is retrieved as usual.
+ *
+ * Files ending with ".gz" are compressed. Assertions are streamed to the
+ * file one at a time, so the whole set is never held as a single string.
+ */
+public class Smt2Exporter {
+
+    private String exportPath = null;
+    private String replayPath = null;
+    private ScheduleGenerator scheduleGenerator = new ScheduleGenerator();
+
+
+    /**
+     * [Method]: exportNetwork
+     * [Usage]: Sets up the constraints of a network on a new context
+     * and writes them to a file, without solving them.
+     *
+     * @param net       Network whose constraints are exported
+     * @param path      Path of the SMT-LIB2 file
+     */
+    public void exportNetwork(Network net, String path) {
+        this.scheduleGenerator.checkNetwork(net);
+
+        Context ctx = this.scheduleGenerator.createContext();
+        Solver solver = ctx.mkSolver();
+
+        this.scheduleGenerator.configureNetwork(net, ctx, solver);
+        this.export(solver, ctx, path);
+        this.scheduleGenerator.closeContext(ctx);
+    }
+
+
+    /**
+     * [Method]: export
+     * [Usage]: Writes the declarations of the variables and the
+     * assertions of a solver to an SMT-LIB2 file.
+     *
+     * @param solver    Solver with the constraints to be exported
+     * @param ctx       Context of the solver
+     * @param path      Path of the SMT-LIB2 file
+     */
+    public void export(Solver solver, Context ctx, String path) {
+        BoolExpr[] assertions = solver.getAssertions();
+
+        ctx.setPrintMode(Z3_ast_print_mode.Z3_PRINT_SMTLIB2_COMPLIANT);
+
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(this.openOutput(path)));
+
+            for(FuncDecl decl : this.collectDeclarations(assertions).values()) {
+                out.write(decl.toString());
+                out.write("\n");
+            }
+
+            for(BoolExpr assertion : assertions) {
+                out.write("(assert ");
+                out.write(assertion.toString());
+                out.write(")\n");
+            }
+
+            out.write("(check-sat)\n");
+            out.write("(get-model)\n");
+            out.close();
+
+            System.out.println("Constraints exported to " + path + " (" + assertions.length + " assertions).");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * [Method]: replay
+     * [Usage]: Reads a model written by a solver for the exported
+     * constraints and fixes its values on the given solver, which must
+     * hold the constraints of the same network. The solver is then
+     * checked, so the model can be retrieved from it as usual. Only
+     * constants are read; functions are left for the solver to rebuild.
+     *
+     * @param solver        Solver with the constraints of the network
+     * @param ctx           Context of the solver
+     * @param modelPath     Path of the file with the model
+     * @return              Status of the solver after the values are fixed
+     */
+    public Status replay(Solver solver, Context ctx, String modelPath) {
+        LinkedHashMap<String, FuncDecl> decls = this.collectDeclarations(solver.getAssertions());
+        LinkedHashMap<String, String> values;
+        StringBuilder equalities = new StringBuilder();
+
+        try {
+            values = this.readModel(modelPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Status.UNKNOWN;
+        }
+
+        if(values == null) {
+            System.out.println("The replayed model reports the constraints as not satisfiable.");
+            return Status.UNSATISFIABLE;
+        }
+
+        for(String name : values.keySet()) {
+            if(decls.containsKey(name)) {
+                equalities.append("(assert (= |").append(name).append("| ").append(values.get(name)).append("))\n");
+            }
+        }
+
+        Symbol[] declNames = new Symbol[decls.size()];
+        FuncDecl[] declList = decls.values().toArray(new FuncDecl[decls.size()]);
+
+        for(int i = 0; i < declList.length; i++) {
+            declNames[i] = declList[i].getName();
+        }
+
+        solver.add(ctx.parseSMTLIB2String(equalities.toString(), null, null, declNames, declList));
+
+        return solver.check();
+    }
+
+
+    /**
+     * [Method]: collectDeclarations
+     * [Usage]: Walks through the assertions and retrieves the
+     * declarations of the variables and functions used, indexed by
+     * name. Shared subterms are visited only once.
+     *
+     * @param assertions    Assertions to walk through
+     * @return              Declarations found, indexed by name
+     */
+    private LinkedHashMap<String, FuncDecl> collectDeclarations(BoolExpr[] assertions) {
+        LinkedHashMap<String, FuncDecl> decls = new LinkedHashMap<String, FuncDecl>();
+        HashSet<Integer> visited = new HashSet<Integer>();
+        ArrayList<Expr> pending = new ArrayList<Expr>();
+
+        for(BoolExpr assertion : assertions) {
+            pending.add(assertion);
+        }
+
+        while(!pending.isEmpty()) {
+            Expr expr = pending.remove(pending.size() - 1);
+
+            if(!expr.isApp() || expr.isNumeral() || !visited.add(expr.getId())) {
+                continue;
+            }
+
+            FuncDecl decl = expr.getFuncDecl();
+
+            if(decl.getDeclKind() == Z3_decl_kind.Z3_OP_UNINTERPRETED) {
+                decls.put(decl.getName().toString(), decl);
+            }
+
+            for(Expr arg : expr.getArgs()) {
+                pending.add(arg);
+            }
+        }
+
+        return decls;
+    }
+
+
+    /**
+     * [Method]: readModel
+     * [Usage]: Reads the constants of a model file in the format given
+     * by "(get-model)". Each "(define-fun name () Sort value)" gives the
+     * value of a constant.
+     *
+     * @param path      Path of the model file
+     * @return          Values of the constants indexed by name, null if the file reports unsat
+     */
+    private LinkedHashMap<String, String> readModel(String path) throws IOException {
+        LinkedHashMap<String, String> values = new LinkedHashMap<String, String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(this.openInput(path)));
+        StringBuilder definition = new StringBuilder();
+        String line;
+        int depth = 0;
+
+        while((line = in.readLine()) != null) {
+            if(depth == 0 && line.trim().equals("unsat")) {
+                in.close();
+                return null;
+            }
+
+            // Definitions are one level under the parentheses that enclose the model
+            for(char c : line.toCharArray()) {
+                if(c == '(') {
+                    depth++;
+                }
+
+                if(depth >= 2) {
+                    definition.append(c);
+                }
+
+                if(c == ')') {
+                    depth--;
+
+                    if(depth == 1 && definition.length() > 0) {
+                        this.readDefinition(definition.toString(), values);
+                        definition.setLength(0);
+                    }
+                }
+            }
+
+            if(definition.length() > 0) {
+                definition.append(' ');
+            }
+        }
+
+        in.close();
+
+        return values;
+    }
+
+
+    /**
+     * [Method]: readDefinition
+     * [Usage]: Stores the value of a constant given by a define-fun.
+     * Definitions with arguments are ignored.
+     *
+     * @param definition    Text of the definition
+     * @param values        Map receiving the value of the constant
+     */
+    private void readDefinition(String definition, LinkedHashMap<String, String> values) {
+        String text = definition.trim();
+
+        if(!text.startsWith("(define-fun")) {
+            return;
+        }
+
+        text = text.substring("(define-fun".length(), text.length() - 1).trim();
+
+        int nameEnd = text.startsWith("|") ? text.indexOf('|', 1) + 1 : text.indexOf(' ');
+        String name = text.substring(0, nameEnd);
+        String rest = text.substring(nameEnd).trim();
+
+        if(!rest.startsWith("()")) {
+            return;
+        }
+
+        rest = rest.substring(2).trim();
+
+        // The sort of the variables used is a single word (Real, Int or Bool)
+        int sortEnd = rest.indexOf(' ');
+        if(sortEnd == -1) {
+            return;
+        }
+
+        values.put(name.replace("|", ""), rest.substring(sortEnd).trim());
+    }
+
+
+    private OutputStream openOutput(String path) throws IOException {
+        OutputStream out = new FileOutputStream(path);
+
+        return path.endsWith(".gz") ? new GZIPOutputStream(out) : out;
+    }
+
+
+    private InputStream openInput(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+
+        return path.endsWith(".gz") ? new GZIPInputStream(in) : in;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public String getExportPath() {
+        return exportPath;
+    }
+
+    /**
+     * [Method]: setExportPath
+     * [Usage]: When set, generateSchedule writes the constraints of the
+     * network to this file before checking the solver.
+     *
+     * @param exportPath    Path of the SMT-LIB2 file (null to disable)
+     */
+    public void setExportPath(String exportPath) {
+        this.exportPath = exportPath;
+    }
+
+    public String getReplayPath() {
+        return replayPath;
+    }
+
+    /**
+     * [Method]: setReplayPath
+     * [Usage]: When set, generateSchedule replays the model of this file
+     * instead of searching for one.
+     *
+     * @param replayPath    Path of the model file (null to disable)
+     */
+    public void setReplayPath(String replayPath) {
+        this.replayPath = replayPath;
+    }
+
+}
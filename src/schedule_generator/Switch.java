@@ -23,10 +23,10 @@ public class Switch implements Serializable {
     protected float transmissionTime;
     protected float portSpeed;
     
-    //protected RealExpr maxPacketSizeZ3;
-    //protected RealExpr timeToTravelZ3;
-    //protected RealExpr transmissionTimeZ3;
-    //protected RealExpr portSpeedZ3;
+    //protected ArithExpr maxPacketSizeZ3;
+    //protected ArithExpr timeToTravelZ3;
+    //protected ArithExpr transmissionTimeZ3;
+    //protected ArithExpr portSpeedZ3;
     
     
     /**
@@ -24,11 +24,11 @@ public class TSNSwitch extends Switch implements Serializable {
     private float cycleDurationLowerBound;
     
     private float gbSize;
-    private transient RealExpr gbSizeZ3; // Size of the guardBand
-    private transient RealExpr cycleDuration;
-    private transient RealExpr cycleStart;
-    private transient RealExpr cycleDurationUpperBoundZ3;
-    private transient RealExpr cycleDurationLowerBoundZ3;
+    private transient ArithExpr gbSizeZ3; // Size of the guardBand
+    private transient ArithExpr cycleDuration;
+    private transient ArithExpr cycleStart;
+    private transient ArithExpr cycleDurationUpperBoundZ3;
+    private transient ArithExpr cycleDurationLowerBoundZ3;
     private int portNum = 0;
 
     private static int indexCounter = 0; 
@@ -152,12 +152,12 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param ctx      Context variable containing the z3 environment used
      */
     public void toZ3(Context ctx, Solver solver) {
-        this.cycleDurationLowerBoundZ3 = ctx.mkReal(Float.toString(cycleDurationLowerBound));
-        this.cycleDurationUpperBoundZ3 = ctx.mkReal(Float.toString(cycleDurationUpperBound));
+        this.cycleDurationLowerBoundZ3 = TimeEncoding.mkTime(ctx, cycleDurationLowerBound);
+        this.cycleDurationUpperBoundZ3 = TimeEncoding.mkTime(ctx, cycleDurationUpperBound);
         
         // Creating the cycle duration and start for this switch
-        this.cycleDuration = ctx.mkRealConst("cycleOf" + this.name + "Duration");
-        this.cycleStart = ctx.mkRealConst("cycleOf" + this.name + "Start");
+        this.cycleDuration = TimeEncoding.mkTimeConst(ctx, "cycleOf" + this.name + "Duration");
+        this.cycleStart = TimeEncoding.mkTimeConst(ctx, "cycleOf" + this.name + "Start");
         
 
         // Creating the cycle setting up the bounds for the duration (Cycle duration constraint)
@@ -170,7 +170,7 @@ public class TSNSwitch extends Switch implements Serializable {
         
         // A cycle must start on a point in time, so it must be greater than 0
         solver.add( // No negative cycle values constraint
-            ctx.mkGe(this.cycleStart, ctx.mkInt(0))
+            ctx.mkGe(this.cycleStart, TimeEncoding.mkTime(ctx, 0))
         );
 
                 
@@ -187,7 +187,7 @@ public class TSNSwitch extends Switch implements Serializable {
             }
 
             solver.add( // No negative cycle values constraint
-        		ctx.mkGe(port.getCycle().getFirstCycleStartZ3(), ctx.mkInt(0))
+        		ctx.mkGe(port.getCycle().getFirstCycleStartZ3(), TimeEncoding.mkTime(ctx, 0))
     		);
         
             /* The cycle of every port must have the same duration
@@ -386,11 +386,11 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
-    public RealExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
+    public ArithExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
         IntExpr index = ctx.mkInt(auxIndex);
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
 
-        return (RealExpr) this.ports.get(portIndex).arrivalTime(ctx, auxIndex, flowFrag);
+        return (ArithExpr) this.ports.get(portIndex).arrivalTime(ctx, auxIndex, flowFrag);
      }
     
     
@@ -405,9 +405,9 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      *
-    public RealExpr arrivalTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+    public ArithExpr arrivalTime(Context ctx, IntExpr index, FlowFragment flowFrag){
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
-        return (RealExpr) this.ports.get(portIndex).arrivalTime(ctx, index, flowFrag);
+        return (ArithExpr) this.ports.get(portIndex).arrivalTime(ctx, index, flowFrag);
     }
     /**/
     
@@ -422,9 +422,9 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
-    public RealExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+    public ArithExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
-        return (RealExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
+        return (ArithExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
     }
     /**/
     
@@ -439,11 +439,11 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
-    public RealExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
+    public ArithExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
         IntExpr index = ctx.mkInt(auxIndex);
         
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
-        return (RealExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
+        return (ArithExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
      }
   
     /**
@@ -457,9 +457,9 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      *
-    public RealExpr scheduledTime(Context ctx, IntExpr index, FlowFragment flowFrag){
+    public ArithExpr scheduledTime(Context ctx, IntExpr index, FlowFragment flowFrag){
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
-        return (RealExpr) this.ports.get(portIndex).scheduledTime(ctx, index, flowFrag);
+        return (ArithExpr) this.ports.get(portIndex).scheduledTime(ctx, index, flowFrag);
     }
     /**/
     
@@ -474,12 +474,12 @@ public class TSNSwitch extends Switch implements Serializable {
      * @param flowFrag      Flow fragment that the packets belong to
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      */
-    public RealExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
+    public ArithExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
         // IntExpr index = ctx.mkInt(auxIndex);
         
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
         
-        return (RealExpr) this.ports.get(portIndex).scheduledTime(ctx, auxIndex, flowFrag);
+        return (ArithExpr) this.ports.get(portIndex).scheduledTime(ctx, auxIndex, flowFrag);
     }
     
     
@@ -528,11 +528,11 @@ public class TSNSwitch extends Switch implements Serializable {
         this.gbSize = gbSize;
     }
 
-    public RealExpr getGbSizeZ3() {
+    public ArithExpr getGbSizeZ3() {
         return gbSizeZ3;
     }
 
-    public void setGbSizeZ3(RealExpr gbSizeZ3) {
+    public void setGbSizeZ3(ArithExpr gbSizeZ3) {
         this.gbSizeZ3 = gbSizeZ3;
     }
 
@@ -549,20 +549,28 @@ public class TSNSwitch extends Switch implements Serializable {
         this.connectsTo.add(name);
     }
     
-    public RealExpr getCycleDuration() {
+    public ArithExpr getCycleDuration() {
         return cycleDuration;
     }
 
-    public void setCycleDuration(RealExpr cycleDuration) {
+    public void setCycleDuration(ArithExpr cycleDuration) {
         this.cycleDuration = cycleDuration;
     }
 
-    public RealExpr getCycleStart() {
+    public ArithExpr getCycleStart() {
         return cycleStart;
     }
 
-    public void setCycleStart(RealExpr cycleStart) {
+    public void setCycleStart(ArithExpr cycleStart) {
         this.cycleStart = cycleStart;
     }
     
+    public float getCycleDurationLowerBound() {
+        return cycleDurationLowerBound;
+    }
+    
+    public float getCycleDurationUpperBound() {
+        return cycleDurationUpperBound;
+    }
+    
 }
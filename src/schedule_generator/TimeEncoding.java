@@ -0,0 +1,296 @@
+package schedule_generator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: TimeEncoding
+ * [Usage]: Selects how the time variables of the schedule (cycle starts
+ * and durations, slot starts and durations, first departures and
+ * scheduled times) are given to z3.
+ *
+ * With ENCODING set to REAL (default), they are real variables in time
+ * units. With ENCODING set to INTEGER, they are integer variables counting
+ * ticks of RESOLUTION time units, and every time constant of the rules is
+ * an integer number of ticks, so the rules of the ports, cycles and flows
+ * are given to z3 in pure integer arithmetic. The schedule is then
+ * restricted to a grid, as it is when the gate control lists are executed
+ * by the switches. Values read from the model are converted back to time
+ * units by ModelReader.evalTime.
+ *
+ * Delays that only compete with the schedule (times to travel,
+ * transmission times and guard bands) are rounded up to the grid, which
+ * only leaves some margin. Periods, latency and jitter bounds, cycle
+ * duration bounds and maximum slot durations define the schedule itself
+ * and are not rounded: they must be multiples of RESOLUTION, or the
+ * network is rejected with an IllegalStateException (see checkNetwork).
+ *
+ * The encoding is read when the variables are created, so it must be set
+ * before the network is converted to z3.
+ */
+public class TimeEncoding {
+
+    public static final int REAL = 0;     // Real variables (linear real arithmetic)
+    public static final int INTEGER = 1;  // Integer ticks of RESOLUTION time units
+    public static int ENCODING = REAL;
+    public static float RESOLUTION = 1;   // Time units per tick (the XML output uses nanoseconds)
+
+
+    /**
+     * [Method]: mkTimeConst
+     * [Usage]: Creates a time variable with the current encoding.
+     *
+     * @param ctx       Context containing the z3 environment
+     * @param name      Name of the variable
+     * @return          Real variable, or integer variable counting ticks
+     */
+    public static ArithExpr mkTimeConst(Context ctx, String name) {
+        if(ENCODING == INTEGER) {
+            return ctx.mkIntConst(name);
+        }
+
+        return ctx.mkRealConst(name);
+    }
+
+
+    /**
+     * [Method]: timeSort
+     * [Usage]: Sort of the time variables of the current encoding, used
+     * as range of the slot functions of the cycles.
+     *
+     * @param ctx       Context containing the z3 environment
+     * @return          Real or integer sort
+     */
+    public static Sort timeSort(Context ctx) {
+        return ENCODING == INTEGER ? ctx.getIntSort() : ctx.getRealSort();
+    }
+
+
+    /**
+     * [Method]: mkTime
+     * [Usage]: Creates a time constant. With the integer encoding, the
+     * value is given in ticks, rounded up to the grid. Values checked by
+     * checkGrid are already on it, so they are kept exact.
+     *
+     * @param ctx       Context containing the z3 environment
+     * @param value     Time in time units
+     * @return          z3 real numeral, or integer numeral of ticks
+     */
+    public static ArithExpr mkTime(Context ctx, float value) {
+        if(ENCODING != INTEGER) {
+            return Z3TermCache.forContext(ctx).mkReal(value);
+        }
+
+        return mkTicks(ctx, toTicks(new BigDecimal(Float.toString(value)), RoundingMode.CEILING));
+    }
+
+
+    /**
+     * [Method]: mkTimes
+     * [Usage]: Creates the time constant of a multiple of a value, such
+     * as the departure of the i-th packet of a period. With the integer
+     * encoding, the product is computed exactly before it is converted
+     * to ticks.
+     *
+     * @param ctx       Context containing the z3 environment
+     * @param value     Time in time units
+     * @param count     Number of times the value is added
+     * @return          z3 real numeral, or integer numeral of ticks
+     */
+    public static ArithExpr mkTimes(Context ctx, float value, int count) {
+        if(ENCODING != INTEGER) {
+            return Z3TermCache.forContext(ctx).mkReal(value * count);
+        }
+
+        BigDecimal product = new BigDecimal(Float.toString(value)).multiply(BigDecimal.valueOf(count));
+
+        return mkTicks(ctx, toTicks(product, RoundingMode.CEILING));
+    }
+
+
+    /**
+     * [Method]: mkGridTime
+     * [Usage]: Creates the time constant of a value that was read from
+     * a schedule (loaded, warm started or simulated). With the integer
+     * encoding, the value is taken to the closest tick, dropping the
+     * rounding errors of the float it was stored in.
+     *
+     * @param ctx       Context containing the z3 environment
+     * @param value     Time in time units
+     * @return          z3 real numeral, or integer numeral of ticks
+     */
+    public static ArithExpr mkGridTime(Context ctx, float value) {
+        if(ENCODING != INTEGER) {
+            return Z3TermCache.forContext(ctx).mkReal(value);
+        }
+
+        return mkTicks(ctx, toTicks(new BigDecimal(Float.toString(value)), RoundingMode.HALF_UP));
+    }
+
+
+    /**
+     * [Method]: mkCount
+     * [Usage]: Converts a count (a cycle index or a number of packets)
+     * to a term that can multiply or divide a time of the current
+     * encoding.
+     *
+     * @param ctx       Context containing the z3 environment
+     * @param count     Integer term
+     * @return          The count itself, or its real value with the real encoding
+     */
+    public static ArithExpr mkCount(Context ctx, IntExpr count) {
+        if(ENCODING == INTEGER) {
+            return count;
+        }
+
+        return ctx.mkInt2Real(count);
+    }
+
+
+    /**
+     * [Method]: mkCount
+     * [Usage]: Creates the numeral of a count (see mkCount).
+     *
+     * @param ctx       Context containing the z3 environment
+     * @param count     Value of the count
+     * @return          Integer numeral, or real numeral with the real encoding
+     */
+    public static ArithExpr mkCount(Context ctx, int count) {
+        if(ENCODING == INTEGER) {
+            return Z3TermCache.forContext(ctx).mkInt(count);
+        }
+
+        return Z3TermCache.forContext(ctx).mkReal(Integer.toString(count));
+    }
+
+
+    /**
+     * [Method]: toTime
+     * [Usage]: Converts a value read from a time variable to time units.
+     *
+     * @param value     Value of the variable in the model
+     * @return          Value in time units
+     */
+    public static float toTime(float value) {
+        if(ENCODING != INTEGER) {
+            return value;
+        }
+
+        return new BigDecimal(Float.toString(value)).multiply(new BigDecimal(Float.toString(RESOLUTION))).floatValue();
+    }
+
+
+    /**
+     * [Method]: toGrid
+     * [Usage]: Value taken by a time constant in z3 (see mkTime), for
+     * code that works on the schedule outside of z3.
+     *
+     * @param value     Time in time units
+     * @return          Time rounded up to the grid with the integer encoding, unchanged otherwise
+     */
+    public static float toGrid(float value) {
+        if(ENCODING != INTEGER) {
+            return value;
+        }
+
+        BigDecimal ticks = new BigDecimal(toTicks(new BigDecimal(Float.toString(value)), RoundingMode.CEILING));
+
+        return ticks.multiply(new BigDecimal(Float.toString(RESOLUTION))).floatValue();
+    }
+
+
+    /**
+     * [Method]: checkGrid
+     * [Usage]: With the integer encoding, stops the scheduling if a value
+     * that defines the schedule is not a multiple of the resolution, since
+     * rounding it would change the schedule (a micro cycle of 1000.5 time
+     * units inside a hyper cycle of 2001 would end after the hyper cycle).
+     *
+     * @param description   Name of the value, used in the message
+     * @param value         Time in time units
+     */
+    public static void checkGrid(String description, float value) {
+        if(ENCODING != INTEGER) {
+            return;
+        }
+
+        BigDecimal resolution = new BigDecimal(Float.toString(RESOLUTION));
+
+        if(new BigDecimal(Float.toString(value)).remainder(resolution).signum() != 0) {
+            String message = description + " (" + value + ") is not a multiple of the time resolution (" + RESOLUTION + ").";
+
+            System.out.println(message);
+            throw new IllegalStateException(message);
+        }
+    }
+
+
+    /**
+     * [Method]: checkNetwork
+     * [Usage]: Checks with checkGrid every value of a network that defines
+     * its schedule: the periods and latency bounds of the flows, the jitter
+     * bound of the network, the cycle duration bounds of the switches and
+     * the maximum slot durations of the ports. Must be called before the
+     * network is converted to z3 (see ScheduleGenerator.checkNetwork).
+     *
+     * @param net       Network to be checked
+     */
+    public static void checkNetwork(Network net) {
+        if(ENCODING != INTEGER) {
+            return;
+        }
+
+        for(Flow flw : net.getFlows()) {
+            checkFlow(flw);
+        }
+
+        // Without a bound set on the network, the schedulers use 25
+        checkGrid("Jitter bound of the network", net.getJitterUpperBoundRange() != -1 ? net.getJitterUpperBoundRange() : 25);
+
+        for(Switch swt : net.getSwitches()) {
+            TSNSwitch tsnSwitch = (TSNSwitch) swt;
+
+            checkGrid("Cycle duration lower bound of " + tsnSwitch.getName(), tsnSwitch.getCycleDurationLowerBound());
+            checkGrid("Cycle duration upper bound of " + tsnSwitch.getName(), tsnSwitch.getCycleDurationUpperBound());
+
+            for(Port port : tsnSwitch.getPorts()) {
+                checkGrid("Maximum slot duration of port " + port.getName(), port.getCycle().getMaximumSlotDuration());
+            }
+        }
+    }
+
+
+    /**
+     * [Method]: checkFlow
+     * [Usage]: Checks with checkGrid the period and latency bound of a
+     * flow, such as a flow admitted by the IncrementalScheduler.
+     *
+     * @param flw       Flow to be checked
+     */
+    public static void checkFlow(Flow flw) {
+        if(ENCODING != INTEGER) {
+            return;
+        }
+
+        checkGrid("Period of " + flw.getName(), flw.getStartDevice().getPacketPeriodicity());
+        checkGrid("Latency bound of " + flw.getName(), flw.getStartDevice().getHardConstraintTime());
+    }
+
+
+    private static BigInteger toTicks(BigDecimal value, RoundingMode rounding) {
+        return value.divide(new BigDecimal(Float.toString(RESOLUTION)), 0, rounding).toBigIntegerExact();
+    }
+
+
+    private static IntExpr mkTicks(Context ctx, BigInteger ticks) {
+        if(ticks.bitLength() < 32) {
+            return Z3TermCache.forContext(ctx).mkInt(ticks.intValue());
+        }
+
+        return ctx.mkInt(ticks.toString());
+    }
+
+}
@@ -0,0 +1,305 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: WarmStart
+ * [Usage]: Uses a previous schedule of a network (usually loaded with
+ * ScheduleGenerator.deserializeNetwork) as a starting point for the
+ * solver, so that after a small change in the topology or in the flows
+ * the new schedule is found close to the old one.
+ *
+ * Unlike Network.loadNetwork, the previous values are not asserted as
+ * hard equalities. Each value is asserted under a literal, one literal
+ * per flow (fragment priorities and first sending time) and one per port
+ * (cycle and slots), and the literals are given to the solver as
+ * assumptions. If the solver rejects them, the literals in the unsat
+ * core are dropped and the solver is checked again, a few times at most.
+ * When no previous value is kept, the solver is checked without hints.
+ *
+ * Elements are matched by name, so flows, fragments and ports that are
+ * new or were renamed are simply left free.
+ */
+public class WarmStart {
+
+    private Network previousNet;
+    private int maxRounds = 5;
+    private ArrayList<String> keptHints = new ArrayList<String>();
+    private ArrayList<String> droppedHints = new ArrayList<String>();
+
+
+    /**
+     * [Method]: WarmStart
+     * [Usage]: Overloaded constructor of this class. Uses the schedule
+     * stored in the given network.
+     *
+     * @param previousNet   Network with the previous schedule
+     */
+    public WarmStart(Network previousNet) {
+        this.previousNet = previousNet;
+    }
+
+
+    /**
+     * [Method]: WarmStart
+     * [Usage]: Overloaded constructor of this class. Loads the previous
+     * schedule from a serialized network file.
+     *
+     * @param path          Path of the serialized network file
+     */
+    public WarmStart(String path) {
+        this.previousNet = new ScheduleGenerator().deserializeNetwork(path);
+    }
+
+
+    /**
+     * [Method]: check
+     * [Usage]: Checks the solver using the previous schedule as hints.
+     * The model can be retrieved from the solver as usual after this
+     * call.
+     *
+     * @param net       Network being scheduled
+     * @param solver    Solver with the constraints of the network
+     * @param ctx       Context of the solver
+     * @return          Status of the solver
+     */
+    public Status check(Network net, Solver solver, Context ctx) {
+        HashMap<BoolExpr, String> hintNames = new HashMap<BoolExpr, String>();
+        ArrayList<BoolExpr> hints = new ArrayList<BoolExpr>();
+        Status status = Status.UNKNOWN;
+
+        this.keptHints.clear();
+        this.droppedHints.clear();
+
+        if(this.previousNet == null) {
+            System.out.println("No previous schedule to start from.");
+            return solver.check();
+        }
+
+        this.addHints(net, solver, ctx, hints, hintNames);
+
+        if(hints.isEmpty()) {
+            System.out.println("No element of the previous schedule matches the network.");
+            return solver.check();
+        }
+
+        for(int round = 0; round < this.maxRounds && !hints.isEmpty(); round++) {
+            status = solver.check(hints.toArray(new BoolExpr[hints.size()]));
+
+            if(status != Status.UNSATISFIABLE) {
+                break;
+            }
+
+            BoolExpr[] core = solver.getUnsatCore();
+
+            if(core.length == 0) { // Unsatisfiable even without the hints
+                return status;
+            }
+
+            for(BoolExpr hint : core) {
+                hints.remove(hint);
+                this.droppedHints.add(hintNames.get(hint));
+            }
+        }
+
+        if(status != Status.SATISFIABLE) {
+            System.out.println("Previous schedule could not be used. Checking without hints.");
+            this.droppedHints.addAll(this.namesOf(hints, hintNames));
+            return solver.check();
+        }
+
+        this.keptHints.addAll(this.namesOf(hints, hintNames));
+        System.out.println("Warm start kept " + this.keptHints.size() + " hints and dropped " + this.droppedHints.size() + ".");
+
+        return status;
+    }
+
+
+    /**
+     * [Method]: addHints
+     * [Usage]: Asserts the values of the previous schedule, each group
+     * under its own literal.
+     *
+     * @param net           Network being scheduled
+     * @param solver        Solver with the constraints of the network
+     * @param ctx           Context of the solver
+     * @param hints         List that receives the literals
+     * @param hintNames     Map that receives the name of each literal
+     */
+    private void addHints(Network net, Solver solver, Context ctx, ArrayList<BoolExpr> hints, HashMap<BoolExpr, String> hintNames) {
+        Z3TermCache cache = Z3TermCache.forContext(ctx);
+        HashMap<String, Port> previousPorts = new HashMap<String, Port>();
+        HashMap<String, FlowFragment> previousFrags = new HashMap<String, FlowFragment>();
+        HashMap<String, Flow> previousFlows = new HashMap<String, Flow>();
+        HashMap<Flow, ArrayList<BoolExpr>> flowHints = new HashMap<Flow, ArrayList<BoolExpr>>();
+
+        for(Switch swt : this.previousNet.getSwitches()) {
+            for(Port port : ((TSNSwitch) swt).getPorts()) {
+                previousPorts.put(port.getName(), port);
+
+                for(FlowFragment frag : port.getFlowFragments()) {
+                    previousFrags.put(frag.getName(), frag);
+                }
+            }
+        }
+
+        for(Flow flw : this.previousNet.getFlows()) {
+            previousFlows.put(flw.getName(), flw);
+        }
+
+        // Ports: cycle start, cycle duration and slots of the priorities used
+        for(Switch swt : net.getSwitches()) {
+            for(Port port : ((TSNSwitch) swt).getPorts()) {
+                Port previousPort = previousPorts.get(port.getName());
+
+                if(previousPort == null || port.getFlowFragments().isEmpty() || previousPort.getFlowFragments().isEmpty()) {
+                    continue;
+                }
+
+                Cycle cycle = port.getCycle();
+                Cycle previousCycle = previousPort.getCycle();
+                ArrayList<BoolExpr> values = new ArrayList<BoolExpr>();
+
+                values.add(ctx.mkEq(cycle.getFirstCycleStartZ3(), TimeEncoding.mkGridTime(ctx, previousCycle.getCycleStart())));
+                values.add(ctx.mkEq(cycle.getCycleDurationZ3(), TimeEncoding.mkGridTime(ctx, previousCycle.getCycleDuration())));
+
+                for(int prt : previousCycle.getSlotsUsed()) {
+                    if(prt >= cycle.getNumOfPrts()) {
+                        continue;
+                    }
+
+                    for(int index = 0; index < Math.min(cycle.getNumOfSlots(), previousCycle.getNumOfSlots()); index++) {
+                        values.add(ctx.mkEq(cycle.slotStartZ3(ctx, prt, index), TimeEncoding.mkGridTime(ctx, previousCycle.getSlotStart(prt, index))));
+                        values.add(ctx.mkEq(cycle.slotDurationZ3(ctx, prt, index), TimeEncoding.mkGridTime(ctx, previousCycle.getSlotDuration(prt, index))));
+                    }
+                }
+
+                this.addHint("warmStart" + port.getName(), values, solver, ctx, hints, hintNames);
+            }
+        }
+
+        // Flows: priorities of the fragments kept by name
+        for(Switch swt : net.getSwitches()) {
+            for(Port port : ((TSNSwitch) swt).getPorts()) {
+                for(FlowFragment frag : port.getFlowFragments()) {
+                    FlowFragment previousFrag = previousFrags.get(frag.getName());
+
+                    if(previousFrag == null || previousFrag.getFragmentPriority() < 0) {
+                        continue;
+                    }
+
+                    if(!flowHints.containsKey(frag.getParent())) {
+                        flowHints.put(frag.getParent(), new ArrayList<BoolExpr>());
+                    }
+
+                    flowHints.get(frag.getParent()).add(
+                        ctx.mkEq(frag.getFragmentPriorityZ3(), cache.mkInt(previousFrag.getFragmentPriority()))
+                    );
+                }
+            }
+        }
+
+        // Flows: first sending time, given by the departure of the first packet from the first switch
+        for(Flow flw : net.getFlows()) {
+            Flow previousFlw = previousFlows.get(flw.getName());
+
+            if(previousFlw == null) {
+                continue;
+            }
+
+            for(PathNode node : previousFlw.getPathTree().getRoot().getChildren()) {
+                if(node.getFlowFragments().isEmpty() || node.getFlowFragments().get(0).getDepartureTimeList().isEmpty()) {
+                    continue;
+                }
+
+                if(!flowHints.containsKey(flw)) {
+                    flowHints.put(flw, new ArrayList<BoolExpr>());
+                }
+
+                flowHints.get(flw).add(
+                    ctx.mkEq(
+                        flw.getStartDevice().getFirstT1TimeZ3(),
+                        TimeEncoding.mkGridTime(ctx, node.getFlowFragments().get(0).getDepartureTime(0))
+                    )
+                );
+                break;
+            }
+
+            if(flowHints.containsKey(flw)) {
+                this.addHint("warmStart" + flw.getName(), flowHints.get(flw), solver, ctx, hints, hintNames);
+            }
+        }
+    }
+
+
+    /**
+     * [Method]: addHint
+     * [Usage]: Asserts a group of values under a new literal.
+     *
+     * @param name          Name of the literal
+     * @param values        Equalities of the group
+     * @param solver        Solver with the constraints of the network
+     * @param ctx           Context of the solver
+     * @param hints         List that receives the literal
+     * @param hintNames     Map that receives the name of the literal
+     */
+    private void addHint(String name, ArrayList<BoolExpr> values, Solver solver, Context ctx, ArrayList<BoolExpr> hints, HashMap<BoolExpr, String> hintNames) {
+        BoolExpr hint = ctx.mkBoolConst(name);
+
+        solver.add(ctx.mkImplies(hint, ctx.mkAnd(values.toArray(new BoolExpr[values.size()]))));
+        hints.add(hint);
+        hintNames.put(hint, name);
+    }
+
+
+    /**
+     * [Method]: namesOf
+     * [Usage]: Retrieves the names of a list of literals.
+     *
+     * @param hints         Literals
+     * @param hintNames     Name of each literal
+     * @return              Names of the literals
+     */
+    private ArrayList<String> namesOf(ArrayList<BoolExpr> hints, HashMap<BoolExpr, String> hintNames) {
+        ArrayList<String> names = new ArrayList<String>();
+
+        for(BoolExpr hint : hints) {
+            names.add(hintNames.get(hint));
+        }
+
+        return names;
+    }
+
+
+    /*
+     * GETTERS AND SETTERS
+     */
+
+    public Network getPreviousNet() {
+        return previousNet;
+    }
+
+    public void setPreviousNet(Network previousNet) {
+        this.previousNet = previousNet;
+    }
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    public ArrayList<String> getKeptHints() {
+        return keptHints;
+    }
+
+    public ArrayList<String> getDroppedHints() {
+        return droppedHints;
+    }
+
+}
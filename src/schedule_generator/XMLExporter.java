@@ -1,36 +1,36 @@
 package schedule_generator;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Comment;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-
-/** Transforms the schedule generated by TSNsched to XML. */
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Transforms the schedule generated by TSNsched to XML.
+ *
+ * <p>The gate control list of each switch is computed and streamed to its own file by a pool of
+ * workers. The ids of the GCL entries keep counting across the switches, in the order of the
+ * network, so the entries of all switches are computed first and each file is written as soon as
+ * the id of its first entry is known.
+ */
 public class XMLExporter {
 
   private static final Logger logger = Logger.getLogger(XMLExporter.class.getName());
-  private Document doc;
-  private Element portsTag;
   private Network net;
-  private int gclIndex = 0;
+  private int numOfThreads;
   private static final int OPEN_GATES_IN_GAP = 1; // 1 for queue 0, 255 to open all queues
 
   private static final long MAX_UINT32 = Long.parseUnsignedLong("4294967295");
@@ -40,230 +40,346 @@ public class XMLExporter {
   private static final String XML = ".xml";
   private static final String SLASH = "/";
   private static final String GUARDBAND = "Guard Band";
+  private static final String ENCODING = "UTF-8";
+  private static final String INDENT = "  ";
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+  private static final int BUFFER_SIZE = 1 << 16;
 
   private static final String ROOT1 = "urn:ietf:params:xml:ns:netconf:base:1.0";
-  private static final String ROOT2 = "nc:config";
+  private static final String ROOT2 = "config";
+  private static final String ROOT_PREFIX = "nc";
   private static final String TNTAS1 = "urn:sysrepo:TrustNode:TNsysrepo";
   private static final String TNTAS2 = "TNtas";
   private static final String PORTS = "ports";
   private static final String ID = "id";
 
+  /** Entry of the gate control list of a port. */
+  static class GclEntry {
+    private final long timePeriod;
+    private final int gateState;
+    private final boolean isGuardBand;
+
+    GclEntry(long timePeriod, int gateState, boolean isGuardBand) {
+      this.timePeriod = timePeriod;
+      this.gateState = gateState;
+      this.isGuardBand = isGuardBand;
+    }
+
+    long getTimePeriod() {
+      return timePeriod;
+    }
+
+    int getGateState() {
+      return gateState;
+    }
+
+    boolean isGuardBand() {
+      return isGuardBand;
+    }
+  }
+
+  /** Gate control list of an egress port. */
+  static class PortGcl {
+    private final int portNum;
+    private final float cycleDuration;
+    private final List<GclEntry> entries = new ArrayList<>();
+
+    PortGcl(int portNum, float cycleDuration) {
+      this.portNum = portNum;
+      this.cycleDuration = cycleDuration;
+    }
+
+    int getPortNum() {
+      return portNum;
+    }
+
+    float getCycleDuration() {
+      return cycleDuration;
+    }
+
+    List<GclEntry> getEntries() {
+      return entries;
+    }
+  }
+
   /**
-   * Constructor of the XMLExporter class.
+   * Constructor of the XMLExporter class. Uses one worker per available processor.
    *
    * @param net input network topology
    */
   public XMLExporter(Network net) {
+    this(net, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor of the XMLExporter class.
+   *
+   * @param net input network topology
+   * @param numOfThreads number of switches exported at the same time
+   */
+  public XMLExporter(Network net, int numOfThreads) {
     this.net = net;
+    this.numOfThreads = Math.max(1, numOfThreads);
     writeDataToXML();
   }
 
-  private void setupXMLNodes(String switchName) {
-    // Get Document Builder
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+  /**
+   * Computes the gate control lists of the ports of a switch. Ports without flow fragments are
+   * left out. Also used by the binary export (see GclBinaryExporter).
+   *
+   * @param currentSwitch switch to be exported
+   * @return gate control lists of the ports, with the entries in the order they are written
+   */
+  static List<PortGcl> createGCLs(TSNSwitch currentSwitch) {
+    List<PortGcl> portGcls = new ArrayList<>();
+
+    // iterate over ports of each switch
+    for (Port currentPort : currentSwitch.getPorts()) {
+      // check if given port has flowfragments
+      if (currentPort.getFlowFragments().isEmpty()) {
+        continue;
+      }
+
+      List<Triple> allSlots = new ArrayList<>();
+      Cycle currentCycle = currentPort.getCycle();
+      // egress port, so get port ID
+      PortGcl portGcl = new PortGcl(currentPort.getPortNum(), currentCycle.getCycleDuration());
+      portGcls.add(portGcl);
+
+      for (int i = 0; i < currentCycle.getSlotsUsed().size(); i++) {
+        int currentQ = currentCycle.getSlotsUsed().get(i);
+
+        //convert queue ID to binary encoded value
+        int binCurrentQ = (int) Math.pow(2,currentQ);
+
+        // find all slot durations for Q i
+        // second loop, because there could be more slots than priorities
+        for (int j = 0; j < currentCycle.getSlotDuration().get(i).size(); j++) {
+          long slotDuration = (long) currentCycle.getSlotDuration(currentQ, j);
+          // slot with length 0 are not used
+          if (slotDuration == 0L) {
+            continue;
+          }
+          // check if slot duration is smaller than an unsigned 32 bit integer
+          // (type provided by TrustNode yang model) roughly 4,29 seconds
+          if (slotDuration <= MAX_UINT32) {
+            long slotStart = (long) currentCycle.getSlotStart(currentQ, j);
+
+            // sort all values into a list of triples
+            allSlots.add(new Triple(binCurrentQ, slotStart, slotDuration));
+
+          } else {
+            throw new NumberFormatException("Cycle duration too large.");
+          }
+        }
+      }
+      // done with all slots, now sort list by slotStart
+      allSlots.sort(Triple::compareTo);
+
+      // get queue / priorities
+      long prevSlotStart = 0;
+      long prevSlotDur = 0;
+      long slotSum = 0;
+      long supposedSlotStart = 0;
+
+      int i = 0;
+      // iterate of slotList and compute the entries
+      for (Triple triple : allSlots) {
+        // is there a gap before the current Slot?
+        supposedSlotStart = prevSlotStart + prevSlotDur;
+        if (supposedSlotStart != triple.getSlotStart()) {
+          // create GCl for best effort traffic (open just Q0)
+          portGcl.entries.add(
+              new GclEntry(
+                  triple.getSlotStart() - slotSum - (long) currentPort.getGbSize(),
+                  OPEN_GATES_IN_GAP,
+                  false));
+
+          // close all queues inside guard bands
+          portGcl.entries.add(new GclEntry((long) currentPort.getGbSize(), 0, true));
+        }
+        // no gap before current slot
+        portGcl.entries.add(
+            new GclEntry(triple.getSlotDuration(), triple.getQueueID(), false));
+        slotSum = triple.getSlotStart() + triple.getSlotDuration();
+        prevSlotDur = triple.getSlotDuration();
+        prevSlotStart = triple.getSlotStart();
+
+        // are we at the last slot of the last queue? Is there a gap after it?
+        if (++i == allSlots.size() && currentCycle.getCycleDuration() - slotSum != 0) {
+          portGcl.entries.add(
+              new GclEntry(
+                  (long) (currentCycle.getCycleDuration() - slotSum),
+                  OPEN_GATES_IN_GAP,
+                  false));
+        }
+      }
+    }
+
+    return portGcls;
+  }
+
+  /**
+   * Iterate over the network and write the schedule of each switch to its own file. The gate
+   * control lists are computed in parallel, then each switch is written in parallel once the id
+   * of its first GCL entry is known.
+   */
+  private void writeDataToXML() {
+    List<TSNSwitch> switches = new ArrayList<>();
+    for (Switch currentSwitch : net.getSwitches()) {
+      if (currentSwitch instanceof TSNSwitch) {
+        switches.add((TSNSwitch) currentSwitch);
+      }
+    }
+
+    ExecutorService pool =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(numOfThreads, switches.size())));
 
     try {
-      // prevent XXE attack
-      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      List<Future<List<PortGcl>>> switchGcls = new ArrayList<>();
+      for (TSNSwitch currentSwitch : switches) {
+        switchGcls.add(pool.submit(() -> createGCLs(currentSwitch)));
+      }
 
-      DocumentBuilder builder;
-      builder = factory.newDocumentBuilder();
+      List<Future<?>> files = new ArrayList<>();
+      int gclIndex = 0;
+      for (int s = 0; s < switches.size(); s++) {
+        String switchName = switches.get(s).getName();
+        List<PortGcl> portGcls = switchGcls.get(s).get();
+        int firstIndex = gclIndex;
+        String path =
+            CURRENT_DIR + SLASH + "XMLExporterFiles" + SLASH + CURRENT_TIME + "-" + switchName + XML;
 
-      // Build document
-      this.doc = builder.newDocument();
+        System.out.println("BAGUI: " + path);
+        files.add(pool.submit(() -> writeSwitch(path, switchName, portGcls, firstIndex)));
 
-      // setup default nodes
-      Element root = doc.createElementNS(ROOT1, ROOT2);
-      Element tnTAS = doc.createElementNS(TNTAS1, TNTAS2);
-      portsTag = doc.createElement(PORTS);
+        for (PortGcl portGcl : portGcls) {
+          gclIndex += portGcl.entries.size();
+        }
+      }
+
+      for (Future<?> file : files) {
+        file.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      logger.log(Level.SEVERE, "Something went wrong: {0} ", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(Level.SEVERE, "Something went wrong: {0} ", e);
+    } finally {
+      pool.shutdown();
+    }
+  }
 
-      // append nodes
-      doc.appendChild(root);
-      root.appendChild(tnTAS);
-      tnTAS.appendChild(portsTag);
+  /**
+   * Streams the schedule of a switch to its file, indented by two spaces.
+   *
+   * @param path file of the switch
+   * @param switchName name of the current switch
+   * @param portGcls gate control lists of the ports of the switch
+   * @param firstIndex id of the first GCL entry of the switch
+   */
+  private void writeSwitch(
+      String path, String switchName, List<PortGcl> portGcls, int firstIndex) {
+    try (OutputStream file = new BufferedOutputStream(new FileOutputStream(path), BUFFER_SIZE)) {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(file, ENCODING);
+      int gclIndex = firstIndex;
 
-      Comment comment = doc.createComment("Created with TSNsched. Schedule for " + switchName);
-      root.insertBefore(comment, root.getFirstChild());
+      // setup default nodes
+      writer.writeStartElement(ROOT_PREFIX, ROOT2, ROOT1);
+      writer.writeNamespace(ROOT_PREFIX, ROOT1);
+      newLine(writer, 1);
+      writer.writeComment("Created with TSNsched. Schedule for " + switchName);
+      newLine(writer, 1);
+      writer.writeStartElement(TNTAS2);
+      writer.writeDefaultNamespace(TNTAS1);
+      newLine(writer, 2);
+      writer.writeStartElement(PORTS);
+
+      for (PortGcl portGcl : portGcls) {
+        writeTagWithValue(writer, 3, ID, portGcl.portNum);
+        newLine(writer, 3);
+        writer.writeComment("Cycle duration: " + portGcl.cycleDuration);
+
+        for (GclEntry entry : portGcl.entries) {
+          writeGCL(writer, gclIndex++, entry);
+        }
+      }
 
-    } catch (ParserConfigurationException e) {
+      writOptions(writer);
+
+      newLine(writer, 2);
+      writer.writeEndElement(); // ports
+      newLine(writer, 1);
+      writer.writeEndElement(); // TNtas
+      newLine(writer, 0);
+      writer.writeEndElement(); // config
+      newLine(writer, 0);
+      writer.writeEndDocument();
+      writer.close();
+    } catch (IOException | XMLStreamException e) {
       logger.log(Level.SEVERE, "Something went wrong: {0} ", e);
     }
   }
 
   /**
-   * Utility method to create GCL entries.
+   * Utility method to write GCL entries.
    *
+   * @param writer stream of the switch file
    * @param id of the GCl entry
-   * @param timePeriod how long the gateState is open.
-   * @param gateState which gates to open (binary encoded)
-   * @return Node Object
+   * @param entry how long which gates are open (binary encoded)
    */
-  private Node createGCL(int id, long timePeriod, int gateState, boolean isGuardBand) {
-    Element gateControlList = doc.createElement("GCL");
-    if (isGuardBand) {
-      Comment guardBand = doc.createComment(GUARDBAND);
-      gateControlList.appendChild(guardBand);
+  private static void writeGCL(XMLStreamWriter writer, int id, GclEntry entry)
+      throws XMLStreamException {
+    newLine(writer, 3);
+    writer.writeStartElement("GCL");
+    if (entry.isGuardBand) {
+      newLine(writer, 4);
+      writer.writeComment(GUARDBAND);
     }
-    gateControlList.appendChild(createTagWithValue("id", id));
-    gateControlList.appendChild(createTagWithValue("timeperiod", timePeriod));
-    gateControlList.appendChild(createTagWithValue("gatestates", gateState));
-    return gateControlList;
+    writeTagWithValue(writer, 4, "id", id);
+    writeTagWithValue(writer, 4, "timeperiod", entry.timePeriod);
+    writeTagWithValue(writer, 4, "gatestates", entry.gateState);
+    newLine(writer, 3);
+    writer.writeEndElement();
   }
 
   /**
-   * Utility method to create XML text node.
+   * Utility method to write an XML tag with a text value on its own line.
    *
+   * @param writer stream of the switch file
+   * @param depth indentation level of the tag
    * @param name tag name
    * @param value value of the tag
-   * @return Node Object
    */
-  private Node createTagWithValue(String name, Object value) {
-    Element node = doc.createElement(name);
-    node.appendChild(doc.createTextNode(String.valueOf(value))); // convert Object to String
-    return node;
+  private static void writeTagWithValue(
+      XMLStreamWriter writer, int depth, String name, Object value) throws XMLStreamException {
+    newLine(writer, depth);
+    writer.writeStartElement(name);
+    writer.writeCharacters(String.valueOf(value)); // convert Object to String
+    writer.writeEndElement();
   }
 
   /** Utility method to write options to the XML. */
-  private void writOptions() {
-    portsTag.appendChild(createTagWithValue("admin_base_time", 0));
-    portsTag.appendChild(createTagWithValue("admin_cycle_time_ext", 0));
-    portsTag.appendChild(createTagWithValue("gate_enable", true));
-  }
-
-  /** Iterate over the network and write values to the Document Object Model. */
-  private void writeDataToXML() {
-    // Iterate over network switches
-    for (Switch currentSwitch : net.getSwitches()) {
-      if (currentSwitch instanceof TSNSwitch) {
-        setupXMLNodes(currentSwitch.getName());
-        // iterate over ports of each switch
-        for (Port currentPort : ((TSNSwitch) currentSwitch).getPorts()) {
-          // check if given port has flowfragments
-          if (!currentPort.getFlowFragments().isEmpty()) {
-            List<Triple> allSlots = new ArrayList<>();
-            // egress port, so get port ID
-            portsTag.appendChild(createTagWithValue(ID, currentPort.getPortNum()));
-
-            Cycle currentCycle = currentPort.getCycle();
-            Comment comment =
-                doc.createComment("Cycle duration: " + currentCycle.getCycleDuration());
-            portsTag.appendChild(comment);
-
-            for (int i = 0; i < currentCycle.getSlotsUsed().size(); i++) {
-              int currentQ = currentCycle.getSlotsUsed().get(i);
-
-              //convert queue ID to binary encoded value
-              int binCurrentQ = (int) Math.pow(2,currentQ);
-
-              // find all slot durations for Q i
-              // second loop, because there could be more slots than priorities
-              for (int j = 0; j < currentCycle.getSlotDuration().get(i).size(); j++) {
-                long slotDuration = (long) currentCycle.getSlotDuration(currentQ, j);
-                // slot with length 0 are not used
-                if (slotDuration == 0L) {
-                  continue;
-                }
-                // check if slot duration is smaller than an unsigned 32 bit integer
-                // (type provided by TrustNode yang model) roughly 4,29 seconds
-                if (slotDuration <= MAX_UINT32) {
-                  long slotStart = (long) currentCycle.getSlotStart(currentQ, j);
-
-                  // sort all values into a list of triples
-                  allSlots.add(new Triple(binCurrentQ, slotStart, slotDuration));
-
-                } else {
-                  throw new NumberFormatException("Cycle duration too large.");
-                }
-              }
-            }
-            // done with all slots, now sort list by slotStart
-            allSlots.sort(Triple::compareTo);
-
-            // get queue / priorities
-            long prevSlotStart = 0;
-            long prevSlotDur = 0;
-            long slotSum = 0;
-            long supposedSlotStart = 0;
-
-            int i = 0;
-            // iterate of slotList and write the entries
-            for (Triple triple : allSlots) {
-              // is there a gap before the current Slot?
-              supposedSlotStart = prevSlotStart + prevSlotDur;
-              if (supposedSlotStart != triple.getSlotStart()) {
-                // create GCl for best effort traffic (open just Q0)
-                portsTag.appendChild(
-                    createGCL(
-                        gclIndex++,
-                        triple.getSlotStart() - slotSum - (long) currentPort.getGbSize(),
-                        OPEN_GATES_IN_GAP,
-                        false));
-
-                // close all queues inside guard bands
-                portsTag.appendChild(
-                    createGCL(gclIndex++, (long) currentPort.getGbSize(), 0, true));
-              }
-              // no gap before current slot
-              portsTag.appendChild(
-                  createGCL(gclIndex++, triple.getSlotDuration(), triple.getQueueID(), false));
-              slotSum = triple.getSlotStart() + triple.getSlotDuration();
-              prevSlotDur = triple.getSlotDuration();
-              prevSlotStart = triple.getSlotStart();
-
-              // are we at the last slot of the last queue? Is there a gap after it?
-              if (++i == allSlots.size() && currentCycle.getCycleDuration() - slotSum != 0) {
-                portsTag.appendChild(
-                    createGCL(
-                        gclIndex++,
-                        (long) (currentCycle.getCycleDuration() - slotSum),
-                        OPEN_GATES_IN_GAP,
-                        false));
-              }
-            }
-          }
-        }
-        writOptions();
-        prettyPrint(false, true, currentSwitch.getName());
-      }
-    }
+  private static void writOptions(XMLStreamWriter writer) throws XMLStreamException {
+    writeTagWithValue(writer, 3, "admin_base_time", 0);
+    writeTagWithValue(writer, 3, "admin_cycle_time_ext", 0);
+    writeTagWithValue(writer, 3, "gate_enable", true);
   }
 
   /**
-   * Outputs the Document Object Model to console and/or file.
+   * Utility method to start a new line, indented as the pretty printed DOM used to be.
    *
-   * @param printToConsole if true, XML gets printed to the console
-   * @param writeToFile if true, XML gets written to file
-   * @param switchName name of the current switch
+   * @param writer stream of the switch file
+   * @param depth indentation level of the next node
    */
-  private void prettyPrint(boolean printToConsole, boolean writeToFile, String switchName) {
-    try {
-      TransformerFactory transformerFactory = TransformerFactory.newInstance();
-      transformerFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      Transformer transformer = transformerFactory.newTransformer();
-
-      // output settings
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-
-      System.out.println("BAGUI: " + CURRENT_DIR + SLASH + "XMLExporterFiles" + SLASH + CURRENT_TIME + "-" + switchName + XML);
-      
-      DOMSource source = new DOMSource(this.doc);
-
-      if (printToConsole) {
-        // write to console
-        StreamResult console = new StreamResult(System.out);
-        transformer.transform(source, console);
-      }
-      if (writeToFile) {
-        // write to file
-        StreamResult file =
-            new StreamResult(
-                new FileOutputStream(CURRENT_DIR + SLASH + "XMLExporterFiles" + SLASH + CURRENT_TIME + "-" + switchName + XML));
-        transformer.transform(source, file);
-      }
-    } catch (TransformerException | FileNotFoundException e) {
-      logger.log(Level.SEVERE, "Something went wrong: {0} ", e);
+  private static void newLine(XMLStreamWriter writer, int depth) throws XMLStreamException {
+    writer.writeCharacters(LINE_SEPARATOR);
+    for (int i = 0; i < depth; i++) {
+      writer.writeCharacters(INDENT);
     }
   }
 }
@@ -0,0 +1,259 @@
+package schedule_generator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: Z3TermCache
+ * [Usage]: Stores the z3 terms built while setting up the scheduling
+ * rules, so the same term is not built again every time it is needed.
+ * The rules of a port refer to the same packet times, slots and cycle
+ * starts many times inside nested loops, and building each one of them
+ * means concatenating strings for the variable names and calling the
+ * native z3 library.
+ *
+ * Terms are stored per context. Each kind of term is indexed by the
+ * object that owns it (a flow fragment, a cycle, the priority of a
+ * fragment, or a flow and the leaves of its path tree) and an integer
+ * index (packet, slot or cycle index). Owners
+ * are compared by reference, since z3 expressions compare their values
+ * through the native library. The integer cycle indices of the packets
+ * (see Port.CYCLE_ENCODING) are stored the same way.
+ *
+ * The cache of a context must be released when the context is closed
+ * (see ScheduleGenerator.closeContext).
+ */
+public class Z3TermCache {
+
+    public static final int DEPARTURE_TIME = 0;
+    public static final int ARRIVAL_TIME = 1;
+    public static final int SCHEDULED_TIME = 2;
+    public static final int CYCLE_START = 3;
+    public static final int SLOT_START = 4;
+    public static final int SLOT_DURATION = 5;
+    public static final int TRANSMISSION_TIME = 6;
+    public static final int LATENCY = 7;
+    public static final int LATENCY_SUM = 8;
+    public static final int AVERAGE_LATENCY = 9;
+    public static final int ARRIVAL_CYCLE = 10;
+    public static final int SCHEDULED_CYCLE = 11;
+    private static final int NUM_OF_KINDS = 12;
+
+    private static IdentityHashMap<Context, Z3TermCache> caches = new IdentityHashMap<Context, Z3TermCache>();
+
+    private Context ctx;
+    private ArrayList<IdentityHashMap<Object, ArrayList<Expr>>> terms = new ArrayList<IdentityHashMap<Object, ArrayList<Expr>>>();
+    private HashMap<String, RealExpr> realNumerals = new HashMap<String, RealExpr>();
+    private HashMap<Integer, IntExpr> intNumerals = new HashMap<Integer, IntExpr>();
+
+
+    /**
+     * [Method]: Z3TermCache
+     * [Usage]: Creates an empty cache for the given context.
+     *
+     * @param ctx       Context of the terms stored
+     */
+    private Z3TermCache(Context ctx) {
+        this.ctx = ctx;
+
+        for(int i = 0; i < NUM_OF_KINDS; i++) {
+            this.terms.add(new IdentityHashMap<Object, ArrayList<Expr>>());
+        }
+    }
+
+
+    /**
+     * [Method]: forContext
+     * [Usage]: Returns the cache of a context, creating it if
+     * needed.
+     *
+     * @param ctx       Context of the desired cache
+     * @return          Cache of the context
+     */
+    public static synchronized Z3TermCache forContext(Context ctx) {
+        Z3TermCache cache = caches.get(ctx);
+
+        if(cache == null) {
+            cache = new Z3TermCache(ctx);
+            caches.put(ctx, cache);
+        }
+
+        return cache;
+    }
+
+
+    /**
+     * [Method]: release
+     * [Usage]: Drops the cache of a context. Must be called when the
+     * context is closed.
+     *
+     * @param ctx       Context being closed
+     */
+    public static synchronized void release(Context ctx) {
+        caches.remove(ctx);
+    }
+
+
+    /**
+     * [Method]: getTerm
+     * [Usage]: Retrieves a stored term.
+     *
+     * @param kind      Kind of the term (SCHEDULED_TIME, CYCLE_START, ...)
+     * @param owner     Object that owns the term
+     * @param index     Index of the term
+     * @return          The stored term or null if it was not built yet
+     */
+    public ArithExpr getTerm(int kind, Object owner, int index) {
+        return (ArithExpr) this.getStoredTerm(kind, owner, index);
+    }
+
+
+    /**
+     * [Method]: getIndexTerm
+     * [Usage]: Retrieves a stored integer term, such as the cycle
+     * index of a packet.
+     *
+     * @param kind      Kind of the term (ARRIVAL_CYCLE or SCHEDULED_CYCLE)
+     * @param owner     Object that owns the term
+     * @param index     Index of the term
+     * @return          The stored term or null if it was not built yet
+     */
+    public IntExpr getIndexTerm(int kind, Object owner, int index) {
+        return (IntExpr) this.getStoredTerm(kind, owner, index);
+    }
+
+
+    private Expr getStoredTerm(int kind, Object owner, int index) {
+        ArrayList<Expr> ownerTerms = this.terms.get(kind).get(owner);
+
+        if(ownerTerms == null || index >= ownerTerms.size()) {
+            return null;
+        }
+
+        return ownerTerms.get(index);
+    }
+
+
+    /**
+     * [Method]: putTerm
+     * [Usage]: Stores a term, returning it back so it can be used
+     * right after being built.
+     *
+     * @param kind      Kind of the term (SCHEDULED_TIME, CYCLE_START, ...)
+     * @param owner     Object that owns the term
+     * @param index     Index of the term
+     * @param term      Term to be stored
+     * @return          The stored term
+     */
+    public ArithExpr putTerm(int kind, Object owner, int index, ArithExpr term) {
+        this.putStoredTerm(kind, owner, index, term);
+
+        return term;
+    }
+
+
+    /**
+     * [Method]: putIndexTerm
+     * [Usage]: Stores an integer term, returning it back so it can be
+     * used right after being built.
+     *
+     * @param kind      Kind of the term (ARRIVAL_CYCLE or SCHEDULED_CYCLE)
+     * @param owner     Object that owns the term
+     * @param index     Index of the term
+     * @param term      Term to be stored
+     * @return          The stored term
+     */
+    public IntExpr putIndexTerm(int kind, Object owner, int index, IntExpr term) {
+        this.putStoredTerm(kind, owner, index, term);
+
+        return term;
+    }
+
+
+    private void putStoredTerm(int kind, Object owner, int index, Expr term) {
+        ArrayList<Expr> ownerTerms = this.terms.get(kind).get(owner);
+
+        if(ownerTerms == null) {
+            ownerTerms = new ArrayList<Expr>();
+            this.terms.get(kind).put(owner, ownerTerms);
+        }
+
+        while(ownerTerms.size() <= index) {
+            ownerTerms.add(null);
+        }
+
+        ownerTerms.set(index, term);
+    }
+
+
+    /**
+     * [Method]: invalidate
+     * [Usage]: Drops every term owned by an object. Used when the
+     * z3 variables of the owner are created again.
+     *
+     * @param owner     Object that owns the terms
+     */
+    public void invalidate(Object owner) {
+        for(IdentityHashMap<Object, ArrayList<Expr>> kindTerms : this.terms) {
+            kindTerms.remove(owner);
+        }
+    }
+
+
+    /**
+     * [Method]: mkReal
+     * [Usage]: Returns a real numeral of the context, creating it only
+     * the first time it is asked for.
+     *
+     * @param value     String with the value of the numeral
+     * @return          z3 real numeral
+     */
+    public RealExpr mkReal(String value) {
+        RealExpr numeral = this.realNumerals.get(value);
+
+        if(numeral == null) {
+            numeral = ctx.mkReal(value);
+            this.realNumerals.put(value, numeral);
+        }
+
+        return numeral;
+    }
+
+
+    /**
+     * [Method]: mkReal
+     * [Usage]: Returns a real numeral of the context from a float value,
+     * using the same string conversion of the rest of the project.
+     *
+     * @param value     Value of the numeral
+     * @return          z3 real numeral
+     */
+    public RealExpr mkReal(float value) {
+        return this.mkReal(Float.toString(value));
+    }
+
+
+    /**
+     * [Method]: mkInt
+     * [Usage]: Returns an integer numeral of the context, creating it
+     * only the first time it is asked for. The same object is always
+     * returned for the same value, so numerals can be used as owners.
+     *
+     * @param value     Value of the numeral
+     * @return          z3 integer numeral
+     */
+    public IntExpr mkInt(int value) {
+        IntExpr numeral = this.intNumerals.get(value);
+
+        if(numeral == null) {
+            numeral = ctx.mkInt(value);
+            this.intNumerals.put(value, numeral);
+        }
+
+        return numeral;
+    }
+
+}